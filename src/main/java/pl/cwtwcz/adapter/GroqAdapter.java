@@ -8,9 +8,17 @@ import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import lombok.RequiredArgsConstructor;
+import pl.cwtwcz.cache.ArtifactStore;
+import pl.cwtwcz.exception.ProviderException;
+import pl.cwtwcz.http.HttpClientRegistry;
+import pl.cwtwcz.http.ProviderRateLimiter;
 import pl.cwtwcz.service.PromptService;
+import pl.cwtwcz.utils.HashUtils;
 
 import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.util.MultiValueMap;
 
 @RequiredArgsConstructor
@@ -19,6 +27,8 @@ public class GroqAdapter {
 
     private static final Logger logger = LoggerFactory.getLogger(GroqAdapter.class);
 
+    private static final String TRANSCRIPTION_ENDPOINT = "groq:transcription";
+
     @Value("${groq.api.key}")
     private String apiKey;
 
@@ -28,53 +38,97 @@ public class GroqAdapter {
     @Value("${groq.transcription.url}")
     private String transcriptionUrl;
 
-    private final RestTemplate restTemplate;
+    private final HttpClientRegistry httpClientRegistry;
     private final PromptService promptService;
+    private final ProviderCallExecutor providerCallExecutor;
+    private final ProviderRateLimiter rateLimiter;
+    private final ProviderResilience resilience;
+    private final ArtifactStore artifactStore;
 
+    /**
+     * Transcribes an audio file with the Groq Whisper API.
+     * Transcripts are kept in the artifact store keyed by the audio content, so
+     * the same recording is only transcribed once per model, language and prompt.
+     *
+     * @param audioFilePath Path to the audio file.
+     * @param languageCode  Language of the recording.
+     * @return The transcription text.
+     * @throws ProviderException When the request failed after retries.
+     */
     public String speechToText(String audioFilePath, String languageCode) {
+        File audioFile = new File(audioFilePath);
+        if (!audioFile.exists()) {
+            throw new IllegalArgumentException("Audio file does not exist: " + audioFilePath);
+        }
+        String prompt = promptService.speechToTextPrompt(languageCode);
+        if (!artifactStore.isEnabled()) {
+            return transcribe(audioFile, prompt);
+        }
+
+        String sourceHash;
         try {
-            File audioFile = new File(audioFilePath);
-            if (!audioFile.exists()) {
-                throw new IllegalArgumentException("Audio file does not exist: " + audioFilePath);
+            sourceHash = HashUtils.sha256Hex(audioFile.toPath());
+        } catch (IOException e) {
+            logger.warn("Could not hash audio file {}, skipping artifact store: {}", audioFilePath, e.getMessage());
+            return transcribe(audioFile, prompt);
+        }
+        String derivation = ArtifactStore.derivation("transcript", "groq", defaultModelName,
+                languageCode.toLowerCase(), HashUtils.sha256Hex(prompt));
+        return artifactStore.getOrComputeText(sourceHash, derivation, () -> transcribe(audioFile, prompt));
+    }
+
+    private String transcribe(File audioFile, String prompt) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(apiKey);
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        // Prepare multipart body
+        MultiValueMap<String, Object> body = new org.springframework.util.LinkedMultiValueMap<>();
+        body.add("model", defaultModelName);
+        body.add("temperature", 0);
+        body.add("response_format", "verbose_json");
+        body.add("prompt", prompt);
+        body.add("file", new FileSystemResource(audioFile));
+
+        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+
+        RestTemplate restTemplate = httpClientRegistry.get(HttpClientRegistry.GROQ);
+        String responseBody = resilience.call(TRANSCRIPTION_ENDPOINT, true, () -> {
+            try (ProviderRateLimiter.Permit permit = rateLimiter.acquire(ProviderRateLimiter.GROQ, defaultModelName,
+                    0)) {
+                return restTemplate.postForEntity(transcriptionUrl, requestEntity, String.class).getBody();
             }
+        });
+        if (responseBody == null) {
+            logger.error("Groq transcription returned an empty body");
+            throw new ProviderException(TRANSCRIPTION_ENDPOINT, "Empty response body", -1, false);
+        }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(apiKey);
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-            // Prepare multipart body
-            MultiValueMap<String, Object> body = new org.springframework.util.LinkedMultiValueMap<>();
-            body.add("model", defaultModelName);
-            body.add("temperature", 0);
-            body.add("response_format", "verbose_json");
-            String prompt = promptService.speechToTextPrompt(languageCode);
-            body.add("prompt", prompt);
-            body.add("file", new FileSystemResource(audioFile));
-
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-
-            ResponseEntity<String> response = restTemplate.postForEntity(transcriptionUrl, requestEntity, String.class);
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                // The response is expected to be JSON with a 'text' field
-                String responseBody = response.getBody();
-                // Simple extraction of the 'text' field (should use a JSON parser in
-                // production)
-                int idx = responseBody.indexOf("\"text\":");
-                if (idx != -1) {
-                    int start = responseBody.indexOf('"', idx + 7) + 1;
-                    int end = responseBody.indexOf('"', start);
-                    if (start > 0 && end > start) {
-                        return responseBody.substring(start, end);
-                    }
-                }
-                return responseBody; // fallback: return raw response
-            } else {
-                logger.error("Groq transcription failed: {}", response.getBody());
-                throw new RuntimeException("Groq transcription failed: " + response.getBody());
+        // The response is expected to be JSON with a 'text' field
+        // Simple extraction of the 'text' field (should use a JSON parser in
+        // production)
+        int idx = responseBody.indexOf("\"text\":");
+        if (idx != -1) {
+            int start = responseBody.indexOf('"', idx + 7) + 1;
+            int end = responseBody.indexOf('"', start);
+            if (start > 0 && end > start) {
+                return responseBody.substring(start, end);
             }
-        } catch (Exception e) {
-            logger.error("Error during Groq speech-to-text: {}", e.getMessage(), e);
-            throw new RuntimeException("Groq speech-to-text error: " + e.getMessage(), e);
         }
+        return responseBody; // fallback: return raw response
+    }
+
+    /**
+     * Non-blocking {@link #speechToText(String, String)} running under the shared
+     * Groq concurrency budget.
+     *
+     * @param audioFilePath Path to the audio file.
+     * @param languageCode  Language of the recording.
+     * @param deadline      Maximum time for waiting in the budget queue plus the request.
+     * @return Future of the transcription; cancelling it aborts the upload.
+     */
+    public CompletableFuture<String> speechToTextAsync(String audioFilePath, String languageCode, Duration deadline) {
+        return providerCallExecutor.submit(ProviderCallExecutor.GROQ, deadline,
+                () -> speechToText(audioFilePath, languageCode));
     }
-}
\ No newline at end of file
+}
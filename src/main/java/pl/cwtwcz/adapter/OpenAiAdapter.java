@@ -1,17 +1,21 @@
 package pl.cwtwcz.adapter;
 
-import com.theokanning.openai.OpenAiHttpException;
 import com.theokanning.openai.completion.chat.ChatCompletionChoice;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
 import com.theokanning.openai.completion.chat.ChatMessage;
+import com.theokanning.openai.embedding.Embedding;
 import com.theokanning.openai.embedding.EmbeddingRequest;
 import com.theokanning.openai.embedding.EmbeddingResult;
 import com.theokanning.openai.service.OpenAiService;
 
+import pl.cwtwcz.cache.CompletionCache;
 import pl.cwtwcz.dto.common.DallEImageRequestDto;
 import pl.cwtwcz.dto.common.DallEImageResponseDto;
 import pl.cwtwcz.dto.common.OpenAiImagePromptRequestDto;
 import pl.cwtwcz.dto.common.OpenAiVisionResponseDto;
+import pl.cwtwcz.exception.ProviderException;
+import pl.cwtwcz.http.HttpClientRegistry;
+import pl.cwtwcz.http.ProviderRateLimiter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,8 +26,17 @@ import org.springframework.http.*;
 
 import static com.theokanning.openai.completion.chat.ChatMessageRole.USER;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 
@@ -33,6 +46,14 @@ public class OpenAiAdapter {
 
     private static final Logger logger = LoggerFactory.getLogger(OpenAiAdapter.class);
 
+    // Rough TPM cost of a vision request (image tiles are billed as tokens)
+    private static final int VISION_REQUEST_TOKEN_ESTIMATE = 1000;
+
+    private static final String CHAT_ENDPOINT = "openai:chat";
+    private static final String VISION_ENDPOINT = "openai:vision";
+    private static final String IMAGES_ENDPOINT = "openai:images";
+    private static final String EMBEDDINGS_ENDPOINT = "openai:embeddings";
+
     @Value("${openai.model.name}")
     private String defaultModel;
 
@@ -45,14 +66,39 @@ public class OpenAiAdapter {
     @Value("${openai.image.url}")
     private String openAiImageUrl;
 
+    @Value("${custom.embedding.batch.max-inputs:256}")
+    private int embeddingBatchMaxInputs;
+
+    @Value("${custom.embedding.batch.max-tokens:100000}")
+    private int embeddingBatchMaxTokens;
+
     private final OpenAiService openAiService;
-    private final RestTemplate restTemplate;
+    private final HttpClientRegistry httpClientRegistry;
+    private final CompletionCache completionCache;
+    private final ProviderCallExecutor providerCallExecutor;
+    private final ProviderRateLimiter rateLimiter;
+    private final ProviderResilience resilience;
 
     public String getAnswer(String prompt) {
         return getAnswer(prompt, defaultModel);
     }
 
     public String getAnswer(String prompt, String modelName) {
+        return getAnswer(prompt, modelName, false);
+    }
+
+    /**
+     * Sends a prompt to the chat completions API, serving identical requests from
+     * the completion cache.
+     *
+     * @param prompt      The user prompt.
+     * @param modelName   The model to use.
+     * @param bypassCache When true, always asks the model (fresh sampling) and
+     *                    refreshes the cached entry with the new answer.
+     * @return The model answer.
+     * @throws ProviderException When the request failed after retries or the answer was empty.
+     */
+    public String getAnswer(String prompt, String modelName, boolean bypassCache) {
 
         if (prompt == null || prompt.isEmpty()) {
             logger.warn("Prompt for OpenAI is empty.");
@@ -61,73 +107,235 @@ public class OpenAiAdapter {
 
         // logger.info("Sending prompt to OpenAI API (model: {}): \"{}\"", modelName, prompt);
 
-        try {
-            ChatMessage userMessage = new ChatMessage(USER.value(), prompt);
+        ChatMessage userMessage = new ChatMessage(USER.value(), prompt);
 
-            ChatCompletionRequest request = ChatCompletionRequest.builder()
-                    .model(modelName)
-                    .messages(Collections.singletonList(userMessage))
-                    .build();
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .model(modelName)
+                .messages(Collections.singletonList(userMessage))
+                .build();
 
-            List<ChatCompletionChoice> choices = openAiService.createChatCompletion(request)
-                    .getChoices();
+        String cacheKey = cacheKey(request, prompt);
+        if (!bypassCache) {
+            Optional<String> cached = completionCache.get(cacheKey);
+            if (cached.isPresent()) {
+                logger.debug("Completion cache hit (model: {}), stats: {}", modelName, completionCache.getStats());
+                return cached.get();
+            }
+        }
 
-            if (choices != null && !choices.isEmpty() && choices.get(0).getMessage() != null) {
-                String answer = choices.get(0).getMessage().getContent();
-                // logger.info("Received response from OpenAI: {}", answer);
-                return answer;
-            } else {
+        String answer = resilience.call(CHAT_ENDPOINT, true, () -> {
+            List<ChatCompletionChoice> choices;
+            try (ProviderRateLimiter.Permit permit = rateLimiter.acquire(ProviderRateLimiter.OPENAI, modelName,
+                    estimateTokens(prompt))) {
+                choices = openAiService.createChatCompletion(request).getChoices();
+            }
+            if (choices == null || choices.isEmpty() || choices.get(0).getMessage() == null) {
                 logger.warn("Received empty or incomplete response from OpenAI.");
-                return "Error: Failed to get a valid response from LLM (empty or incomplete).";
+                throw new ProviderException(CHAT_ENDPOINT, "Empty or incomplete response from LLM", -1, false);
+            }
+            return choices.get(0).getMessage().getContent();
+        });
+        // logger.info("Received response from OpenAI: {}", answer);
+        completionCache.put(cacheKey, modelName, answer);
+        return answer;
+    }
+
+    /**
+     * Streams a chat completion, handing every content delta to {@code onToken}
+     * as it arrives. After each delta {@code stopWhen} is tested against the
+     * text accumulated so far; once it returns true the stream is cancelled and
+     * the text received up to that point is returned. Only answers that
+     * completed naturally are stored in the completion cache; a cached answer
+     * is returned (and passed to {@code onToken}) without streaming.
+     *
+     * @param prompt    The user prompt.
+     * @param modelName The model to use.
+     * @param onToken   Receives content deltas, may be null.
+     * @param stopWhen  Early-exit predicate (see {@link StreamStops}), may be null.
+     * @return The accumulated answer, possibly cut where the predicate fired.
+     * @throws ProviderException When the stream failed. A stream that already
+     *                           emitted tokens is not retried.
+     */
+    public String streamAnswer(String prompt, String modelName, Consumer<String> onToken,
+            Predicate<String> stopWhen) {
+        if (prompt == null || prompt.isEmpty()) {
+            logger.warn("Prompt for OpenAI is empty.");
+            throw new IllegalArgumentException("Error: Prompt is empty.");
+        }
+
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .model(modelName)
+                .messages(Collections.singletonList(new ChatMessage(USER.value(), prompt)))
+                .stream(true)
+                .build();
+
+        String cacheKey = cacheKey(request, prompt);
+        Optional<String> cached = completionCache.get(cacheKey);
+        if (cached.isPresent()) {
+            if (onToken != null) {
+                onToken.accept(cached.get());
+            }
+            return cached.get();
+        }
+
+        StringBuilder answer = new StringBuilder();
+        AtomicBoolean stoppedEarly = new AtomicBoolean();
+        long start = System.nanoTime();
+        resilience.call(CHAT_ENDPOINT, true, () -> {
+            answer.setLength(0);
+            try (ProviderRateLimiter.Permit permit = rateLimiter.acquire(ProviderRateLimiter.OPENAI, modelName,
+                    estimateTokens(prompt))) {
+                openAiService.streamChatCompletion(request)
+                        .takeUntil(chunk -> {
+                            String delta = chunk.getChoices() == null || chunk.getChoices().isEmpty()
+                                    || chunk.getChoices().get(0).getMessage() == null
+                                            ? null
+                                            : chunk.getChoices().get(0).getMessage().getContent();
+                            if (delta == null || delta.isEmpty()) {
+                                return false;
+                            }
+                            answer.append(delta);
+                            if (onToken != null) {
+                                onToken.accept(delta);
+                            }
+                            if (stopWhen != null && stopWhen.test(answer.toString())) {
+                                stoppedEarly.set(true);
+                                return true;
+                            }
+                            return false;
+                        })
+                        .ignoreElements()
+                        .blockingAwait();
+            } catch (RuntimeException e) {
+                if (answer.length() > 0) {
+                    // Tokens already reached the caller, a retry would repeat them
+                    throw new ProviderException(CHAT_ENDPOINT, "Stream failed after partial output: "
+                            + e.getMessage(), -1, false, e);
+                }
+                throw e;
             }
-        } catch (OpenAiHttpException e) {
-            logger.error("HTTP error during communication with OpenAI: {}", e.getMessage(), e);
-            return "Error: Communication issues with LLM (HTTP: " + e.statusCode + ")";
-        } catch (Exception e) {
-            logger.error("Unexpected error during communication with OpenAI API", e);
-            return "Error: Internal problem while querying LLM.";
+            return null;
+        });
+
+        String result = answer.toString();
+        logger.debug("Streamed {} characters from {} in {} ms{}", result.length(), modelName,
+                (System.nanoTime() - start) / 1_000_000, stoppedEarly.get() ? " (stopped early)" : "");
+        if (!stoppedEarly.get()) {
+            completionCache.put(cacheKey, modelName, result);
         }
+        return result;
+    }
+
+    /**
+     * Completion cache key covering every request parameter except the stream
+     * flag, so requests with different sampling settings never share an entry.
+     */
+    private static String cacheKey(ChatCompletionRequest request, String prompt) {
+        String parameters = "temperature=" + request.getTemperature()
+                + ";top_p=" + request.getTopP()
+                + ";n=" + request.getN()
+                + ";max_tokens=" + request.getMaxTokens()
+                + ";presence_penalty=" + request.getPresencePenalty()
+                + ";frequency_penalty=" + request.getFrequencyPenalty()
+                + ";stop=" + request.getStop()
+                + ";logit_bias=" + request.getLogitBias()
+                + ";user=" + request.getUser();
+        return CompletionCache.createKey(request.getModel(), prompt, parameters);
     }
 
+    /**
+     * Streams an answer with the default model and returns as soon as
+     * {@code stopWhen} fires.
+     *
+     * @see #streamAnswer(String, String, Consumer, Predicate)
+     */
+    public String getAnswerUntil(String prompt, Predicate<String> stopWhen) {
+        return streamAnswer(prompt, defaultModel, null, stopWhen);
+    }
+
+    /**
+     * @see #streamAnswer(String, String, Consumer, Predicate)
+     */
+    public String getAnswerUntil(String prompt, String modelName, Predicate<String> stopWhen) {
+        return streamAnswer(prompt, modelName, null, stopWhen);
+    }
+
+    /**
+     * Non-blocking {@link #getAnswer(String, String)} running under the shared
+     * OpenAI concurrency budget with the default deadline.
+     *
+     * @param prompt    The user prompt.
+     * @param modelName The model to use.
+     * @return Future of the model answer; cancelling it aborts the request.
+     */
+    public CompletableFuture<String> getAnswerAsync(String prompt, String modelName) {
+        return providerCallExecutor.submit(ProviderCallExecutor.OPENAI, () -> getAnswer(prompt, modelName));
+    }
+
+    /**
+     * @param deadline Maximum time for waiting in the budget queue plus the request.
+     * @see #getAnswerAsync(String, String)
+     */
+    public CompletableFuture<String> getAnswerAsync(String prompt, String modelName, Duration deadline) {
+        return providerCallExecutor.submit(ProviderCallExecutor.OPENAI, deadline, () -> getAnswer(prompt, modelName));
+    }
+
+    /**
+     * Non-blocking {@link #getAnswerWithImageRequestPayload(OpenAiImagePromptRequestDto, String)}
+     * running under the shared OpenAI concurrency budget.
+     *
+     * @param requestDto The vision request payload.
+     * @param modelName  The model to use.
+     * @param deadline   Maximum time for waiting in the budget queue plus the request.
+     * @return Future of the model answer; cancelling it aborts the request.
+     */
+    public CompletableFuture<String> getAnswerWithImageRequestPayloadAsync(OpenAiImagePromptRequestDto requestDto,
+            String modelName, Duration deadline) {
+        return providerCallExecutor.submit(ProviderCallExecutor.OPENAI, deadline,
+                () -> getAnswerWithImageRequestPayload(requestDto, modelName));
+    }
+
+    /**
+     * Sends a vision (image + text) request to the chat completions API.
+     *
+     * @param requestDto The vision request payload.
+     * @param modelName  The model to use.
+     * @return The trimmed model answer.
+     * @throws ProviderException When the request failed after retries or the answer was empty.
+     */
     public String getAnswerWithImageRequestPayload(OpenAiImagePromptRequestDto requestDto, String modelName) {
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-
-            requestDto.setModel(modelName);
-
-            HttpEntity<OpenAiImagePromptRequestDto> entity = new HttpEntity<>(requestDto, headers);
-            
-            logger.info("Sending vision request to OpenAI with model: {}", modelName);
-
-            ResponseEntity<OpenAiVisionResponseDto> response = restTemplate.postForEntity(
-                    openAiChatCompletionsUrl, entity, OpenAiVisionResponseDto.class);
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                OpenAiVisionResponseDto responseBody = response.getBody();
-                logger.info("Received successful response from OpenAI Vision API");
-                
-                if (responseBody.getChoices() != null && !responseBody.getChoices().isEmpty()) {
-                    OpenAiVisionResponseDto.Message message = responseBody.getChoices().get(0).getMessage();
-                    if (message != null && message.getContent() != null) {
-                        String content = message.getContent();
-                        logger.info("Received vision response from OpenAI: {}", content);
-                        return content.trim();
-                    } else {
-                        logger.error("Message or content is null in OpenAI response");
-                    }
-                } else {
-                    logger.error("No choices in OpenAI response");
-                }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(apiKey);
+
+        requestDto.setModel(modelName);
+
+        HttpEntity<OpenAiImagePromptRequestDto> entity = new HttpEntity<>(requestDto, headers);
+
+        logger.info("Sending vision request to OpenAI with model: {}", modelName);
+
+        RestTemplate restTemplate = httpClientRegistry.get(HttpClientRegistry.OPENAI);
+        OpenAiVisionResponseDto responseBody = resilience.call(VISION_ENDPOINT, true, () -> {
+            try (ProviderRateLimiter.Permit permit = rateLimiter.acquire(ProviderRateLimiter.OPENAI, modelName,
+                    VISION_REQUEST_TOKEN_ESTIMATE)) {
+                return restTemplate.postForEntity(openAiChatCompletionsUrl, entity, OpenAiVisionResponseDto.class)
+                        .getBody();
             }
-            logger.error("OpenAI vision API call failed: status={}, body={}", 
-                       response.getStatusCode(), response.getBody());
-            return "Error: Communication issues with LLM (vision, HTTP: " + response.getStatusCode() + ")";
-        } catch (Exception e) {
-            logger.error("Error during OpenAI vision API call: {}", e.getMessage(), e);
-            return "Error: Internal problem while querying LLM (vision).";
+        });
+        logger.info("Received successful response from OpenAI Vision API");
+
+        if (responseBody == null || responseBody.getChoices() == null || responseBody.getChoices().isEmpty()) {
+            logger.error("No choices in OpenAI response");
+            throw new ProviderException(VISION_ENDPOINT, "No choices in response", -1, false);
         }
+        OpenAiVisionResponseDto.Message message = responseBody.getChoices().get(0).getMessage();
+        if (message == null || message.getContent() == null) {
+            logger.error("Message or content is null in OpenAI response");
+            throw new ProviderException(VISION_ENDPOINT, "Empty message in response", -1, false);
+        }
+        String content = message.getContent();
+        logger.info("Received vision response from OpenAI: {}", content);
+        return content.trim();
     }
 
     public DallEImageResponseDto generateImage(String prompt, String modelName) {
@@ -136,19 +344,19 @@ public class OpenAiAdapter {
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.setBearerAuth(apiKey);
         HttpEntity<DallEImageRequestDto> entity = new HttpEntity<>(requestDto, headers);
-        try {
-            ResponseEntity<DallEImageResponseDto> response = restTemplate.postForEntity(
-                    openAiImageUrl, entity, DallEImageResponseDto.class);
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                return response.getBody();
-            } else {
-                logger.error("OpenAI image API call failed: {}", response.getBody());
-                throw new RuntimeException("OpenAI image API call failed: " + response.getStatusCode());
+        RestTemplate restTemplate = httpClientRegistry.get(HttpClientRegistry.OPENAI);
+
+        // Not idempotent: every successful call generates (and bills) a new image
+        DallEImageResponseDto response = resilience.call(IMAGES_ENDPOINT, false, () -> {
+            try (ProviderRateLimiter.Permit permit = rateLimiter.acquire(ProviderRateLimiter.OPENAI, modelName, 0)) {
+                return restTemplate.postForEntity(openAiImageUrl, entity, DallEImageResponseDto.class).getBody();
             }
-        } catch (Exception e) {
-            logger.error("Error during OpenAI image API call: {}", e.getMessage(), e);
-            throw new RuntimeException("Error during OpenAI image API call: " + e.getMessage(), e);
+        });
+        if (response == null) {
+            logger.error("OpenAI image API returned an empty body");
+            throw new ProviderException(IMAGES_ENDPOINT, "Empty response body", -1, false);
         }
+        return response;
     }
 
     /**
@@ -167,32 +375,152 @@ public class OpenAiAdapter {
         logger.info("Creating embedding for text (model: {}): \"{}\"", model, 
                     text.length() > 100 ? text.substring(0, 100) + "..." : text);
 
+        EmbeddingRequest request = EmbeddingRequest.builder()
+                .model(model)
+                .input(Collections.singletonList(text))
+                .build();
+
+        EmbeddingResult result = resilience.call(EMBEDDINGS_ENDPOINT, true, () -> {
+            try (ProviderRateLimiter.Permit permit = rateLimiter.acquire(ProviderRateLimiter.OPENAI, model,
+                    estimateTokens(text))) {
+                return openAiService.createEmbeddings(request);
+            }
+        });
+
+        if (result == null || result.getData() == null || result.getData().isEmpty()) {
+            logger.warn("Received empty embedding result from OpenAI.");
+            throw new ProviderException(EMBEDDINGS_ENDPOINT, "Empty embedding result", -1, false);
+        }
+        List<Float> embedding = result.getData().get(0).getEmbedding()
+                .stream()
+                .map(Double::floatValue)
+                .collect(Collectors.toList());
+
+        logger.info("Created embedding with {} dimensions", embedding.size());
+        return embedding;
+    }
+
+    /**
+     * Non-blocking {@link #createEmbedding(String, String)} running under the
+     * shared OpenAI concurrency budget.
+     *
+     * @param text     The text to create embeddings for.
+     * @param model    The embedding model to use.
+     * @param deadline Maximum time for waiting in the budget queue plus the request.
+     * @return Future of the embedding vector; cancelling it aborts the request.
+     */
+    public CompletableFuture<List<Float>> createEmbeddingAsync(String text, String model, Duration deadline) {
+        return providerCallExecutor.submit(ProviderCallExecutor.OPENAI, deadline, () -> createEmbedding(text, model));
+    }
+
+    /**
+     * Creates embeddings for many texts at once. Inputs are split into batches
+     * limited by input count and an estimated token budget, batches are sent
+     * concurrently under the shared OpenAI concurrency budget and the vectors are returned as primitive arrays in input order.
+     *
+     * @param texts The texts to create embeddings for (must not contain empty entries).
+     * @param model The embedding model to use (e.g., "text-embedding-3-large").
+     * @return One float[] per input text, in the same order as {@code texts}.
+     */
+    public List<float[]> createEmbeddings(List<String> texts, String model) {
+        if (texts == null || texts.isEmpty()) {
+            return List.of();
+        }
+        for (String text : texts) {
+            if (text == null || text.isEmpty()) {
+                logger.warn("Text for embedding is empty.");
+                throw new IllegalArgumentException("Error: Text for embedding is empty.");
+            }
+        }
+
+        // Step 1. Split inputs into provider-sized batches
+        List<List<String>> batches = splitIntoEmbeddingBatches(texts);
+        logger.info("Creating {} embeddings (model: {}) in {} batches", texts.size(), model, batches.size());
+
+        // Step 2. Send batches concurrently
+        List<CompletableFuture<List<float[]>>> futures = batches.stream()
+                .map(batch -> providerCallExecutor.submit(ProviderCallExecutor.OPENAI,
+                        () -> createEmbeddingBatch(batch, model)))
+                .toList();
+
+        // Step 3. Join results preserving input order
+        List<float[]> embeddings = new ArrayList<>(texts.size());
         try {
-            EmbeddingRequest request = EmbeddingRequest.builder()
-                    .model(model)
-                    .input(Collections.singletonList(text))
-                    .build();
-
-            EmbeddingResult result = openAiService.createEmbeddings(request);
-            
-            if (result != null && result.getData() != null && !result.getData().isEmpty()) {
-                List<Float> embedding = result.getData().get(0).getEmbedding()
-                        .stream()
-                        .map(Double::floatValue)
-                        .collect(Collectors.toList());
-                
-                logger.info("Created embedding with {} dimensions", embedding.size());
-                return embedding;
-            } else {
-                logger.warn("Received empty embedding result from OpenAI.");
-                throw new RuntimeException("Failed to get embedding from OpenAI.");
+            for (CompletableFuture<List<float[]>> future : futures) {
+                embeddings.addAll(future.join());
+            }
+        } catch (CompletionException | CancellationException e) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            logger.error("Error during batched embedding creation: {}", cause.getMessage(), cause);
+            if (cause instanceof ProviderException providerException) {
+                throw providerException;
+            }
+            throw new RuntimeException("Error creating embeddings: " + cause.getMessage(), cause);
+        }
+
+        logger.info("Created {} embeddings with {} dimensions", embeddings.size(),
+                embeddings.isEmpty() ? 0 : embeddings.get(0).length);
+        return embeddings;
+    }
+
+    private List<float[]> createEmbeddingBatch(List<String> batch, String model) {
+        EmbeddingRequest request = EmbeddingRequest.builder()
+                .model(model)
+                .input(batch)
+                .build();
+
+        int batchTokens = batch.stream().mapToInt(this::estimateTokens).sum();
+        EmbeddingResult result = resilience.call(EMBEDDINGS_ENDPOINT, true, () -> {
+            try (ProviderRateLimiter.Permit permit = rateLimiter.acquire(ProviderRateLimiter.OPENAI, model,
+                    batchTokens)) {
+                return openAiService.createEmbeddings(request);
+            }
+        });
+        if (result == null || result.getData() == null || result.getData().size() != batch.size()) {
+            throw new ProviderException(EMBEDDINGS_ENDPOINT, "Expected " + batch.size() + " embeddings, got "
+                    + (result == null || result.getData() == null ? 0 : result.getData().size()), -1, false);
+        }
+
+        float[][] vectors = new float[batch.size()][];
+        for (Embedding embedding : result.getData()) {
+            List<Double> values = embedding.getEmbedding();
+            float[] vector = new float[values.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = values.get(i).floatValue();
+            }
+            vectors[embedding.getIndex()] = vector;
+        }
+        return List.of(vectors);
+    }
+
+    private List<List<String>> splitIntoEmbeddingBatches(List<String> texts) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int currentTokens = 0;
+
+        for (String text : texts) {
+            int tokens = estimateTokens(text);
+            boolean full = current.size() >= embeddingBatchMaxInputs
+                    || currentTokens + tokens > embeddingBatchMaxTokens;
+            if (!current.isEmpty() && full) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
             }
-        } catch (OpenAiHttpException e) {
-            logger.error("HTTP error during embedding creation: {}", e.getMessage(), e);
-            throw new RuntimeException("HTTP error during embedding creation: " + e.statusCode, e);
-        } catch (Exception e) {
-            logger.error("Unexpected error during embedding creation", e);
-            throw new RuntimeException("Error creating embedding: " + e.getMessage(), e);
+            current.add(text);
+            currentTokens += tokens;
         }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    /**
+     * Rough token estimate (~4 characters per token) used only for batching.
+     */
+    private int estimateTokens(String text) {
+        return text.length() / 4 + 1;
     }
-}
\ No newline at end of file
+}
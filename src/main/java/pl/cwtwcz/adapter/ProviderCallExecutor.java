@@ -0,0 +1,146 @@
+package pl.cwtwcz.adapter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs blocking adapter calls on virtual threads under a shared concurrency
+ * budget per provider.
+ *
+ * Every call gets a deadline covering both the wait for a budget permit and
+ * the call itself. Cancelling the returned future, or hitting the deadline,
+ * interrupts the virtual thread, which aborts the blocking HTTP read.
+ * A budgeted task must not wait for another task of the same provider,
+ * otherwise a full budget deadlocks.
+ */
+@Component
+public class ProviderCallExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderCallExecutor.class);
+
+    public static final String OPENAI = "openai";
+    public static final String GROQ = "groq";
+
+    @Value("${custom.async.openai.max-concurrency:16}")
+    private int openAiMaxConcurrency;
+
+    @Value("${custom.async.groq.max-concurrency:4}")
+    private int groqMaxConcurrency;
+
+    @Value("${custom.async.default-deadline:300s}")
+    private Duration defaultDeadline;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private Map<String, Semaphore> budgets;
+
+    @PostConstruct
+    public void init() {
+        budgets = Map.of(
+                OPENAI, new Semaphore(openAiMaxConcurrency, true),
+                GROQ, new Semaphore(groqMaxConcurrency, true));
+        logger.info("Provider concurrency budgets: {}={}, {}={}, default deadline: {}",
+                OPENAI, openAiMaxConcurrency, GROQ, groqMaxConcurrency, defaultDeadline);
+    }
+
+    /**
+     * Submits a provider call with the default deadline.
+     *
+     * @param provider The provider whose budget the call uses ({@link #OPENAI}, {@link #GROQ}).
+     * @param call     The blocking call.
+     * @return Future completed with the result, the call's exception or a TimeoutException.
+     */
+    public <T> CompletableFuture<T> submit(String provider, Callable<T> call) {
+        return submit(provider, defaultDeadline, call);
+    }
+
+    /**
+     * Submits a provider call.
+     *
+     * @param provider The provider whose budget the call uses ({@link #OPENAI}, {@link #GROQ}).
+     * @param deadline Maximum time for waiting for a permit plus running the call.
+     * @param call     The blocking call.
+     * @return Future completed with the result, the call's exception or a TimeoutException.
+     */
+    public <T> CompletableFuture<T> submit(String provider, Duration deadline, Callable<T> call) {
+        Semaphore budget = budgets.get(provider);
+        if (budget == null) {
+            throw new IllegalArgumentException("Unknown provider: " + provider);
+        }
+        return run(provider, budget, deadline, call);
+    }
+
+    /**
+     * Submits a blocking call that is not an LLM provider call (downloads,
+     * task API requests) on a virtual thread, without a budget.
+     *
+     * @param call The blocking call.
+     * @return Future completed with the result, the call's exception or a TimeoutException.
+     */
+    public <T> CompletableFuture<T> submitIo(Callable<T> call) {
+        return run("io", null, defaultDeadline, call);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<T> run(String provider, Semaphore budget, Duration deadline, Callable<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+
+        Future<?> task = executor.submit(() -> {
+            boolean acquired = false;
+            try {
+                // Step 1. Wait for a budget permit within the deadline
+                if (budget != null) {
+                    acquired = budget.tryAcquire(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (!acquired) {
+                        result.completeExceptionally(new TimeoutException(
+                                "No " + provider + " concurrency permit within " + deadline));
+                        return;
+                    }
+                }
+                // Step 2. Run the call unless the caller gave up meanwhile
+                if (!result.isDone()) {
+                    result.complete(call.call());
+                }
+            } catch (InterruptedException e) {
+                result.completeExceptionally(new CancellationException("Interrupted " + provider + " call"));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                if (acquired) {
+                    budget.release();
+                }
+            }
+        });
+
+        // Step 3. Deadline and cancellation interrupt the running call
+        result.orTimeout(deadline.toNanos(), TimeUnit.NANOSECONDS)
+                .whenComplete((value, error) -> {
+                    if (error != null) {
+                        task.cancel(true);
+                    }
+                });
+        return result;
+    }
+}
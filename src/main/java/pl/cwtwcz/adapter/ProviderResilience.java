@@ -0,0 +1,198 @@
+package pl.cwtwcz.adapter;
+
+import com.theokanning.openai.OpenAiHttpException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import pl.cwtwcz.exception.ProviderException;
+import pl.cwtwcz.exception.ProviderUnavailableException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries and circuit breaking for outbound adapter calls.
+ *
+ * Transient failures (429, 5xx, 408, I/O errors and timeouts) of idempotent
+ * calls are retried with exponential backoff and full jitter. Every endpoint
+ * has its own circuit breaker: after a run of consecutive transient failures
+ * it opens and calls fail fast with {@link ProviderUnavailableException}
+ * until the open period ends, then a single probe call decides whether it
+ * closes again. Client errors (4xx) are not retried and do not open the
+ * breaker. All failures surface as {@link ProviderException}.
+ */
+@Component
+public class ProviderResilience {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderResilience.class);
+
+    @Value("${custom.resilience.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${custom.resilience.initial-backoff:500ms}")
+    private Duration initialBackoff;
+
+    @Value("${custom.resilience.max-backoff:20s}")
+    private Duration maxBackoff;
+
+    @Value("${custom.resilience.breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${custom.resilience.breaker.open-duration:30s}")
+    private Duration openDuration;
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * Runs a provider call with retries (when idempotent) behind the
+     * endpoint's circuit breaker.
+     *
+     * @param endpoint   Breaker key, e.g. "openai:chat".
+     * @param idempotent Whether the call may be repeated safely.
+     * @param call       The call.
+     * @return The call result.
+     * @throws ProviderException When the call failed for good or the breaker is open.
+     */
+    public <T> T call(String endpoint, boolean idempotent, Callable<T> call) {
+        CircuitBreaker breaker = breakers.computeIfAbsent(endpoint, e -> new CircuitBreaker());
+        int attempts = idempotent ? Math.max(1, maxAttempts) : 1;
+
+        for (int attempt = 1; ; attempt++) {
+            // Step 1. Fail fast while the provider is down
+            long retryIn = breaker.tryAcquire();
+            if (retryIn > 0) {
+                throw new ProviderUnavailableException(endpoint, retryIn);
+            }
+
+            // Step 2. Call and classify the outcome
+            ProviderException failure;
+            try {
+                T result = call.call();
+                breaker.onSuccess();
+                return result;
+            } catch (CancellationException e) {
+                breaker.onIgnored();
+                throw e;
+            } catch (Exception e) {
+                failure = classify(endpoint, e);
+            }
+            if (failure.isRetryable()) {
+                if (breaker.onFailure()) {
+                    logger.warn("Circuit for {} opened for {} after {} consecutive failures", endpoint,
+                            openDuration, failureThreshold);
+                }
+            } else {
+                breaker.onIgnored();
+            }
+            if (!failure.isRetryable() || attempt >= attempts) {
+                throw failure;
+            }
+
+            // Step 3. Back off with full jitter before the next attempt
+            long cap = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+            long sleep = ThreadLocalRandom.current().nextLong(cap + 1);
+            logger.warn("Attempt {}/{} of {} failed ({}), retrying in {} ms", attempt, attempts, endpoint,
+                    failure.getMessage(), sleep);
+            try {
+                Thread.sleep(sleep);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while backing off " + endpoint);
+            }
+        }
+    }
+
+    private ProviderException classify(String endpoint, Exception e) {
+        if (e instanceof ProviderException providerException) {
+            return providerException;
+        }
+        if (e instanceof OpenAiHttpException httpException) {
+            return new ProviderException(endpoint, "HTTP " + httpException.statusCode + " " + e.getMessage(),
+                    httpException.statusCode, isRetryableStatus(httpException.statusCode), e);
+        }
+        if (e instanceof RestClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            return new ProviderException(endpoint, "HTTP " + status + " " + responseException.getStatusText(),
+                    status, isRetryableStatus(status), e);
+        }
+        if (e instanceof ResourceAccessException || hasIoCause(e)) {
+            return new ProviderException(endpoint, "I/O error: " + e.getMessage(), -1, true, e);
+        }
+        return new ProviderException(endpoint, e.getMessage(), -1, false, e);
+    }
+
+    private static boolean isRetryableStatus(int status) {
+        return status == 408 || status == 429 || status >= 500;
+    }
+
+    private static boolean hasIoCause(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Consecutive-failure breaker: CLOSED -> OPEN after the threshold,
+     * OPEN -> HALF_OPEN after the open period (one probe), probe success
+     * closes it, probe failure opens it again.
+     */
+    private final class CircuitBreaker {
+
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean probeInFlight;
+
+        /**
+         * @return 0 when the call may proceed, otherwise millis until the next probe.
+         */
+        synchronized long tryAcquire() {
+            if (consecutiveFailures < failureThreshold) {
+                return 0;
+            }
+            long now = System.currentTimeMillis();
+            if (now < openUntil) {
+                return openUntil - now;
+            }
+            if (probeInFlight) {
+                return Math.max(1, openDuration.toMillis() / 10);
+            }
+            probeInFlight = true;
+            return 0;
+        }
+
+        synchronized void onSuccess() {
+            consecutiveFailures = 0;
+            probeInFlight = false;
+        }
+
+        /**
+         * @return True when this failure opened the circuit.
+         */
+        synchronized boolean onFailure() {
+            boolean wasProbe = probeInFlight;
+            probeInFlight = false;
+            consecutiveFailures++;
+            if (wasProbe || consecutiveFailures == failureThreshold) {
+                openUntil = System.currentTimeMillis() + openDuration.toMillis();
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void onIgnored() {
+            probeInFlight = false;
+        }
+    }
+}
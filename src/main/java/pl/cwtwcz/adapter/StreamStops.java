@@ -0,0 +1,63 @@
+package pl.cwtwcz.adapter;
+
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/**
+ * Ready-made early-exit predicates for {@link OpenAiAdapter#streamAnswer}.
+ * Each predicate is tested against the text accumulated so far.
+ */
+public final class StreamStops {
+
+    private StreamStops() {
+    }
+
+    /**
+     * Stops once the answer starts with one of the given words (case
+     * insensitive), e.g. TAK/NIE or CORRECT/INCORRECT decisions. A word that is
+     * a prefix of another (CORRECT vs INCORRECT is fine, YES vs YESTERDAY is
+     * not) only matches once it is followed by a non-letter or the stream ends.
+     *
+     * @param words The decision words.
+     */
+    public static Predicate<String> startsWithAnyOf(String... words) {
+        return text -> {
+            String normalized = text.stripLeading().toUpperCase(Locale.ROOT);
+            for (String word : words) {
+                String upper = word.toUpperCase(Locale.ROOT);
+                if (!normalized.startsWith(upper)) {
+                    continue;
+                }
+                boolean prefixOfOther = false;
+                for (String other : words) {
+                    if (other.length() > word.length() && other.toUpperCase(Locale.ROOT).startsWith(upper)) {
+                        prefixOfOther = true;
+                        break;
+                    }
+                }
+                if (!prefixOfOther || (normalized.length() > upper.length()
+                        && !Character.isLetter(normalized.charAt(upper.length())))) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * Stops as soon as any non-blank text arrived, for single-token answers such as "1"/"0".
+     */
+    public static Predicate<String> firstToken() {
+        return text -> !text.isBlank();
+    }
+
+    /**
+     * Stops once the first non-blank line is complete.
+     */
+    public static Predicate<String> firstLine() {
+        return text -> {
+            String stripped = text.stripLeading();
+            return !stripped.isEmpty() && stripped.indexOf('\n') > 0;
+        };
+    }
+}
@@ -0,0 +1,278 @@
+package pl.cwtwcz.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+
+import pl.cwtwcz.service.DatabaseQueryService;
+import pl.cwtwcz.service.DatabaseService;
+import pl.cwtwcz.service.WriteBehindService;
+import pl.cwtwcz.utils.HashUtils;
+import pl.cwtwcz.utils.StringUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed store for derived artifacts: transcripts of audio files,
+ * vision/OCR descriptions of images, rendered PDF pages.
+ *
+ * An artifact is keyed by the hash of its source bytes plus a derivation
+ * string naming everything else that influences the result (model, language,
+ * prompt hash, DPI...), see {@link #derivation(String, Object...)}. Files live
+ * in two-level sharded directories under custom.artifacts.dir and are written
+ * atomically; a SQLite index next to them tracks size and last access so the
+ * store can be trimmed to custom.artifacts.max-bytes (least recently used
+ * first). Setting custom.artifacts.dir to an empty value disables the store,
+ * every lookup then misses.
+ */
+@RequiredArgsConstructor
+@Service
+public class ArtifactStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactStore.class);
+
+    private static final String INDEX_FILE = "index.db";
+    private static final int EVICTION_BATCH = 64;
+
+    @Value("${custom.artifacts.dir:cache/artifacts}")
+    private String artifactsDir;
+
+    @Value("${custom.artifacts.max-bytes:1073741824}")
+    private long maxBytes;
+
+    private final DatabaseService databaseService;
+    private final DatabaseQueryService databaseQueryService;
+    private final WriteBehindService writeBehindService;
+
+    private volatile boolean initialized;
+
+    /**
+     * Writes an artifact's content to the given (temporary) file.
+     */
+    @FunctionalInterface
+    public interface ArtifactWriter {
+        void write(Path target) throws IOException;
+    }
+
+    /**
+     * Builds a derivation string, e.g. {@code transcript(groq,whisper-large-v3,pl)}.
+     *
+     * @param kind       What is derived (transcript, vision, pdf-page...).
+     * @param parameters Everything else that changes the result.
+     */
+    public static String derivation(String kind, Object... parameters) {
+        StringJoiner joiner = new StringJoiner(",", kind + "(", ")");
+        for (Object parameter : parameters) {
+            joiner.add(String.valueOf(parameter));
+        }
+        return joiner.toString();
+    }
+
+    public boolean isEnabled() {
+        return StringUtils.isNotEmpty(artifactsDir);
+    }
+
+    /**
+     * Looks up an artifact file.
+     *
+     * @param sourceHash SHA-256 of the source bytes.
+     * @param derivation Derivation created with {@link #derivation(String, Object...)}.
+     * @return Path of the stored artifact, or empty on a miss.
+     */
+    public Optional<Path> find(String sourceHash, String derivation) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        try {
+            ensureInitialized();
+            String key = artifactKey(sourceHash, derivation);
+            Object fileName = databaseService.executeSingleValue(indexPath(),
+                    databaseQueryService.selectArtifactFileName(), key);
+            if (fileName == null) {
+                return Optional.empty();
+            }
+            Path file = root().resolve((String) fileName);
+            if (!Files.exists(file)) {
+                databaseService.executeUpdate(indexPath(), databaseQueryService.deleteArtifact(), key);
+                return Optional.empty();
+            }
+            writeBehindService.enqueue(indexPath(), databaseQueryService.touchArtifact(),
+                    System.currentTimeMillis(), key);
+            return Optional.of(file);
+        } catch (Exception e) {
+            logger.warn("Artifact lookup failed, treating as miss: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores an artifact. The writer fills a temporary file which is then renamed into place.
+     *
+     * @param sourceHash SHA-256 of the source bytes.
+     * @param derivation Derivation created with {@link #derivation(String, Object...)}.
+     * @param extension  File extension including the dot (".txt", ".png").
+     * @param writer     Produces the artifact content.
+     * @return Path of the stored artifact.
+     */
+    public Path put(String sourceHash, String derivation, String extension, ArtifactWriter writer)
+            throws IOException {
+        ensureInitialized();
+        String key = artifactKey(sourceHash, derivation);
+        String fileName = key.substring(0, 2) + "/" + key.substring(2, 4) + "/" + key + extension;
+        Path file = root().resolve(fileName);
+        Files.createDirectories(file.getParent());
+
+        // Step 1. Write next to the target and rename atomically
+        Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+        try {
+            writer.write(temp);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        // Step 2. Record in the index and trim the store
+        long now = System.currentTimeMillis();
+        databaseService.executeUpdate(indexPath(), databaseQueryService.insertOrReplaceArtifact(),
+                key, sourceHash, derivation, fileName, Files.size(file), now, now);
+        evictIfNeeded();
+        logger.debug("Stored artifact {} for {}", fileName, derivation);
+        return file;
+    }
+
+    /**
+     * @return The stored text artifact, or empty on a miss.
+     */
+    public Optional<String> findText(String sourceHash, String derivation) {
+        return find(sourceHash, derivation).flatMap(file -> {
+            try {
+                return Optional.of(Files.readString(file));
+            } catch (IOException e) {
+                logger.warn("Could not read artifact {}: {}", file, e.getMessage());
+                return Optional.empty();
+            }
+        });
+    }
+
+    /**
+     * Stores a text artifact (UTF-8).
+     */
+    public void putText(String sourceHash, String derivation, String text) throws IOException {
+        put(sourceHash, derivation, ".txt", target -> Files.writeString(target, text, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the stored text artifact or computes and stores it. Failures of the
+     * store itself are logged and never fail the computation.
+     *
+     * @param sourceHash SHA-256 of the source bytes.
+     * @param derivation Derivation created with {@link #derivation(String, Object...)}.
+     * @param compute    Produces the artifact on a miss (e.g. an LLM call).
+     */
+    public String getOrComputeText(String sourceHash, String derivation, Supplier<String> compute) {
+        Optional<String> stored = findText(sourceHash, derivation);
+        if (stored.isPresent()) {
+            logger.info("Artifact hit: {} ({}...)", derivation, sourceHash.substring(0, 12));
+            return stored.get();
+        }
+        String text = compute.get();
+        if (isEnabled() && text != null) {
+            try {
+                putText(sourceHash, derivation, text);
+            } catch (Exception e) {
+                logger.warn("Could not store artifact {}: {}", derivation, e.getMessage());
+            }
+        }
+        return text;
+    }
+
+    private void evictIfNeeded() {
+        Object total = databaseService.executeSingleValue(indexPath(),
+                databaseQueryService.selectArtifactsTotalSize());
+        long size = total != null ? ((Number) total).longValue() : 0;
+        if (size <= maxBytes) {
+            return;
+        }
+
+        // Least recently used first, in small batches until under the cap
+        writeBehindService.flush(indexPath());
+        int removed = 0;
+        while (size > maxBytes) {
+            List<Object[]> victims = new ArrayList<>();
+            databaseService.queryForEach(indexPath(), databaseQueryService.selectLeastRecentlyUsedArtifacts(),
+                    EVICTION_BATCH, rs -> victims.add(new Object[] { rs.getString(1), rs.getString(2), rs.getLong(3) }),
+                    EVICTION_BATCH);
+            if (victims.isEmpty()) {
+                break;
+            }
+            List<Object[]> deletedKeys = new ArrayList<>();
+            for (Object[] victim : victims) {
+                if (size <= maxBytes) {
+                    break;
+                }
+                try {
+                    Files.deleteIfExists(root().resolve((String) victim[1]));
+                } catch (IOException e) {
+                    logger.warn("Could not delete artifact file {}: {}", victim[1], e.getMessage());
+                }
+                deletedKeys.add(new Object[] { victim[0] });
+                size -= (Long) victim[2];
+            }
+            databaseService.executeBatch(indexPath(), databaseQueryService.deleteArtifact(), deletedKeys);
+            removed += deletedKeys.size();
+        }
+        logger.info("Artifact store eviction removed {} artifacts ({} bytes left, cap {})", removed, size, maxBytes);
+    }
+
+    private void ensureInitialized() {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Artifact store is disabled (custom.artifacts.dir is not set)");
+        }
+        if (initialized) {
+            return;
+        }
+        synchronized (this) {
+            if (initialized) {
+                return;
+            }
+            try {
+                Files.createDirectories(root());
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to create artifact directory: " + artifactsDir, e);
+            }
+            databaseService.executeDDL(indexPath(), databaseQueryService.createArtifactIndexTable());
+            initialized = true;
+            logger.info("Artifact store ready: {} (max {} bytes)", root(), maxBytes);
+        }
+    }
+
+    private Path root() {
+        return Paths.get(artifactsDir).toAbsolutePath();
+    }
+
+    private String indexPath() {
+        return root().resolve(INDEX_FILE).toString();
+    }
+
+    private static String artifactKey(String sourceHash, String derivation) {
+        return HashUtils.sha256Hex(sourceHash + '\u0000' + derivation);
+    }
+}
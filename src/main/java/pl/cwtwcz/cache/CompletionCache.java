@@ -0,0 +1,65 @@
+package pl.cwtwcz.cache;
+
+import pl.cwtwcz.utils.HashUtils;
+
+import java.util.Optional;
+
+/**
+ * Cache for LLM completions keyed by a content hash of the request.
+ *
+ * Implementations decide where the entries live (memory, disk, both) and how
+ * they expire. Error responses should never be stored.
+ */
+public interface CompletionCache {
+
+    /**
+     * Looks up a cached completion.
+     *
+     * @param key The content hash created with {@link #createKey(String, String, String)}.
+     * @return The cached completion or empty if missing or expired.
+     */
+    Optional<String> get(String key);
+
+    /**
+     * Stores a completion under the given key.
+     *
+     * @param key        The content hash of the request.
+     * @param model      The model that produced the completion (kept for diagnostics).
+     * @param completion The completion text.
+     */
+    void put(String key, String model, String completion);
+
+    /**
+     * Removes all entries from every tier.
+     */
+    void clear();
+
+    /**
+     * @return Snapshot of hit/miss counters.
+     */
+    CacheStats getStats();
+
+    /**
+     * Creates a stable cache key from everything that influences the completion.
+     *
+     * @param model      The model name.
+     * @param prompt     The full prompt sent to the model.
+     * @param parameters Serialized sampling parameters (temperature etc.), may be empty.
+     * @return Hex encoded SHA-256 hash.
+     */
+    static String createKey(String model, String prompt, String parameters) {
+        return HashUtils.sha256Hex(model + '\u0000' + prompt + '\u0000' + (parameters != null ? parameters : ""));
+    }
+
+    record CacheStats(long memoryHits, long diskHits, long misses, long puts, int memorySize) {
+
+        public long hits() {
+            return memoryHits + diskHits;
+        }
+
+        public double hitRatio() {
+            long total = hits() + misses;
+            return total == 0 ? 0.0 : (double) hits() / total;
+        }
+    }
+}
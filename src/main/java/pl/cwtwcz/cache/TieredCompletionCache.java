@@ -0,0 +1,207 @@
+package pl.cwtwcz.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+
+import pl.cwtwcz.service.DatabaseQueryService;
+import pl.cwtwcz.service.DatabaseService;
+import pl.cwtwcz.utils.StringUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier completion cache: a small in-memory LRU in front of a SQLite table.
+ *
+ * The disk tier is optional (disabled when no path is configured) and survives
+ * application restarts, so re-running a day task does not pay for identical
+ * prompts again. Both tiers honour the same TTL; the disk tier is additionally
+ * trimmed to a maximum number of entries (least recently used first).
+ * The cache is opt-in (custom.llm.cache.enabled=true).
+ */
+@RequiredArgsConstructor
+@Service
+public class TieredCompletionCache implements CompletionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TieredCompletionCache.class);
+
+    private static final int DISK_EVICTION_INTERVAL = 100;
+
+    @Value("${custom.llm.cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${custom.llm.cache.memory.max-entries:1000}")
+    private int memoryMaxEntries;
+
+    @Value("${custom.llm.cache.disk.path:}")
+    private String diskPath;
+
+    @Value("${custom.llm.cache.disk.max-entries:50000}")
+    private int diskMaxEntries;
+
+    @Value("${custom.llm.cache.ttl-hours:168}")
+    private long ttlHours;
+
+    private final DatabaseService databaseService;
+    private final DatabaseQueryService databaseQueryService;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+
+    private final Map<String, MemoryEntry> memory = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MemoryEntry> eldest) {
+            return size() > memoryMaxEntries;
+        }
+    };
+
+    private volatile boolean diskInitialized;
+
+    @Override
+    public Optional<String> get(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+
+        // Step 1. Memory tier
+        synchronized (memory) {
+            MemoryEntry entry = memory.get(key);
+            if (entry != null) {
+                if (entry.createdAt >= expiryThreshold(now)) {
+                    memoryHits.incrementAndGet();
+                    return Optional.of(entry.completion);
+                }
+                memory.remove(key);
+            }
+        }
+
+        // Step 2. Disk tier
+        if (isDiskEnabled()) {
+            try {
+                ensureDiskInitialized();
+                Object value = databaseService.executeSingleValue(diskPath,
+                        databaseQueryService.selectCompletionCacheEntry(), key, expiryThreshold(now));
+                if (value != null) {
+                    String completion = (String) value;
+                    databaseService.executeUpdate(diskPath, databaseQueryService.touchCompletionCacheEntry(), now, key);
+                    putInMemory(key, completion, now);
+                    diskHits.incrementAndGet();
+                    return Optional.of(completion);
+                }
+            } catch (Exception e) {
+                logger.warn("Completion cache disk lookup failed, treating as miss: {}", e.getMessage());
+            }
+        }
+
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    @Override
+    public void put(String key, String model, String completion) {
+        if (!enabled || completion == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        putInMemory(key, completion, now);
+        long putCount = puts.incrementAndGet();
+
+        if (isDiskEnabled()) {
+            try {
+                ensureDiskInitialized();
+                databaseService.executeUpdate(diskPath, databaseQueryService.insertOrReplaceCompletionCacheEntry(),
+                        key, model, completion, now, now);
+                if (putCount % DISK_EVICTION_INTERVAL == 0) {
+                    evictDiskEntries(now);
+                }
+            } catch (Exception e) {
+                logger.warn("Completion cache disk write failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+        }
+        if (isDiskEnabled()) {
+            ensureDiskInitialized();
+            databaseService.executeUpdate(diskPath, databaseQueryService.deleteAllCompletionCacheEntries());
+        }
+        logger.info("Completion cache cleared");
+    }
+
+    @Override
+    public CacheStats getStats() {
+        int memorySize;
+        synchronized (memory) {
+            memorySize = memory.size();
+        }
+        return new CacheStats(memoryHits.get(), diskHits.get(), misses.get(), puts.get(), memorySize);
+    }
+
+    private void putInMemory(String key, String completion, long createdAt) {
+        synchronized (memory) {
+            memory.put(key, new MemoryEntry(completion, createdAt));
+        }
+    }
+
+    private long expiryThreshold(long now) {
+        return now - Duration.ofHours(ttlHours).toMillis();
+    }
+
+    private boolean isDiskEnabled() {
+        return StringUtils.isNotEmpty(diskPath);
+    }
+
+    private void ensureDiskInitialized() {
+        if (diskInitialized) {
+            return;
+        }
+        synchronized (this) {
+            if (diskInitialized) {
+                return;
+            }
+            try {
+                Path parent = Paths.get(diskPath).toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to create completion cache directory for: " + diskPath, e);
+            }
+            databaseService.executeDDL(diskPath, databaseQueryService.createCompletionCacheTable());
+            evictDiskEntries(System.currentTimeMillis());
+            diskInitialized = true;
+            logger.info("Completion cache disk tier ready: {} (ttl: {}h, max entries: {})",
+                    diskPath, ttlHours, diskMaxEntries);
+        }
+    }
+
+    private void evictDiskEntries(long now) {
+        int expired = databaseService.executeUpdate(diskPath,
+                databaseQueryService.deleteExpiredCompletionCacheEntries(), expiryThreshold(now));
+        int overflow = databaseService.executeUpdate(diskPath,
+                databaseQueryService.deleteLeastRecentlyUsedCompletionCacheEntries(), diskMaxEntries);
+        if (expired > 0 || overflow > 0) {
+            logger.info("Completion cache eviction removed {} expired and {} overflow entries", expired, overflow);
+        }
+    }
+
+    private record MemoryEntry(String completion, long createdAt) {
+    }
+}
@@ -0,0 +1,39 @@
+package pl.cwtwcz.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Connection pool settings per outbound destination (custom.http.pools.&lt;name&gt;.*).
+ * Pools that are not configured use the defaults below.
+ */
+@Data
+@ConfigurationProperties(prefix = "custom.http")
+public class HttpClientProperties {
+
+    private Map<String, Pool> pools = new LinkedHashMap<>();
+
+    @Data
+    public static class Pool {
+        /** Time allowed to establish the TCP/TLS connection. */
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        /** Maximum inactivity between two data packets. */
+        private Duration readTimeout = Duration.ofSeconds(180);
+        /** Maximum wait for the response to arrive. */
+        private Duration responseTimeout = Duration.ofSeconds(180);
+        /** Maximum wait for a free pooled connection. */
+        private Duration connectionRequestTimeout = Duration.ofSeconds(30);
+        /** Idle keep-alive connections are closed after this time. */
+        private Duration idleTimeout = Duration.ofSeconds(60);
+        private int maxConnections = 50;
+        private int maxConnectionsPerHost = 10;
+        /** Use the JDK client with HTTP/2 (falls back to HTTP/1.1 when the server does not support it). */
+        private boolean http2 = false;
+        private boolean gzip = true;
+    }
+}
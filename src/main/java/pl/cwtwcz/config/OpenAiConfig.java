@@ -1,15 +1,28 @@
 package pl.cwtwcz.config;
 
+import com.theokanning.openai.client.OpenAiApi;
 import com.theokanning.openai.service.OpenAiService;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import pl.cwtwcz.http.HttpClientRegistry;
+import pl.cwtwcz.http.ProviderRateLimiter;
+import retrofit2.Retrofit;
 
 import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class OpenAiConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(OpenAiConfig.class);
+
     @Value("${openai.api.key}")
     private String apiKey;
 
@@ -17,7 +30,31 @@ public class OpenAiConfig {
     private Integer timeoutSeconds;
 
     @Bean
-    public OpenAiService openAiService() {
-        return new OpenAiService(apiKey, Duration.ofSeconds(timeoutSeconds));
+    public OpenAiService openAiService(HttpClientRegistry httpClientRegistry, ProviderRateLimiter rateLimiter) {
+        // OkHttp negotiates HTTP/2 via ALPN and handles gzip itself; only the pool limits come from "openai"
+        HttpClientProperties.Pool pool = httpClientRegistry.getPoolSettings(HttpClientRegistry.OPENAI);
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(pool.getMaxConnections());
+        dispatcher.setMaxRequestsPerHost(pool.getMaxConnectionsPerHost());
+
+        OkHttpClient client = OpenAiService.defaultClient(apiKey, Duration.ofSeconds(timeoutSeconds))
+                .newBuilder()
+                .connectionPool(new ConnectionPool(pool.getMaxConnectionsPerHost(),
+                        pool.getIdleTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(pool.getConnectTimeout())
+                .addInterceptor(chain -> {
+                    // Rate limit headers drive ProviderRateLimiter (calls run on the thread holding the permit)
+                    Response response = chain.proceed(chain.request());
+                    rateLimiter.onResponse(ProviderRateLimiter.OPENAI, response.code(), response::header);
+                    return response;
+                })
+                .build();
+        Retrofit retrofit = OpenAiService.defaultRetrofit(client, OpenAiService.defaultObjectMapper());
+
+        logger.info("OpenAI SDK client: maxRequests={}, maxPerHost={}, idleTimeout={}, readTimeout={}s",
+                pool.getMaxConnections(), pool.getMaxConnectionsPerHost(), pool.getIdleTimeout(), timeoutSeconds);
+        return new OpenAiService(retrofit.create(OpenAiApi.class), client.dispatcher().executorService());
     }
-} 
\ No newline at end of file
+}
@@ -1,21 +1,19 @@
 package pl.cwtwcz.config;
 
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
+import pl.cwtwcz.http.HttpClientRegistry;
 
 @Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
 public class RestTemplateConfig {
 
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        // Można tu ustawić domyślne timeouty, interceptory itp.
-        return builder
-                .setConnectTimeout(Duration.ofSeconds(180))
-                .setReadTimeout(Duration.ofSeconds(180))
-                .build();
+    public RestTemplate restTemplate(HttpClientRegistry httpClientRegistry) {
+        // Domyślna pula połączeń (custom.http.pools.default.*), pozostałe przez HttpClientRegistry.get(...)
+        return httpClientRegistry.get(HttpClientRegistry.DEFAULT);
     }
-} 
\ No newline at end of file
+}
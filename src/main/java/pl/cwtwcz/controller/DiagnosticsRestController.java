@@ -0,0 +1,24 @@
+package pl.cwtwcz.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import lombok.RequiredArgsConstructor;
+
+import pl.cwtwcz.dto.common.HttpPoolMetricsDto;
+import pl.cwtwcz.http.HttpClientRegistry;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/diagnostics")
+public class DiagnosticsRestController {
+
+    private final HttpClientRegistry httpClientRegistry;
+
+    @GetMapping("http-pools")
+    public List<HttpPoolMetricsDto> httpPools() {
+        return httpClientRegistry.getMetrics();
+    }
+}
@@ -0,0 +1,219 @@
+package pl.cwtwcz.crawler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import pl.cwtwcz.dto.week4.PageLinkDto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * One crawl run: a page cache plus a fetch queue shared by any number of
+ * concurrent best-first searches.
+ *
+ * Each search keeps its own frontier ordered by link score (then depth) and
+ * asks the session for the pages it visits. Besides the page it needs now, a
+ * search hands its best frontier entries to the session as prefetches, so
+ * the next pages are usually downloaded while the current one is being
+ * evaluated. The session fetches each URL at most once, highest priority
+ * first, with at most custom.crawler.max-concurrency fetches in flight.
+ */
+public class CrawlSession implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrawlSession.class);
+
+    private static final Comparator<FetchRequest> FETCH_ORDER = Comparator
+            .comparingDouble(FetchRequest::priority).reversed()
+            .thenComparingLong(FetchRequest::sequence);
+
+    private static final Comparator<FrontierEntry> FRONTIER_ORDER = Comparator
+            .comparingDouble(FrontierEntry::score).reversed()
+            .thenComparingInt(FrontierEntry::depth)
+            .thenComparingLong(FrontierEntry::sequence);
+
+    private final WebCrawler crawler;
+    private final Predicate<String> inScope;
+    private final int maxConcurrency;
+    private final int maxPagesPerSearch;
+    private final int prefetch;
+
+    private final Map<String, CompletableFuture<CrawledPage>> pages = new ConcurrentHashMap<>();
+    private final PriorityQueue<FetchRequest> fetchQueue = new PriorityQueue<>(FETCH_ORDER);
+    private final Set<String> started = new HashSet<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private int inFlight;
+    private boolean closed;
+
+    CrawlSession(WebCrawler crawler, Predicate<String> inScope, int maxConcurrency, int maxPagesPerSearch,
+            int prefetch) {
+        this.crawler = crawler;
+        this.inScope = inScope;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxPagesPerSearch = maxPagesPerSearch;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Runs {@link #search} on a virtual thread.
+     */
+    public <T> CompletableFuture<Optional<T>> searchAsync(String startUrl, int maxDepth,
+            WebCrawler.LinkScorer scorer, WebCrawler.PageVisitor<T> visitor) {
+        return CompletableFuture.supplyAsync(() -> search(startUrl, maxDepth, scorer, visitor), crawler.executor());
+    }
+
+    /**
+     * Best-first search from startUrl: visits the highest scored unvisited link
+     * until the visitor returns a result, the frontier is exhausted or
+     * custom.crawler.max-pages-per-search pages were visited.
+     *
+     * @param startUrl Where the search starts.
+     * @param maxDepth Links deeper than this (start page = 0) are not followed.
+     * @param scorer   Scores the links of every visited page.
+     * @param visitor  Checks every visited page for the result.
+     * @return The visitor's result, or empty when no visited page had it.
+     */
+    public <T> Optional<T> search(String startUrl, int maxDepth, WebCrawler.LinkScorer scorer,
+            WebCrawler.PageVisitor<T> visitor) {
+        PriorityQueue<FrontierEntry> frontier = new PriorityQueue<>(FRONTIER_ORDER);
+        Set<String> visited = new HashSet<>();
+        frontier.add(new FrontierEntry(startUrl, 0, Double.MAX_VALUE, sequence.incrementAndGet()));
+
+        while (!frontier.isEmpty() && visited.size() < maxPagesPerSearch) {
+            // Step 1. Take the best entry and wait for its page
+            FrontierEntry entry = frontier.poll();
+            if (!visited.add(entry.url())) {
+                continue;
+            }
+            CrawledPage page;
+            try {
+                page = fetch(entry.url(), Double.MAX_VALUE).join();
+            } catch (CompletionException | CancellationException e) {
+                logger.warn("Skipping {}: {}", entry.url(), e.getCause() != null ? e.getCause().getMessage()
+                        : e.getMessage());
+                continue;
+            }
+
+            // Step 2. Let the visitor check the page
+            Optional<T> result = visitor.visit(page, entry.depth());
+            if (result.isPresent()) {
+                logger.info("Search from {} finished on {} after {} pages", startUrl, page.url(), visited.size());
+                return result;
+            }
+            if (entry.depth() + 1 > maxDepth) {
+                continue;
+            }
+
+            // Step 3. Score the new links and prefetch the best of the frontier
+            List<PageLinkDto> candidates = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (PageLinkDto link : page.links()) {
+                if (inScope.test(link.getUrl()) && !visited.contains(link.getUrl()) && seen.add(link.getUrl())) {
+                    candidates.add(link);
+                }
+            }
+            if (candidates.isEmpty()) {
+                continue;
+            }
+            Map<String, Double> scores = scorer.score(page, candidates);
+            for (PageLinkDto link : candidates) {
+                frontier.add(new FrontierEntry(link.getUrl(), entry.depth() + 1,
+                        scores.getOrDefault(link.getUrl(), 0.0), sequence.incrementAndGet()));
+            }
+            frontier.stream().sorted(FRONTIER_ORDER).limit(prefetch)
+                    .forEach(next -> fetch(next.url(), next.score()));
+        }
+        logger.info("Search from {} ended without a result after {} pages", startUrl, visited.size());
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the page, queueing its fetch with the given priority unless it is already cached or queued.
+     * A later request with a higher priority moves a queued fetch forward.
+     */
+    public CompletableFuture<CrawledPage> fetch(String url, double priority) {
+        CompletableFuture<CrawledPage> page;
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new CancellationException("Crawl session closed"));
+            }
+            page = pages.computeIfAbsent(url, u -> new CompletableFuture<>());
+            if (!started.contains(url)) {
+                fetchQueue.add(new FetchRequest(url, priority, sequence.incrementAndGet()));
+            }
+        }
+        dispatch();
+        return page;
+    }
+
+    /**
+     * @return Number of pages fetched or being fetched.
+     */
+    public synchronized int pageCount() {
+        return started.size();
+    }
+
+    @Override
+    public void close() {
+        List<CompletableFuture<CrawledPage>> abandoned = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (FetchRequest request : fetchQueue) {
+                if (!started.contains(request.url())) {
+                    abandoned.add(pages.get(request.url()));
+                }
+            }
+            fetchQueue.clear();
+        }
+        abandoned.forEach(page -> page.cancel(false));
+        logger.info("Crawl session closed: {} pages fetched", pageCount());
+    }
+
+    private void dispatch() {
+        List<FetchRequest> toStart = new ArrayList<>();
+        synchronized (this) {
+            while (inFlight < maxConcurrency && !fetchQueue.isEmpty()) {
+                FetchRequest request = fetchQueue.poll();
+                if (started.add(request.url())) {
+                    inFlight++;
+                    toStart.add(request);
+                }
+            }
+        }
+        for (FetchRequest request : toStart) {
+            CompletableFuture<CrawledPage> page = pages.get(request.url());
+            crawler.executor().execute(() -> {
+                try {
+                    page.complete(crawler.fetch(request.url()));
+                } catch (InterruptedException e) {
+                    page.completeExceptionally(new CancellationException("Interrupted fetch of " + request.url()));
+                } catch (Exception e) {
+                    page.completeExceptionally(e);
+                } finally {
+                    synchronized (this) {
+                        inFlight--;
+                    }
+                    dispatch();
+                }
+            });
+        }
+    }
+
+    private record FetchRequest(String url, double priority, long sequence) {
+    }
+
+    private record FrontierEntry(String url, int depth, double score, long sequence) {
+    }
+}
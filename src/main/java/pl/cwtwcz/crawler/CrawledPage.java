@@ -0,0 +1,16 @@
+package pl.cwtwcz.crawler;
+
+import pl.cwtwcz.dto.week4.PageLinkDto;
+
+import java.util.List;
+
+/**
+ * A fetched and parsed page, shared by every search of a crawl session.
+ *
+ * @param url   The page URL.
+ * @param html  Raw HTML.
+ * @param text  Visible text of the page.
+ * @param links Links on the page in document order, resolved against the page URL.
+ */
+public record CrawledPage(String url, String html, String text, List<PageLinkDto> links) {
+}
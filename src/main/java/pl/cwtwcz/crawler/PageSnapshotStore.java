@@ -0,0 +1,251 @@
+package pl.cwtwcz.crawler;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import lombok.RequiredArgsConstructor;
+
+import pl.cwtwcz.dto.week4.PageLinkDto;
+import pl.cwtwcz.service.DatabaseQueryService;
+import pl.cwtwcz.service.DatabaseService;
+import pl.cwtwcz.service.WriteBehindService;
+import pl.cwtwcz.html.HtmlContent;
+import pl.cwtwcz.html.HtmlTokenizer;
+import pl.cwtwcz.utils.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Persistent store of fetched pages: raw HTML, extracted text and outgoing
+ * links per URL, kept in a SQLite database (custom.pages.db-path). Pages are
+ * tokenized with {@link HtmlTokenizer} while the body is being read.
+ *
+ * Stored pages are revalidated with conditional requests (If-None-Match /
+ * If-Modified-Since), so an unchanged page costs a 304 and is served from
+ * the store without downloading or parsing it again. Within
+ * custom.pages.max-age a stored page is served without any request. Setting
+ * custom.pages.db-path to an empty value disables the store, every fetch is
+ * then a plain GET.
+ */
+@RequiredArgsConstructor
+@Service
+public class PageSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageSnapshotStore.class);
+
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final TypeReference<List<PageLinkDto>> LINK_LIST = new TypeReference<>() {
+    };
+
+    @Value("${custom.pages.db-path:cache/pages.db}")
+    private String dbPath;
+
+    @Value("${custom.pages.max-age:0s}")
+    private Duration maxAge;
+
+    private final RestTemplate restTemplate;
+    private final DatabaseService databaseService;
+    private final DatabaseQueryService databaseQueryService;
+    private final WriteBehindService writeBehindService;
+    private final ObjectMapper objectMapper;
+
+    private volatile boolean initialized;
+
+    public boolean isEnabled() {
+        return StringUtils.isNotEmpty(dbPath);
+    }
+
+    /**
+     * Fetches a page, serving it from the store when it is fresh or unchanged.
+     *
+     * @param url The page URL.
+     * @return The page with its extracted text and links.
+     */
+    public CrawledPage fetch(String url) {
+        return fetch(url, maxAge);
+    }
+
+    /**
+     * @param maxAge How long a stored page may be served without revalidation
+     *               (Duration.ZERO for pages that change on every visit).
+     * @see #fetch(String)
+     */
+    public CrawledPage fetch(String url, Duration maxAge) {
+        Optional<Snapshot> stored = load(url);
+
+        // Step 1. Fresh enough, no request at all
+        long now = System.currentTimeMillis();
+        if (stored.isPresent() && now - stored.get().validatedAt() < maxAge.toMillis()) {
+            logger.info("Serving stored snapshot of {}", url);
+            return stored.get().page();
+        }
+
+        // Step 2. Conditional GET against the stored validators
+        HttpHeaders headers = new HttpHeaders();
+        stored.ifPresent(snapshot -> {
+            if (snapshot.etag() != null) {
+                headers.set(HttpHeaders.IF_NONE_MATCH, snapshot.etag());
+            }
+            if (snapshot.lastModified() != null) {
+                headers.set(HttpHeaders.IF_MODIFIED_SINCE, snapshot.lastModified());
+            }
+        });
+        Download download = restTemplate.execute(url, HttpMethod.GET,
+                request -> request.getHeaders().putAll(headers),
+                response -> read(url, response));
+
+        if (download.notModified() && stored.isPresent()) {
+            logger.info("Page {} not modified, using stored snapshot", url);
+            touch(url, now);
+            return stored.get().page();
+        }
+
+        // Step 3. New or changed page, already tokenized while it was read
+        save(download.page(), download.etag(), download.lastModified(), now);
+        return download.page();
+    }
+
+    /**
+     * Reads the body in chunks, keeping the raw HTML and feeding the tokenizer as the bytes arrive.
+     */
+    private Download read(String url, ClientHttpResponse response) throws IOException {
+        HttpHeaders headers = response.getHeaders();
+        if (response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+            return new Download(null, true, null, null);
+        }
+        MediaType contentType = headers.getContentType();
+        Charset charset = contentType != null && contentType.getCharset() != null ? contentType.getCharset()
+                : StandardCharsets.UTF_8;
+        long length = headers.getContentLength();
+
+        StringBuilder html = new StringBuilder(length > 0 && length < Integer.MAX_VALUE ? (int) length : 16 * 1024);
+        HtmlTokenizer tokenizer = new HtmlTokenizer(html.capacity() / 2);
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        try (Reader reader = new InputStreamReader(response.getBody(), charset)) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                html.append(buffer, 0, read);
+                tokenizer.feed(buffer, 0, read);
+            }
+        }
+        HtmlContent content = tokenizer.finish();
+
+        List<PageLinkDto> links = new ArrayList<>(content.links().size());
+        for (HtmlContent.Link link : content.links()) {
+            links.add(new PageLinkDto(resolveUrl(link.href(), url), link.text(), ""));
+        }
+        CrawledPage page = new CrawledPage(url, html.toString(), content.text(), links);
+        return new Download(page, false, headers.getETag(), headers.getFirst(HttpHeaders.LAST_MODIFIED));
+    }
+
+    private Optional<Snapshot> load(String url) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        try {
+            ensureInitialized();
+            // Columns: html, text, links, etag, last_modified, validated_at
+            List<Snapshot> rows = databaseService.query(dbPath, databaseQueryService.selectPageSnapshot(),
+                    (rs, rowNum) -> new Snapshot(
+                            new CrawledPage(url, rs.getString(1), rs.getString(2), readLinks(rs.getString(3))),
+                            rs.getString(4), rs.getString(5), rs.getLong(6)),
+                    url);
+            return rows.stream().findFirst();
+        } catch (Exception e) {
+            logger.warn("Page snapshot lookup failed for {}, fetching in full: {}", url, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void save(CrawledPage page, String etag, String lastModified, long now) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            ensureInitialized();
+            databaseService.executeUpdate(dbPath, databaseQueryService.insertOrReplacePageSnapshot(),
+                    page.url(), page.html(), page.text(), objectMapper.writeValueAsString(page.links()), etag,
+                    lastModified, now, now);
+        } catch (Exception e) {
+            logger.warn("Could not store snapshot of {}: {}", page.url(), e.getMessage());
+        }
+    }
+
+    private void touch(String url, long now) {
+        try {
+            writeBehindService.enqueue(dbPath, databaseQueryService.touchPageSnapshot(), now, url);
+        } catch (Exception e) {
+            logger.warn("Could not update snapshot of {}: {}", url, e.getMessage());
+        }
+    }
+
+    private List<PageLinkDto> readLinks(String json) {
+        try {
+            return objectMapper.readValue(json, LINK_LIST);
+        } catch (IOException e) {
+            throw new RuntimeException("Corrupt stored links", e);
+        }
+    }
+
+    private static String resolveUrl(String href, String baseUrl) {
+        try {
+            if (href.startsWith("http")) {
+                return href;
+            }
+            return new URI(baseUrl).resolve(href).toString();
+        } catch (Exception e) {
+            logger.warn("Failed to resolve URL: {} with base: {}", href, baseUrl);
+            return href;
+        }
+    }
+
+    private void ensureInitialized() {
+        if (initialized) {
+            return;
+        }
+        synchronized (this) {
+            if (initialized) {
+                return;
+            }
+            try {
+                Path parent = Paths.get(dbPath).toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to create page snapshot directory for: " + dbPath, e);
+            }
+            databaseService.executeDDL(dbPath, databaseQueryService.createPageSnapshotsTable());
+            initialized = true;
+            logger.info("Page snapshot store ready: {}", dbPath);
+        }
+    }
+
+    private record Snapshot(CrawledPage page, String etag, String lastModified, long validatedAt) {
+    }
+
+    private record Download(CrawledPage page, boolean notModified, String etag, String lastModified) {
+    }
+}
@@ -0,0 +1,148 @@
+package pl.cwtwcz.crawler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+
+import pl.cwtwcz.dto.week4.PageLinkDto;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Fetches pages for {@link CrawlSession}s on virtual threads through the
+ * {@link PageSnapshotStore}, so pages unchanged since an earlier run are
+ * neither downloaded nor parsed again.
+ *
+ * Politeness is enforced per host across all sessions: at most
+ * custom.crawler.per-host-concurrency requests in flight and request starts
+ * spaced by custom.crawler.per-host-delay.
+ */
+@RequiredArgsConstructor
+@Component
+public class WebCrawler {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebCrawler.class);
+
+    @Value("${custom.crawler.max-concurrency:8}")
+    private int maxConcurrency;
+
+    @Value("${custom.crawler.per-host-concurrency:4}")
+    private int perHostConcurrency;
+
+    @Value("${custom.crawler.per-host-delay:100ms}")
+    private Duration perHostDelay;
+
+    @Value("${custom.crawler.max-pages-per-search:20}")
+    private int maxPagesPerSearch;
+
+    @Value("${custom.crawler.prefetch:4}")
+    private int prefetch;
+
+    private final PageSnapshotStore pageSnapshotStore;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, HostSlot> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * Scores candidate links of a visited page; higher scores are visited first.
+     */
+    @FunctionalInterface
+    public interface LinkScorer {
+        /**
+         * @param page       The page the links were found on.
+         * @param candidates In-scope links not yet visited by the search.
+         * @return Score per URL; URLs without a score get 0.
+         */
+        Map<String, Double> score(CrawledPage page, List<PageLinkDto> candidates);
+    }
+
+    /**
+     * Inspects a visited page and returns the search result when the page has it.
+     */
+    @FunctionalInterface
+    public interface PageVisitor<T> {
+        Optional<T> visit(CrawledPage page, int depth);
+    }
+
+    /**
+     * Opens a session with its own page cache. Pages are fetched at most once per session,
+     * however many searches run in it.
+     *
+     * @param inScope Which URLs searches may follow.
+     */
+    public CrawlSession openSession(Predicate<String> inScope) {
+        return new CrawlSession(this, inScope, maxConcurrency, maxPagesPerSearch, prefetch);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    ExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * Fetches and parses a page, waiting for the host's politeness limits.
+     */
+    CrawledPage fetch(String url) throws InterruptedException {
+        HostSlot host = hosts.computeIfAbsent(hostOf(url), h -> new HostSlot(new Semaphore(perHostConcurrency)));
+        host.permits.acquire();
+        try {
+            long wait = host.reserveStart(perHostDelay.toNanos());
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            logger.info("Fetching {}", url);
+            return pageSnapshotStore.fetch(url);
+        } finally {
+            host.permits.release();
+        }
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    private static final class HostSlot {
+
+        private final Semaphore permits;
+        private long nextStart = System.nanoTime();
+
+        HostSlot(Semaphore permits) {
+            this.permits = permits;
+        }
+
+        /**
+         * Reserves the next request start for this host.
+         *
+         * @return Nanoseconds to wait before starting the request.
+         */
+        synchronized long reserveStart(long delayNanos) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextStart);
+            nextStart = start + delayNanos;
+            return start - now;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package pl.cwtwcz.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A pooled SQLite connection with an LRU cache of prepared statements keyed
+ * by SQL text. Statements returned by {@link #prepare(String)} stay owned by
+ * the cache: callers close their ResultSets but never the statement.
+ */
+public class PooledConnection {
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledConnection.class);
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+
+    PooledConnection(Connection connection, int statementCacheSize) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > statementCacheSize) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return The underlying JDBC connection (for transactions and DDL).
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Returns a cached prepared statement for the SQL, preparing it on first use.
+     *
+     * @param sql The SQL text.
+     * @return Statement with cleared parameters.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+            statement.clearBatch();
+        }
+        return statement;
+    }
+
+    boolean isUsable() {
+        try {
+            return !connection.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    void close() {
+        statements.values().forEach(PooledConnection::closeQuietly);
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warn("Error closing SQLite connection: {}", e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.debug("Error closing cached statement: {}", e.getMessage());
+        }
+    }
+}
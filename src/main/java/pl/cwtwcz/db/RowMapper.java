@@ -0,0 +1,18 @@
+package pl.cwtwcz.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a ResultSet to an object. Implementations read
+ * columns directly (preferably by index) and must not call {@code next()}.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * @param rs     ResultSet positioned on the row to map.
+     * @param rowNum Zero-based number of the row.
+     */
+    T mapRow(ResultSet rs, int rowNum) throws SQLException;
+}
@@ -0,0 +1,10 @@
+package pl.cwtwcz.db;
+
+/**
+ * A single parameterized write, executed together with others in one transaction.
+ *
+ * @param sql        The SQL statement with {@code ?} placeholders.
+ * @param parameters Values bound to the placeholders, in order.
+ */
+public record SqlStatement(String sql, Object... parameters) {
+}
@@ -0,0 +1,147 @@
+package pl.cwtwcz.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Connection pool for one SQLite database file: a single writer connection
+ * plus up to N reader connections.
+ *
+ * SQLite allows only one writer at a time, so all writes are serialized on
+ * the writer connection instead of failing with SQLITE_BUSY. In WAL mode the
+ * readers see the last committed state and never block the writer. Every
+ * connection is opened once with the configured pragmas and keeps its own
+ * prepared-statement cache.
+ */
+public class SqliteConnectionPool implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqliteConnectionPool.class);
+
+    private final String dbPath;
+    private final SqliteSettings settings;
+
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private PooledConnection writer;
+
+    private final Semaphore readerPermits;
+    private final ConcurrentLinkedQueue<PooledConnection> idleReaders = new ConcurrentLinkedQueue<>();
+
+    public SqliteConnectionPool(String dbPath, SqliteSettings settings) {
+        this.dbPath = dbPath;
+        this.settings = settings;
+        this.readerPermits = new Semaphore(Math.max(1, settings.readers()), true);
+    }
+
+    /**
+     * Runs work on the writer connection; concurrent writers wait for each other.
+     */
+    public <T> T withWriter(SqlWork<T> work) throws SQLException {
+        writerLock.lock();
+        try {
+            if (writer == null || !writer.isUsable()) {
+                writer = open(false);
+            }
+            return work.apply(writer);
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    /**
+     * Runs work on a reader connection.
+     */
+    public <T> T withReader(SqlWork<T> work) throws SQLException {
+        PooledConnection reader = acquireReader();
+        try {
+            return work.apply(reader);
+        } finally {
+            releaseReader(reader);
+        }
+    }
+
+    /**
+     * Takes a reader connection out of the pool; it must be handed back with
+     * {@link #releaseReader(PooledConnection)}. Used by lazy result streams
+     * that outlive a single call.
+     */
+    public PooledConnection acquireReader() throws SQLException {
+        try {
+            readerPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a reader connection to " + dbPath, e);
+        }
+        PooledConnection reader;
+        while ((reader = idleReaders.poll()) != null) {
+            if (reader.isUsable()) {
+                return reader;
+            }
+            reader.close();
+        }
+        try {
+            return open(true);
+        } catch (SQLException | RuntimeException e) {
+            readerPermits.release();
+            throw e;
+        }
+    }
+
+    public void releaseReader(PooledConnection reader) {
+        idleReaders.offer(reader);
+        readerPermits.release();
+    }
+
+    @Override
+    public void close() {
+        writerLock.lock();
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        } finally {
+            writerLock.unlock();
+        }
+        PooledConnection reader;
+        while ((reader = idleReaders.poll()) != null) {
+            reader.close();
+        }
+        logger.info("Closed SQLite connection pool for {}", dbPath);
+    }
+
+    private PooledConnection open(boolean readOnly) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA busy_timeout=" + settings.busyTimeoutMillis());
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+            statement.execute("PRAGMA mmap_size=" + settings.mmapSize());
+            statement.execute("PRAGMA cache_size=" + settings.cacheSize());
+            statement.execute("PRAGMA temp_store=MEMORY");
+            if (readOnly) {
+                statement.execute("PRAGMA query_only=ON");
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        logger.debug("Opened SQLite {} connection to {}", readOnly ? "reader" : "writer", dbPath);
+        return new PooledConnection(connection, settings.statementCacheSize());
+    }
+
+    /**
+     * Work executed on a pooled connection.
+     */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T apply(PooledConnection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,14 @@
+package pl.cwtwcz.db;
+
+/**
+ * Pool sizing and pragmas applied to every pooled SQLite connection.
+ *
+ * @param readers            Maximum number of reader connections per database.
+ * @param statementCacheSize Prepared statements cached per connection.
+ * @param mmapSize           PRAGMA mmap_size in bytes.
+ * @param cacheSize          PRAGMA cache_size (negative values are KiB).
+ * @param busyTimeoutMillis  PRAGMA busy_timeout, for writers of other processes.
+ */
+public record SqliteSettings(int readers, int statementCacheSize, long mmapSize, long cacheSize,
+        int busyTimeoutMillis) {
+}
@@ -0,0 +1,22 @@
+package pl.cwtwcz.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Counters of one outbound HTTP pool. Connection counts (leased, available,
+ * pending) are only known for the Apache pools and are -1 for HTTP/2 pools.
+ */
+@Data
+@AllArgsConstructor
+public class HttpPoolMetricsDto {
+    private String pool;
+    private String engine;
+    private long requests;
+    private long failures;
+    private int inFlight;
+    private double avgLatencyMs;
+    private int leased;
+    private int available;
+    private int pending;
+}
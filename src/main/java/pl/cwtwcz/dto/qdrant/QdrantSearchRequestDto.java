@@ -0,0 +1,61 @@
+package pl.cwtwcz.dto.qdrant;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QdrantSearchRequestDto {
+    private float[] vector;
+    private Integer limit;
+    private Filter filter;
+    @JsonProperty("with_payload")
+    private Boolean withPayload;
+    @JsonProperty("with_vector")
+    private Boolean withVector;
+    @JsonProperty("score_threshold")
+    private Float scoreThreshold;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Filter {
+        private List<Condition> must;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Condition {
+        private String key;
+        private Match match;
+        private Range range;
+        @JsonProperty("datetime_range")
+        private Range datetimeRange;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Match {
+        private Object value;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Range {
+        private Object gte;
+        private Object lte;
+    }
+}
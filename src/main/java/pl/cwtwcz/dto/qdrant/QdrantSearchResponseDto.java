@@ -0,0 +1,29 @@
+package pl.cwtwcz.dto.qdrant;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class QdrantSearchResponseDto {
+    private List<ScoredPoint> result;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ScoredPoint {
+        private Object id;
+        private float score;
+        private Map<String, Object> payload;
+        private float[] vector;
+    }
+}
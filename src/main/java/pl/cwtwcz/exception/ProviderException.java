@@ -0,0 +1,33 @@
+package pl.cwtwcz.exception;
+
+import lombok.Getter;
+
+/**
+ * Failure of a call to an outside provider (LLM, transcription).
+ *
+ * Thrown by the adapters instead of returning "Error: ..." strings, so a
+ * failed call can never be mistaken for a model answer.
+ */
+@Getter
+public class ProviderException extends RuntimeException {
+
+    /** Breaker endpoint of the failed call, e.g. "openai:chat". */
+    private final String endpoint;
+
+    /** HTTP status of the failed call, -1 when no response was received. */
+    private final int statusCode;
+
+    /** True when repeating the same request may succeed (429, 5xx, I/O errors). */
+    private final boolean retryable;
+
+    public ProviderException(String endpoint, String message, int statusCode, boolean retryable) {
+        this(endpoint, message, statusCode, retryable, null);
+    }
+
+    public ProviderException(String endpoint, String message, int statusCode, boolean retryable, Throwable cause) {
+        super(endpoint + ": " + message, cause);
+        this.endpoint = endpoint;
+        this.statusCode = statusCode;
+        this.retryable = retryable;
+    }
+}
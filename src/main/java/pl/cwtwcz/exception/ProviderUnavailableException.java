@@ -0,0 +1,11 @@
+package pl.cwtwcz.exception;
+
+/**
+ * Thrown without calling the provider while its circuit breaker is open.
+ */
+public class ProviderUnavailableException extends ProviderException {
+
+    public ProviderUnavailableException(String endpoint, long retryInMillis) {
+        super(endpoint, "circuit open after repeated failures, next probe in " + retryInMillis + " ms", -1, false);
+    }
+}
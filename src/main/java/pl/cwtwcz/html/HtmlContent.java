@@ -0,0 +1,28 @@
+package pl.cwtwcz.html;
+
+import java.util.List;
+
+/**
+ * Everything the scrapers use from a page, collected in one pass by {@link HtmlTokenizer}.
+ *
+ * @param text         Visible text, whitespace collapsed, without script/style content.
+ * @param links        Anchors in document order (excluding "#..." and "javascript:" targets).
+ * @param images       Images with their alt text (empty when missing).
+ * @param audioSources MP3 sources: {@code <source src>} first, then {@code <a href>} links.
+ */
+public record HtmlContent(String text, List<Link> links, List<Image> images, List<String> audioSources) {
+
+    /**
+     * @param href The href attribute as written (not resolved).
+     * @param text Anchor text.
+     */
+    public record Link(String href, String text) {
+    }
+
+    /**
+     * @param src The src attribute as written (not resolved).
+     * @param alt The alt attribute, or an empty string.
+     */
+    public record Image(String src, String alt) {
+    }
+}
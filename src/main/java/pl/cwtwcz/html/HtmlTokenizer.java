@@ -0,0 +1,419 @@
+package pl.cwtwcz.html;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass streaming HTML tokenizer producing {@link HtmlContent}.
+ *
+ * Characters can be fed in chunks as they arrive ({@link #feed(char[], int, int)}),
+ * the result is available from {@link #finish()}. Text goes straight into one
+ * builder with whitespace collapsed and common entities decoded; tags are
+ * buffered only up to their closing '>' and attribute values are copied only
+ * for the tags that are collected (a, img, source). Script and style content
+ * and comments are skipped. This is a scraper, not a validating parser:
+ * malformed markup is tolerated and never fails.
+ *
+ * Instances are single-use and not thread-safe.
+ */
+public final class HtmlTokenizer {
+
+    private static final int MAX_ENTITY_LENGTH = 10;
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private enum State {
+        TEXT, ENTITY, TAG_OPEN, TAG, COMMENT, RAW_TEXT
+    }
+
+    private final StringBuilder text;
+    private final StringBuilder tag = new StringBuilder(64);
+    private final StringBuilder entity = new StringBuilder(MAX_ENTITY_LENGTH);
+    private final List<HtmlContent.Link> links = new ArrayList<>();
+    private final List<HtmlContent.Image> images = new ArrayList<>();
+    private final List<String> audioSources = new ArrayList<>();
+    private final List<String> audioLinks = new ArrayList<>();
+
+    private State state = State.TEXT;
+    private boolean pendingSpace;
+    private char quote;
+    private char lastTagChar;
+    private int commentDashes;
+    private String rawEndTag;
+    private int rawMatched;
+    private String anchorHref;
+    private int anchorStart;
+
+    public HtmlTokenizer() {
+        this(1024);
+    }
+
+    /**
+     * @param expectedTextLength Initial capacity of the text buffer.
+     */
+    public HtmlTokenizer(int expectedTextLength) {
+        this.text = new StringBuilder(expectedTextLength);
+    }
+
+    /**
+     * Tokenizes a complete document.
+     */
+    public static HtmlContent parse(CharSequence html) {
+        HtmlTokenizer tokenizer = new HtmlTokenizer(Math.max(16, html.length() / 2));
+        tokenizer.feed(html);
+        return tokenizer.finish();
+    }
+
+    /**
+     * Tokenizes a document while reading it.
+     */
+    public static HtmlContent parse(Reader html) throws IOException {
+        HtmlTokenizer tokenizer = new HtmlTokenizer();
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        int read;
+        while ((read = html.read(buffer)) != -1) {
+            tokenizer.feed(buffer, 0, read);
+        }
+        return tokenizer.finish();
+    }
+
+    public void feed(CharSequence chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            accept(chunk.charAt(i));
+        }
+    }
+
+    public void feed(char[] chunk, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            accept(chunk[i]);
+        }
+    }
+
+    /**
+     * Ends the input and returns the collected content.
+     */
+    public HtmlContent finish() {
+        if (state == State.ENTITY) {
+            flushEntity();
+        } else if (state == State.TAG_OPEN) {
+            emitText('<');
+        }
+        state = State.TEXT;
+        if (anchorHref != null) {
+            closeAnchor();
+        }
+        List<String> audio = new ArrayList<>(audioSources.size() + audioLinks.size());
+        audio.addAll(audioSources);
+        audio.addAll(audioLinks);
+        return new HtmlContent(text.toString(), links, images, audio);
+    }
+
+    private void accept(char c) {
+        switch (state) {
+            case TEXT -> {
+                if (c == '<') {
+                    state = State.TAG_OPEN;
+                } else if (c == '&') {
+                    entity.setLength(0);
+                    state = State.ENTITY;
+                } else {
+                    emitText(c);
+                }
+            }
+            case ENTITY -> {
+                if (c == ';') {
+                    int decoded = decodeEntity(entity);
+                    if (decoded >= 0) {
+                        emitCodePoint(decoded);
+                    } else {
+                        flushEntity();
+                        emitText(';');
+                    }
+                    state = State.TEXT;
+                } else if (entity.length() < MAX_ENTITY_LENGTH && (Character.isLetterOrDigit(c) || c == '#')) {
+                    entity.append(c);
+                } else {
+                    // Not an entity, the '&' was literal text
+                    flushEntity();
+                    state = State.TEXT;
+                    accept(c);
+                }
+            }
+            case TAG_OPEN -> {
+                if (Character.isLetter(c) || c == '/' || c == '!' || c == '?') {
+                    tag.setLength(0);
+                    tag.append(c);
+                    quote = 0;
+                    lastTagChar = c;
+                    state = State.TAG;
+                } else {
+                    // A '<' that does not open a tag, as in "a < b"
+                    emitText('<');
+                    state = State.TEXT;
+                    accept(c);
+                }
+            }
+            case TAG -> {
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                    tag.append(c);
+                } else if (c == '>') {
+                    state = State.TEXT;
+                    endTag();
+                } else {
+                    // Quotes only delimit attribute values, a stray apostrophe must not swallow the tag
+                    if ((c == '"' || c == '\'') && lastTagChar == '=') {
+                        quote = c;
+                    }
+                    if (!Character.isWhitespace(c)) {
+                        lastTagChar = c;
+                    }
+                    tag.append(c);
+                    if (tag.length() == 3 && tag.charAt(0) == '!' && tag.charAt(1) == '-' && tag.charAt(2) == '-') {
+                        commentDashes = 0;
+                        state = State.COMMENT;
+                    }
+                }
+            }
+            case COMMENT -> {
+                if (c == '-') {
+                    commentDashes++;
+                } else if (c == '>' && commentDashes >= 2) {
+                    pendingSpace = true;
+                    state = State.TEXT;
+                } else {
+                    commentDashes = 0;
+                }
+            }
+            case RAW_TEXT -> {
+                if (Character.toLowerCase(c) == rawEndTag.charAt(rawMatched)) {
+                    rawMatched++;
+                    if (rawMatched == rawEndTag.length()) {
+                        // Continue as the end tag, so "</script >" is consumed up to its '>'
+                        tag.setLength(0);
+                        tag.append(rawEndTag, 1, rawEndTag.length());
+                        quote = 0;
+                        lastTagChar = rawEndTag.charAt(rawEndTag.length() - 1);
+                        state = State.TAG;
+                    }
+                } else {
+                    rawMatched = c == '<' ? 1 : 0;
+                }
+            }
+        }
+    }
+
+    private void emitText(char c) {
+        if (c <= ' ' && Character.isWhitespace(c)) {
+            pendingSpace = true;
+            return;
+        }
+        if (pendingSpace && text.length() > 0) {
+            text.append(' ');
+        }
+        pendingSpace = false;
+        text.append(c);
+    }
+
+    private void emitCodePoint(int codePoint) {
+        if (Character.isBmpCodePoint(codePoint)) {
+            emitText((char) codePoint);
+        } else {
+            emitText(Character.highSurrogate(codePoint));
+            text.append(Character.lowSurrogate(codePoint));
+        }
+    }
+
+    private void flushEntity() {
+        emitText('&');
+        for (int i = 0; i < entity.length(); i++) {
+            emitText(entity.charAt(i));
+        }
+    }
+
+    private void endTag() {
+        // Every tag separates words, as the old "<[^>]+>" -> " " replacement did
+        pendingSpace = true;
+        char first = tag.charAt(0);
+        if (first == '!' || first == '?') {
+            return;
+        }
+        boolean closing = first == '/';
+        int nameStart = closing ? 1 : 0;
+        int nameEnd = nameStart;
+        while (nameEnd < tag.length() && Character.isLetterOrDigit(tag.charAt(nameEnd))) {
+            nameEnd++;
+        }
+
+        if (closing) {
+            if (anchorHref != null && nameIs(nameStart, nameEnd, "a")) {
+                closeAnchor();
+            }
+            return;
+        }
+
+        if (nameIs(nameStart, nameEnd, "script") || nameIs(nameStart, nameEnd, "style")) {
+            rawEndTag = nameIs(nameStart, nameEnd, "script") ? "</script" : "</style";
+            rawMatched = 0;
+            state = State.RAW_TEXT;
+        } else if (nameIs(nameStart, nameEnd, "a")) {
+            if (anchorHref != null) {
+                closeAnchor();
+            }
+            String href = attribute(nameEnd, "href");
+            if (href != null) {
+                anchorHref = href;
+                anchorStart = text.length();
+            }
+        } else if (nameIs(nameStart, nameEnd, "img")) {
+            String src = attribute(nameEnd, "src");
+            if (src != null && !src.isEmpty()) {
+                String alt = attribute(nameEnd, "alt");
+                images.add(new HtmlContent.Image(src, alt != null ? alt : ""));
+            }
+        } else if (nameIs(nameStart, nameEnd, "source")) {
+            String src = attribute(nameEnd, "src");
+            if (src != null && isMp3(src)) {
+                audioSources.add(src);
+            }
+        }
+    }
+
+    private void closeAnchor() {
+        String href = anchorHref;
+        anchorHref = null;
+        if (isMp3(href)) {
+            audioLinks.add(href);
+        }
+        if (!href.isEmpty() && !href.startsWith("#") && !href.startsWith("javascript:")) {
+            links.add(new HtmlContent.Link(href, text.substring(Math.min(anchorStart, text.length())).trim()));
+        }
+    }
+
+    private boolean nameIs(int start, int end, String name) {
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.toLowerCase(tag.charAt(start + i)) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds an attribute in the buffered tag.
+     *
+     * @return The decoded value, "" for a bare attribute, or null when absent.
+     */
+    private String attribute(int from, String name) {
+        int n = tag.length();
+        int i = from;
+        while (i < n) {
+            // Step 1. Attribute name
+            while (i < n && (Character.isWhitespace(tag.charAt(i)) || tag.charAt(i) == '/')) {
+                i++;
+            }
+            int keyStart = i;
+            while (i < n && !Character.isWhitespace(tag.charAt(i)) && tag.charAt(i) != '=' && tag.charAt(i) != '/') {
+                i++;
+            }
+            boolean matches = nameIs(keyStart, i, name);
+            while (i < n && Character.isWhitespace(tag.charAt(i))) {
+                i++;
+            }
+            if (i >= n || tag.charAt(i) != '=') {
+                if (matches) {
+                    return "";
+                }
+                if (i == keyStart) {
+                    i++;
+                }
+                continue;
+            }
+
+            // Step 2. Quoted or bare value
+            i++;
+            while (i < n && Character.isWhitespace(tag.charAt(i))) {
+                i++;
+            }
+            int valueStart;
+            int valueEnd;
+            if (i < n && (tag.charAt(i) == '"' || tag.charAt(i) == '\'')) {
+                char q = tag.charAt(i);
+                valueStart = i + 1;
+                valueEnd = valueStart;
+                while (valueEnd < n && tag.charAt(valueEnd) != q) {
+                    valueEnd++;
+                }
+                i = valueEnd + 1;
+            } else {
+                valueStart = i;
+                while (i < n && !Character.isWhitespace(tag.charAt(i))) {
+                    i++;
+                }
+                valueEnd = i;
+            }
+            if (matches) {
+                return decodeValue(valueStart, valueEnd);
+            }
+        }
+        return null;
+    }
+
+    private String decodeValue(int start, int end) {
+        int amp = tag.indexOf("&", start);
+        if (amp < 0 || amp >= end) {
+            return tag.substring(start, end);
+        }
+        StringBuilder value = new StringBuilder(end - start);
+        int i = start;
+        while (i < end) {
+            char c = tag.charAt(i);
+            int semicolon = c == '&' ? tag.indexOf(";", i) : -1;
+            if (semicolon > i && semicolon < end && semicolon - i - 1 <= MAX_ENTITY_LENGTH) {
+                int decoded = decodeEntity(tag.subSequence(i + 1, semicolon));
+                if (decoded >= 0) {
+                    value.appendCodePoint(decoded);
+                    i = semicolon + 1;
+                    continue;
+                }
+            }
+            value.append(c);
+            i++;
+        }
+        return value.toString();
+    }
+
+    private static boolean isMp3(String url) {
+        return url.length() > 4 && url.regionMatches(true, url.length() - 4, ".mp3", 0, 4);
+    }
+
+    /**
+     * @return The code point of a named (common subset) or numeric entity, or -1.
+     */
+    private static int decodeEntity(CharSequence name) {
+        if (name.length() > 1 && name.charAt(0) == '#') {
+            try {
+                boolean hex = name.charAt(1) == 'x' || name.charAt(1) == 'X';
+                int codePoint = Integer.parseInt(name, hex ? 2 : 1, name.length(), hex ? 16 : 10);
+                return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return switch (name.toString()) {
+            case "amp" -> '&';
+            case "lt" -> '<';
+            case "gt" -> '>';
+            case "quot" -> '"';
+            case "apos" -> '\'';
+            case "nbsp" -> ' ';
+            default -> -1;
+        };
+    }
+}
@@ -0,0 +1,306 @@
+package pl.cwtwcz.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import lombok.RequiredArgsConstructor;
+
+import pl.cwtwcz.utils.HashUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Streams downloads from the pooled "download" HTTP client straight into a
+ * FileChannel through reusable direct buffers.
+ *
+ * The body is written to {@code <destination>.part} and atomically renamed
+ * once complete, so readers never see a truncated file. A partial file left by
+ * an interrupted attempt is resumed with an HTTP Range request guarded by
+ * If-Range: the ETag (or Last-Modified) of the first response is kept in
+ * {@code <destination>.part.validator}, and a server whose resource changed
+ * answers 200 with the full body, which restarts the file. Failed attempts are
+ * retried with jittered exponential backoff. The result is checked against
+ * Content-Length (or Content-Range) and, when given, a SHA-256 hash.
+ */
+@RequiredArgsConstructor
+@Component
+public class FileDownloader {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileDownloader.class);
+
+    private static final String PART_SUFFIX = ".part";
+    private static final String VALIDATOR_SUFFIX = ".validator";
+
+    @Value("${custom.download.buffer-size:262144}")
+    private int bufferSize;
+
+    @Value("${custom.download.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${custom.download.initial-backoff:1s}")
+    private Duration initialBackoff;
+
+    @Value("${custom.download.max-backoff:30s}")
+    private Duration maxBackoff;
+
+    private final HttpClientRegistry httpClientRegistry;
+
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Downloads a URL to the destination path.
+     *
+     * @param url            The URL to download.
+     * @param destination    Final location of the file.
+     * @param expectedSha256 Lowercase hex SHA-256 of the content, or null to skip the check.
+     * @return Size of the downloaded file in bytes.
+     */
+    public long download(String url, Path destination, String expectedSha256) throws IOException {
+        Path part = destination.resolveSibling(destination.getFileName() + PART_SUFFIX);
+        Path parent = destination.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        Path validator = validatorPath(part);
+        int attempts = Math.max(1, maxAttempts);
+        IOException lastError = null;
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            try {
+                long size = transfer(url, part);
+                verifyHash(part, expectedSha256);
+                moveIntoPlace(part, destination);
+                Files.deleteIfExists(validator);
+                return size;
+            } catch (HashMismatchException e) {
+                // The partial file is corrupt, so the next attempt must start over
+                Files.deleteIfExists(part);
+                Files.deleteIfExists(validator);
+                lastError = e;
+            } catch (IOException e) {
+                lastError = e;
+            }
+            if (attempt == attempts) {
+                break;
+            }
+
+            // Back off with full jitter before the next attempt
+            long cap = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+            long sleep = ThreadLocalRandom.current().nextLong(cap + 1);
+            logger.warn("Download attempt {}/{} of {} failed ({}), retrying in {} ms", attempt, attempts, url,
+                    lastError.getMessage(), sleep);
+            try {
+                Thread.sleep(sleep);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while backing off download of " + url);
+            }
+        }
+        logger.warn("Download of {} failed after {} attempts: {}", url, attempts, lastError.getMessage());
+        throw lastError;
+    }
+
+    /**
+     * Appends the remaining bytes of the resource to the part file and returns its final size.
+     */
+    private long transfer(String url, Path part) throws IOException {
+        Path validator = validatorPath(part);
+        long offset = Files.exists(part) ? Files.size(part) : 0;
+        String ifRange = offset > 0 && Files.exists(validator) ? Files.readString(validator).trim() : null;
+        if (offset > 0 && (ifRange == null || ifRange.isEmpty())) {
+            // Without a validator a resume could splice two versions of the resource
+            logger.info("No validator for partial download of {}, restarting from scratch", url);
+            offset = 0;
+            ifRange = null;
+        }
+        try {
+            return execute(url, part, offset, ifRange);
+        } catch (HttpClientErrorException e) {
+            if (offset > 0 && e.getStatusCode().value() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+                // Part file is stale or larger than the resource, start over
+                logger.info("Range not satisfiable for {}, restarting download from scratch", url);
+                Files.delete(part);
+                Files.deleteIfExists(validator);
+                return execute(url, part, 0, null);
+            }
+            throw e;
+        }
+    }
+
+    private long execute(String url, Path part, long offset, String ifRange) throws IOException {
+        try {
+            return request(url, part, offset, ifRange);
+        } catch (HttpClientErrorException e) {
+            throw e;
+        } catch (RestClientException e) {
+            // I/O failures and 5xx responses are retried (and resumed) by the caller
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private long request(String url, Path part, long offset, String ifRange) {
+        return httpClientRegistry.get(HttpClientRegistry.DOWNLOAD).execute(URI.create(url), HttpMethod.GET,
+                request -> {
+                    // Byte ranges and lengths refer to the identity encoding
+                    request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "identity");
+                    if (offset > 0) {
+                        request.getHeaders().set(HttpHeaders.RANGE, "bytes=" + offset + "-");
+                        request.getHeaders().set(HttpHeaders.IF_RANGE, ifRange);
+                    }
+                },
+                response -> writeBody(url, part, offset, response));
+    }
+
+    private long writeBody(String url, Path part, long offset, ClientHttpResponse response) throws IOException {
+        // Step 1. Work out where the body starts and how long the file should be
+        HttpHeaders headers = response.getHeaders();
+        long start = 0;
+        long expectedSize = headers.getContentLength();
+        if (response.getStatusCode().value() != HttpStatus.PARTIAL_CONTENT.value()) {
+            // A full body: either a fresh download or the resource changed since the part file was written
+            if (offset > 0) {
+                logger.info("Server sent the full body of {} instead of a range, restarting download", url);
+            }
+            storeValidator(part, headers);
+        } else {
+            long[] range = parseContentRange(headers.getFirst(HttpHeaders.CONTENT_RANGE));
+            if (range == null || range[0] != offset) {
+                throw new IOException("Unexpected Content-Range for " + url + ": "
+                        + headers.getFirst(HttpHeaders.CONTENT_RANGE));
+            }
+            start = offset;
+            expectedSize = range[1];
+            logger.info("Resuming download of {} at byte {}", url, offset);
+        }
+
+        // Step 2. Stream into the part file through a direct buffer
+        ByteBuffer buffer = borrowBuffer();
+        long size;
+        try (ReadableByteChannel source = Channels.newChannel(response.getBody());
+                FileChannel target = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            target.truncate(start);
+            target.position(start);
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                buffer.clear();
+            }
+            size = target.position();
+        } finally {
+            buffer.clear();
+            buffers.offer(buffer);
+        }
+
+        // Step 3. Check the length, keeping the part file for a resume if short
+        if (expectedSize >= 0 && size != expectedSize) {
+            throw new IOException("Incomplete download of " + url + ": " + size + " of " + expectedSize + " bytes");
+        }
+        return size;
+    }
+
+    private void verifyHash(Path file, String expectedSha256) throws IOException {
+        if (expectedSha256 == null) {
+            return;
+        }
+        MessageDigest digest = HashUtils.newSha256();
+        ByteBuffer buffer = borrowBuffer();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            buffer.clear();
+            buffers.offer(buffer);
+        }
+        String actual = HexFormat.of().formatHex(digest.digest());
+        if (!actual.equalsIgnoreCase(expectedSha256)) {
+            throw new HashMismatchException("SHA-256 mismatch for " + file + ": expected " + expectedSha256
+                    + ", got " + actual);
+        }
+    }
+
+    private void moveIntoPlace(Path part, Path destination) throws IOException {
+        try {
+            Files.move(part, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Keeps the strong ETag (weak ones are not allowed in If-Range) or else the
+     * Last-Modified date of the response, to guard a later resume.
+     */
+    private void storeValidator(Path part, HttpHeaders headers) throws IOException {
+        String etag = headers.getETag();
+        String validator = etag != null && !etag.startsWith("W/") ? etag : headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        if (validator != null) {
+            Files.writeString(validatorPath(part), validator);
+        } else {
+            Files.deleteIfExists(validatorPath(part));
+        }
+    }
+
+    private static Path validatorPath(Path part) {
+        return part.resolveSibling(part.getFileName() + VALIDATOR_SUFFIX);
+    }
+
+    private ByteBuffer borrowBuffer() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Parses "bytes start-end/total" into {start, total}; total is -1 when unknown ("*").
+     */
+    private static long[] parseContentRange(String contentRange) {
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return null;
+        }
+        try {
+            String spec = contentRange.substring(6).trim();
+            int dash = spec.indexOf('-');
+            int slash = spec.indexOf('/');
+            long start = Long.parseLong(spec.substring(0, dash));
+            String total = spec.substring(slash + 1);
+            return new long[] { start, "*".equals(total) ? -1 : Long.parseLong(total) };
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static class HashMismatchException extends IOException {
+        HashMismatchException(String message) {
+            super(message);
+        }
+    }
+}
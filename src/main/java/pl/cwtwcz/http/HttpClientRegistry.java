@@ -0,0 +1,208 @@
+package pl.cwtwcz.http;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import jakarta.annotation.PreDestroy;
+
+import pl.cwtwcz.config.HttpClientProperties;
+import pl.cwtwcz.dto.common.HttpPoolMetricsDto;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Owns one pooled HTTP client per outbound destination and hands out
+ * RestTemplates bound to them.
+ *
+ * HTTP/1.1 pools use Apache HttpClient with keep-alive connection reuse,
+ * per-host limits and transparent gzip. Pools with http2=true use the JDK
+ * client, which multiplexes requests over one connection per host (concurrency
+ * per host is then bounded by the metrics interceptor).
+ */
+@Component
+public class HttpClientRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpClientRegistry.class);
+
+    public static final String DEFAULT = "default";
+    public static final String OPENAI = "openai";
+    public static final String GROQ = "groq";
+    public static final String QDRANT = "qdrant";
+    public static final String DOWNLOAD = "download";
+
+    private static final List<String> KNOWN_POOLS = List.of(DEFAULT, OPENAI, GROQ, QDRANT, DOWNLOAD);
+
+    private final HttpClientProperties properties;
+    private final ProviderRateLimiter rateLimiter;
+    private final Map<String, PooledClient> clients = new LinkedHashMap<>();
+
+    public HttpClientRegistry(HttpClientProperties properties, RestTemplateBuilder restTemplateBuilder,
+            ProviderRateLimiter rateLimiter) {
+        this.properties = properties;
+        this.rateLimiter = rateLimiter;
+
+        // Step 1. Every known pool exists, configured or not
+        Map<String, HttpClientProperties.Pool> pools = new LinkedHashMap<>();
+        for (String name : KNOWN_POOLS) {
+            pools.put(name, properties.getPools().getOrDefault(name, new HttpClientProperties.Pool()));
+        }
+        properties.getPools().forEach(pools::putIfAbsent);
+
+        // Step 2. Build clients and report the configuration
+        pools.forEach((name, pool) -> {
+            clients.put(name, pool.isHttp2()
+                    ? createJdkClient(name, pool, restTemplateBuilder)
+                    : createApacheClient(name, pool, restTemplateBuilder));
+            logger.info("HTTP pool '{}': engine={}, maxConnections={}, maxPerHost={}, connectTimeout={}, "
+                    + "readTimeout={}, responseTimeout={}, idleTimeout={}, gzip={}",
+                    name, pool.isHttp2() ? "jdk-http2" : "apache", pool.getMaxConnections(),
+                    pool.getMaxConnectionsPerHost(), pool.getConnectTimeout(), pool.getReadTimeout(),
+                    pool.getResponseTimeout(), pool.getIdleTimeout(), pool.isGzip());
+        });
+    }
+
+    /**
+     * Returns the RestTemplate of the given pool, or of the default pool when
+     * the name is unknown.
+     *
+     * @param poolName The pool name (see the constants of this class).
+     * @return Shared, thread-safe RestTemplate.
+     */
+    public RestTemplate get(String poolName) {
+        PooledClient client = clients.get(poolName);
+        if (client == null) {
+            logger.warn("Unknown HTTP pool '{}', using '{}'", poolName, DEFAULT);
+            client = clients.get(DEFAULT);
+        }
+        return client.restTemplate();
+    }
+
+    /**
+     * @param poolName The pool name.
+     * @return Effective settings of the pool (defaults when not configured).
+     */
+    public HttpClientProperties.Pool getPoolSettings(String poolName) {
+        return properties.getPools().getOrDefault(poolName, new HttpClientProperties.Pool());
+    }
+
+    /**
+     * @return Current counters of every pool.
+     */
+    public List<HttpPoolMetricsDto> getMetrics() {
+        List<HttpPoolMetricsDto> metrics = new ArrayList<>();
+        clients.forEach((name, client) -> {
+            PoolMetricsInterceptor counters = client.metrics();
+            int leased = -1;
+            int available = -1;
+            int pending = -1;
+            if (client.connectionManager() != null) {
+                PoolStats stats = client.connectionManager().getTotalStats();
+                leased = stats.getLeased();
+                available = stats.getAvailable();
+                pending = stats.getPending();
+            }
+            metrics.add(new HttpPoolMetricsDto(name, client.engine(), counters.getRequests(), counters.getFailures(),
+                    counters.getInFlight(), counters.getAverageLatencyMillis(), leased, available, pending));
+        });
+        return metrics;
+    }
+
+    @PreDestroy
+    public void close() {
+        clients.forEach((name, client) -> {
+            try {
+                if (client.closeable() != null) {
+                    client.closeable().close();
+                }
+            } catch (Exception e) {
+                logger.warn("Error closing HTTP pool '{}': {}", name, e.getMessage());
+            }
+        });
+    }
+
+    private PooledClient createApacheClient(String name, HttpClientProperties.Pool pool,
+            RestTemplateBuilder restTemplateBuilder) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(pool.getMaxConnections())
+                .setMaxConnPerRoute(pool.getMaxConnectionsPerHost())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(pool.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(pool.getReadTimeout()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        HttpClientBuilder clientBuilder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(pool.getConnectionRequestTimeout()))
+                        .setResponseTimeout(Timeout.of(pool.getResponseTimeout()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(pool.getIdleTimeout()));
+        if (!pool.isGzip()) {
+            clientBuilder.disableContentCompression();
+        }
+        CloseableHttpClient httpClient = clientBuilder.build();
+
+        PoolMetricsInterceptor metrics = new PoolMetricsInterceptor(0);
+        RestTemplate restTemplate = buildRestTemplate(name, restTemplateBuilder,
+                new HttpComponentsClientHttpRequestFactory(httpClient), metrics, false);
+        return new PooledClient("apache", restTemplate, metrics, connectionManager, httpClient);
+    }
+
+    private PooledClient createJdkClient(String name, HttpClientProperties.Pool pool,
+            RestTemplateBuilder restTemplateBuilder) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(pool.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(pool.getResponseTimeout());
+
+        PoolMetricsInterceptor metrics = new PoolMetricsInterceptor(pool.getMaxConnectionsPerHost());
+        RestTemplate restTemplate = buildRestTemplate(name, restTemplateBuilder, requestFactory, metrics,
+                pool.isGzip());
+        return new PooledClient("jdk-http2", restTemplate, metrics, null, httpClient);
+    }
+
+    private RestTemplate buildRestTemplate(String name, RestTemplateBuilder restTemplateBuilder,
+            ClientHttpRequestFactory requestFactory, PoolMetricsInterceptor metrics, boolean gzip) {
+        RestTemplateBuilder builder = restTemplateBuilder
+                .requestFactory(() -> requestFactory)
+                .additionalInterceptors(metrics);
+        if (rateLimiter.isManaged(name)) {
+            builder = builder.additionalInterceptors(new RateLimitInterceptor(name, rateLimiter));
+        }
+        if (gzip) {
+            builder = builder.additionalInterceptors(new GzipResponseInterceptor());
+        }
+        return builder.build();
+    }
+
+    private record PooledClient(String engine, RestTemplate restTemplate, PoolMetricsInterceptor metrics,
+            PoolingHttpClientConnectionManager connectionManager, AutoCloseable closeable) {
+    }
+}
@@ -0,0 +1,87 @@
+package pl.cwtwcz.http;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts requests, failures and latency of a pool. For pools without a
+ * connection manager (HTTP/2) it also bounds concurrent requests per host.
+ */
+class PoolMetricsInterceptor implements ClientHttpRequestInterceptor {
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final int maxConcurrentPerHost;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxConcurrentPerHost Limit of concurrent requests per host, 0 for no limit.
+     */
+    PoolMetricsInterceptor(int maxConcurrentPerHost) {
+        this.maxConcurrentPerHost = maxConcurrentPerHost;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        Semaphore permit = null;
+        if (maxConcurrentPerHost > 0) {
+            permit = hostPermits.computeIfAbsent(request.getURI().getHost(), h -> new Semaphore(maxConcurrentPerHost));
+            try {
+                permit.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a connection to " + request.getURI().getHost(), e);
+            }
+        }
+
+        requests.incrementAndGet();
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            if (response.getStatusCode().isError()) {
+                failures.incrementAndGet();
+            }
+            return response;
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            throw e;
+        } finally {
+            totalNanos.addAndGet(System.nanoTime() - start);
+            inFlight.decrementAndGet();
+            if (permit != null) {
+                permit.release();
+            }
+        }
+    }
+
+    long getRequests() {
+        return requests.get();
+    }
+
+    long getFailures() {
+        return failures.get();
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    double getAverageLatencyMillis() {
+        long count = requests.get();
+        return count == 0 ? 0.0 : totalNanos.get() / 1_000_000.0 / count;
+    }
+}
@@ -0,0 +1,359 @@
+package pl.cwtwcz.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Client-side rate limiter for LLM providers, kept per provider and model.
+ *
+ * Each model has two token buckets (requests per minute and tokens per minute)
+ * and an adaptive concurrency limit. The buckets start from the configured
+ * limits and are corrected by the x-ratelimit-* headers of every response, so
+ * callers wait only as long as the provider actually requires. On 429 the
+ * concurrency limit is halved and the model is blocked until the provider's
+ * reset time; every success raises the limit again by 1/limit (AIMD).
+ *
+ * Response headers are matched to the model through the permit held by the
+ * calling thread, so the HTTP call must run on the thread that acquired it.
+ */
+@Component
+public class ProviderRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderRateLimiter.class);
+
+    public static final String OPENAI = "openai";
+    public static final String GROQ = "groq";
+
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long DEFAULT_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_WAIT_SLICE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    @Value("${custom.ratelimit.openai.rpm:500}")
+    private int openAiRpm;
+
+    @Value("${custom.ratelimit.openai.tpm:200000}")
+    private int openAiTpm;
+
+    @Value("${custom.async.openai.max-concurrency:16}")
+    private int openAiMaxConcurrency;
+
+    @Value("${custom.ratelimit.groq.rpm:20}")
+    private int groqRpm;
+
+    @Value("${custom.ratelimit.groq.tpm:0}")
+    private int groqTpm;
+
+    @Value("${custom.async.groq.max-concurrency:4}")
+    private int groqMaxConcurrency;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, ProviderDefaults> providers = new HashMap<>();
+    private final Map<String, ModelLimits> limits = new HashMap<>();
+    private final ThreadLocal<ModelLimits> current = new ThreadLocal<>();
+
+    @PostConstruct
+    public void init() {
+        providers.put(OPENAI, new ProviderDefaults(openAiRpm, openAiTpm, openAiMaxConcurrency));
+        providers.put(GROQ, new ProviderDefaults(groqRpm, groqTpm, groqMaxConcurrency));
+        providers.forEach((name, defaults) -> logger.info("Rate limits for {}: rpm={}, tpm={}, maxConcurrency={}",
+                name, defaults.rpm(), defaults.tpm() > 0 ? defaults.tpm() : "unlimited", defaults.maxConcurrency()));
+    }
+
+    /**
+     * @param provider The provider name.
+     * @return True when the provider has configured limits.
+     */
+    public boolean isManaged(String provider) {
+        return providers.containsKey(provider);
+    }
+
+    /**
+     * Blocks until one request with the given token cost may be sent to the model.
+     *
+     * @param provider        The provider ({@link #OPENAI}, {@link #GROQ}).
+     * @param model           The model the request goes to.
+     * @param estimatedTokens Estimated tokens counted against the TPM limit (0 when not applicable).
+     * @return Permit that must be closed when the call has finished.
+     * @throws CancellationException When the waiting thread is interrupted.
+     */
+    public Permit acquire(String provider, String model, int estimatedTokens) {
+        ProviderDefaults defaults = providers.get(provider);
+        if (defaults == null) {
+            throw new IllegalArgumentException("Unknown provider: " + provider);
+        }
+        String key = provider + "/" + model;
+
+        lock.lock();
+        try {
+            ModelLimits modelLimits = limits.computeIfAbsent(key, k -> new ModelLimits(k, defaults, System.nanoTime()));
+            long waitStart = System.nanoTime();
+            while (true) {
+                long now = System.nanoTime();
+                long wait = modelLimits.nanosUntilAvailable(estimatedTokens, now);
+                if (wait == 0) {
+                    modelLimits.take(estimatedTokens);
+                    break;
+                }
+                changed.awaitNanos(Math.min(wait, MAX_WAIT_SLICE_NANOS));
+            }
+            long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart);
+            if (waitedMillis >= 1000) {
+                logger.info("Waited {} ms for {} rate limit (concurrency limit: {})", waitedMillis, key,
+                        String.format("%.1f", modelLimits.concurrencyLimit));
+            }
+            current.set(modelLimits);
+            return new Permit(modelLimits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for " + key + " rate limit");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies the rate limit state reported by a provider response to the
+     * model of the permit held by the current thread.
+     *
+     * @param provider The provider that answered.
+     * @param status   HTTP status code.
+     * @param headers  Header lookup (name to first value, null when missing).
+     */
+    public void onResponse(String provider, int status, Function<String, String> headers) {
+        ModelLimits modelLimits = current.get();
+        if (modelLimits == null || !modelLimits.key.startsWith(provider + "/")) {
+            return;
+        }
+        long now = System.nanoTime();
+
+        lock.lock();
+        try {
+            // Step 1. Correct the buckets with the provider's view
+            modelLimits.requests.update(parseLong(headers.apply("x-ratelimit-limit-requests")),
+                    parseLong(headers.apply("x-ratelimit-remaining-requests")), now);
+            modelLimits.tokens.update(parseLong(headers.apply("x-ratelimit-limit-tokens")),
+                    parseLong(headers.apply("x-ratelimit-remaining-tokens")), now);
+            if (modelLimits.requests.isEmpty()) {
+                modelLimits.blockUntil(now + parseDurationNanos(headers.apply("x-ratelimit-reset-requests")));
+            }
+            if (modelLimits.tokens.isEmpty()) {
+                modelLimits.blockUntil(now + parseDurationNanos(headers.apply("x-ratelimit-reset-tokens")));
+            }
+
+            // Step 2. Adapt concurrency
+            if (status == 429) {
+                long backoff = parseRetryAfterNanos(headers.apply("retry-after"));
+                if (backoff <= 0) {
+                    backoff = Math.max(parseDurationNanos(headers.apply("x-ratelimit-reset-requests")),
+                            parseDurationNanos(headers.apply("x-ratelimit-reset-tokens")));
+                }
+                modelLimits.blockUntil(now + (backoff > 0 ? backoff : DEFAULT_BACKOFF_NANOS));
+                if (modelLimits.decrease(now)) {
+                    logger.warn("429 from {}: concurrency limit lowered to {}, paused for {} ms", modelLimits.key,
+                            String.format("%.1f", modelLimits.concurrencyLimit),
+                            TimeUnit.NANOSECONDS.toMillis(modelLimits.blockedUntil - now));
+                }
+            } else if (status < 400) {
+                modelLimits.increase();
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(ModelLimits modelLimits) {
+        current.remove();
+        lock.lock();
+        try {
+            modelLimits.inFlight--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static long parseDurationNanos(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        double nanos = 0;
+        Matcher matcher = DURATION_PART.matcher(value);
+        while (matcher.find()) {
+            double amount = Double.parseDouble(matcher.group(1));
+            nanos += switch (matcher.group(2)) {
+                case "ms" -> amount * 1e6;
+                case "s" -> amount * 1e9;
+                case "m" -> amount * 60e9;
+                default -> amount * 3600e9;
+            };
+        }
+        return (long) nanos;
+    }
+
+    private static long parseRetryAfterNanos(String value) {
+        try {
+            return value == null ? 0 : (long) (Double.parseDouble(value.trim()) * 1e9);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value == null ? -1 : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Held while a request is in flight; closing it frees the concurrency slot.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final ModelLimits modelLimits;
+        private boolean closed;
+
+        private Permit(ModelLimits modelLimits) {
+            this.modelLimits = modelLimits;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(modelLimits);
+            }
+        }
+    }
+
+    private record ProviderDefaults(int rpm, int tpm, int maxConcurrency) {
+    }
+
+    private static final class ModelLimits {
+
+        private final String key;
+        private final TokenBucket requests;
+        private final TokenBucket tokens;
+        private final int maxConcurrency;
+        private double concurrencyLimit;
+        private int inFlight;
+        private long blockedUntil;
+        private long lastDecrease;
+
+        ModelLimits(String key, ProviderDefaults defaults, long now) {
+            this.key = key;
+            this.requests = new TokenBucket(defaults.rpm(), now);
+            this.tokens = new TokenBucket(defaults.tpm(), now);
+            this.maxConcurrency = defaults.maxConcurrency();
+            this.concurrencyLimit = defaults.maxConcurrency();
+            this.blockedUntil = now;
+            this.lastDecrease = now - MINUTE_NANOS;
+        }
+
+        long nanosUntilAvailable(int tokenCost, long now) {
+            requests.refill(now);
+            tokens.refill(now);
+            long wait = Math.max(0, blockedUntil - now);
+            wait = Math.max(wait, requests.nanosUntil(1));
+            wait = Math.max(wait, tokens.nanosUntil(tokenCost));
+            if (wait == 0 && inFlight >= Math.floor(concurrencyLimit)) {
+                return MAX_WAIT_SLICE_NANOS;
+            }
+            return wait;
+        }
+
+        void take(int tokenCost) {
+            requests.take(1);
+            tokens.take(tokenCost);
+            inFlight++;
+        }
+
+        void blockUntil(long until) {
+            blockedUntil = Math.max(blockedUntil, until);
+        }
+
+        boolean decrease(long now) {
+            // At most one decrease per second, parallel 429s of one burst count once
+            if (now - lastDecrease < TimeUnit.SECONDS.toNanos(1)) {
+                return false;
+            }
+            lastDecrease = now;
+            concurrencyLimit = Math.max(1.0, concurrencyLimit / 2);
+            return true;
+        }
+
+        void increase() {
+            concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1.0 / concurrencyLimit);
+        }
+    }
+
+    /**
+     * Bucket refilled continuously at capacity per minute. A capacity of 0 or
+     * less means unlimited.
+     */
+    private static final class TokenBucket {
+
+        private double capacity;
+        private double available;
+        private long lastRefill;
+
+        TokenBucket(double capacity, long now) {
+            this.capacity = capacity;
+            this.available = capacity;
+            this.lastRefill = now;
+        }
+
+        void refill(long now) {
+            if (capacity > 0) {
+                available = Math.min(capacity, available + capacity * (now - lastRefill) / MINUTE_NANOS);
+            }
+            lastRefill = now;
+        }
+
+        long nanosUntil(double amount) {
+            if (capacity <= 0) {
+                return 0;
+            }
+            double needed = Math.min(amount, capacity) - available;
+            return needed <= 0 ? 0 : (long) Math.ceil(needed * MINUTE_NANOS / capacity);
+        }
+
+        void take(double amount) {
+            if (capacity > 0) {
+                available -= Math.min(amount, capacity);
+            }
+        }
+
+        void update(long limit, long remaining, long now) {
+            refill(now);
+            if (limit > 0) {
+                capacity = limit;
+            }
+            if (remaining >= 0 && capacity > 0) {
+                available = Math.min(available, remaining);
+            }
+        }
+
+        boolean isEmpty() {
+            return capacity > 0 && available < 1;
+        }
+    }
+}
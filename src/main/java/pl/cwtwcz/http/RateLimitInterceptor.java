@@ -0,0 +1,31 @@
+package pl.cwtwcz.http;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+/**
+ * Feeds the status and x-ratelimit-* headers of every response of a provider
+ * pool into the {@link ProviderRateLimiter}.
+ */
+class RateLimitInterceptor implements ClientHttpRequestInterceptor {
+
+    private final String provider;
+    private final ProviderRateLimiter rateLimiter;
+
+    RateLimitInterceptor(String provider, ProviderRateLimiter rateLimiter) {
+        this.provider = provider;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        ClientHttpResponse response = execution.execute(request, body);
+        rateLimiter.onResponse(provider, response.getStatusCode().value(), response.getHeaders()::getFirst);
+        return response;
+    }
+}
@@ -0,0 +1,250 @@
+package pl.cwtwcz.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Image preprocessing for vision requests that avoids full-size intermediate copies.
+ *
+ * Images are decoded from streams, downscaled with source subsampling at
+ * decode time when the target is at most half the source size, encoded with pooled
+ * ImageWriters and base64-encoded on the fly into pooled scratch buffers.
+ * The only full-size objects left are the decoded (already subsampled) image
+ * and the final base64 String handed to the request DTO.
+ */
+@Component
+public class ImagePipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImagePipeline.class);
+
+    /** Scratch buffers that grew beyond this are not returned to the pool. */
+    private static final int MAX_POOLED_SCRATCH = 32 * 1024 * 1024;
+
+    /** Idle scratch buffers kept for reuse; extra ones are left to the GC. */
+    private static final int MAX_POOLED_SCRATCH_BUFFERS = 4;
+
+    @Value("${custom.image.jpeg-quality:0.95}")
+    private float jpegQuality;
+
+    private final Map<String, Queue<ImageWriter>> writers = new ConcurrentHashMap<>();
+    private final Queue<ScratchBuffer> scratchBuffers = new ArrayBlockingQueue<>(MAX_POOLED_SCRATCH_BUFFERS);
+
+    /**
+     * Reads a file and returns its contents base64 encoded, without holding the raw bytes.
+     *
+     * @param file The file to encode.
+     * @return Base64 encoded contents.
+     */
+    public String readAsBase64(Path file) throws IOException {
+        ScratchBuffer scratch = borrowScratch(base64Length(Files.size(file)));
+        try {
+            try (InputStream in = Files.newInputStream(file);
+                    OutputStream base64 = Base64.getEncoder().wrap(scratch)) {
+                in.transferTo(base64);
+            }
+            return scratch.toAsciiString();
+        } finally {
+            releaseScratch(scratch);
+        }
+    }
+
+    /**
+     * Encodes an image in the given format (png, jpeg) straight to base64.
+     *
+     * @param image  The image to encode.
+     * @param format ImageIO format name.
+     * @return Base64 encoded image.
+     */
+    public String encodeBase64(BufferedImage image, String format) throws IOException {
+        ScratchBuffer scratch = borrowScratch(0);
+        try {
+            try (OutputStream base64 = Base64.getEncoder().wrap(scratch)) {
+                write(image, format, base64);
+            }
+            return scratch.toAsciiString();
+        } finally {
+            releaseScratch(scratch);
+        }
+    }
+
+    /**
+     * Encodes an image in the given format (png, jpeg) into a file.
+     */
+    public void write(BufferedImage image, String format, Path target) throws IOException {
+        try (OutputStream out = Files.newOutputStream(target)) {
+            write(image, format, out);
+        }
+    }
+
+    /**
+     * Scales base64 image data down to fit the given box and returns it as base64 JPEG.
+     *
+     * @param base64Data Base64 image data (without data URL prefix).
+     * @param maxWidth   Maximum width of the result.
+     * @param maxHeight  Maximum height of the result.
+     * @return The scaled image as base64 JPEG, or empty when the image already fits the box.
+     */
+    public Optional<String> scaleBase64ToJpeg(String base64Data, int maxWidth, int maxHeight) throws IOException {
+        InputStream encoded = Base64.getDecoder()
+                .wrap(new ByteArrayInputStream(base64Data.getBytes(StandardCharsets.ISO_8859_1)));
+        BufferedImage scaled = readScaled(encoded, maxWidth, maxHeight);
+        return scaled == null ? Optional.empty() : Optional.of(encodeBase64(scaled, "jpeg"));
+    }
+
+    /**
+     * Decodes an image, fitting it into the given box.
+     *
+     * @return The scaled image, or null when the source already fits and no decoding was needed.
+     */
+    public BufferedImage readScaled(InputStream encodedImage, int maxWidth, int maxHeight) throws IOException {
+        // Memory cache streams, so ImageIO never spills to temp files
+        try (ImageInputStream in = new MemoryCacheImageInputStream(encodedImage)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+
+                // Step 1. Work out the target size from the header only
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width <= maxWidth && height <= maxHeight) {
+                    logger.info("Image is already within size limits ({}x{}), no scaling needed", width, height);
+                    return null;
+                }
+                double ratio = Math.min((double) maxWidth / width, (double) maxHeight / height);
+                int newWidth = Math.max(1, (int) (width * ratio));
+                int newHeight = Math.max(1, (int) (height * ratio));
+
+                // Step 2. Subsample while decoding, never below the target size
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.min(width / newWidth, height / newHeight));
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage decoded = reader.read(0, param);
+
+                // Step 3. Finish with a bilinear resample to the exact size
+                BufferedImage scaled = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g2d = scaled.createGraphics();
+                g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g2d.drawImage(decoded, 0, 0, newWidth, newHeight, null);
+                g2d.dispose();
+
+                logger.info("Scaled image from {}x{} to {}x{} (decode subsampling: {})", width, height, newWidth,
+                        newHeight, subsampling);
+                return scaled;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void write(BufferedImage image, String format, OutputStream out) throws IOException {
+        String key = format.toLowerCase(Locale.ROOT);
+        Queue<ImageWriter> pool = writers.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>());
+        ImageWriter writer = pool.poll();
+        if (writer == null) {
+            Iterator<ImageWriter> available = ImageIO.getImageWritersByFormatName(key);
+            if (!available.hasNext()) {
+                throw new IOException("No ImageWriter for format: " + format);
+            }
+            writer = available.next();
+        }
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed() && ("jpeg".equals(key) || "jpg".equals(key))) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+            }
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.reset();
+            pool.offer(writer);
+        }
+    }
+
+    private ScratchBuffer borrowScratch(long expectedSize) {
+        ScratchBuffer scratch = scratchBuffers.poll();
+        if (scratch == null) {
+            scratch = new ScratchBuffer((int) Math.min(Math.max(expectedSize, 64 * 1024), MAX_POOLED_SCRATCH));
+        }
+        scratch.ensureCapacity(expectedSize);
+        return scratch;
+    }
+
+    private void releaseScratch(ScratchBuffer scratch) {
+        if (scratch.capacity() <= MAX_POOLED_SCRATCH) {
+            scratch.reset();
+            scratchBuffers.offer(scratch);
+        }
+    }
+
+    private static long base64Length(long size) {
+        return 4 * ((size + 2) / 3);
+    }
+
+    /**
+     * ByteArrayOutputStream that exposes its capacity and builds a String without an extra array copy.
+     */
+    private static class ScratchBuffer extends ByteArrayOutputStream {
+
+        ScratchBuffer(int size) {
+            super(size);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        void ensureCapacity(long size) {
+            // Only called on an empty buffer, so nothing needs to be copied
+            if (size > buf.length && size <= Integer.MAX_VALUE - 8) {
+                buf = new byte[(int) size];
+            }
+        }
+
+        String toAsciiString() {
+            // Base64 output is ASCII, so Latin-1 gives a compact String in one copy
+            return new String(buf, 0, count, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
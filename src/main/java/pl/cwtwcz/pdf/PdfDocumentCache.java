@@ -0,0 +1,168 @@
+package pl.cwtwcz.pdf;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Bounded LRU cache of parsed PDF documents keyed by path and modification time.
+ *
+ * PDDocument is not thread-safe, so work on a cached document runs while
+ * holding its lock; callers that need parallelism (page rendering) open
+ * private copies with {@link #open(String)} instead. A document is reloaded
+ * when the file changes and closed when it falls out of the cache. Documents
+ * are parsed outside the cache lock; concurrent callers for the same path wait
+ * for the one load in progress.
+ */
+@Component
+public class PdfDocumentCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfDocumentCache.class);
+
+    @Value("${custom.pdf.document-cache-size:4}")
+    private int maxDocuments;
+
+    private final Map<String, CachedDocument> documents = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Work on an open document.
+     */
+    @FunctionalInterface
+    public interface DocumentWork<T> {
+        T apply(PDDocument document) throws IOException;
+    }
+
+    /**
+     * Runs work on the cached document for the given path, loading it on first use
+     * or when the file was modified since it was loaded.
+     */
+    public <T> T withDocument(String pdfPath, DocumentWork<T> work) throws IOException {
+        CachedDocument cached = acquire(pdfPath);
+        synchronized (cached) {
+            if (cached.closed) {
+                // Evicted between lookup and lock, retry with a fresh entry
+                return withDocument(pdfPath, work);
+            }
+            return work.apply(cached.document());
+        }
+    }
+
+    /**
+     * Opens a private (uncached) copy of the document. The caller must close it.
+     */
+    public PDDocument open(String pdfPath) throws IOException {
+        return Loader.loadPDF(new File(pdfPath));
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        List<CachedDocument> toClose;
+        synchronized (documents) {
+            toClose = new ArrayList<>(documents.values());
+            documents.clear();
+        }
+        toClose.forEach(this::close);
+    }
+
+    private CachedDocument acquire(String pdfPath) throws IOException {
+        File file = new File(pdfPath);
+        String key = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        List<CachedDocument> evicted = new ArrayList<>();
+        CachedDocument cached;
+        boolean load = false;
+
+        // Step 1. Find the entry or register a new one, without parsing under the lock
+        synchronized (documents) {
+            cached = documents.get(key);
+            if (cached != null && cached.lastModified != lastModified) {
+                documents.remove(key);
+                evicted.add(cached);
+                cached = null;
+            }
+            if (cached == null) {
+                cached = new CachedDocument(lastModified);
+                documents.put(key, cached);
+                load = true;
+                Iterator<CachedDocument> eldest = documents.values().iterator();
+                while (documents.size() > Math.max(1, maxDocuments)) {
+                    evicted.add(eldest.next());
+                    eldest.remove();
+                }
+            }
+        }
+        evicted.forEach(this::close);
+
+        // Step 2. Parse a new entry; other callers for the path wait on its future
+        if (load) {
+            try {
+                PDDocument document = Loader.loadPDF(file);
+                logger.info("Loaded PDF {} into document cache ({} pages)", key, document.getNumberOfPages());
+                cached.loaded.complete(document);
+            } catch (IOException | RuntimeException e) {
+                cached.loaded.completeExceptionally(e);
+                synchronized (documents) {
+                    documents.remove(key, cached);
+                }
+                throw e;
+            }
+        }
+        cached.document();
+        return cached;
+    }
+
+    private void close(CachedDocument cached) {
+        synchronized (cached) {
+            cached.closed = true;
+        }
+        // A document that is still loading is closed once the load completes
+        cached.loaded.thenAccept(document -> {
+            synchronized (cached) {
+                try {
+                    document.close();
+                } catch (IOException e) {
+                    logger.warn("Error closing cached PDF document: {}", e.getMessage());
+                }
+            }
+        });
+    }
+
+    private static class CachedDocument {
+        final CompletableFuture<PDDocument> loaded = new CompletableFuture<>();
+        final long lastModified;
+        boolean closed;
+
+        CachedDocument(long lastModified) {
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Waits for the document to be loaded.
+         */
+        PDDocument document() throws IOException {
+            try {
+                return loaded.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw e;
+            }
+        }
+    }
+}
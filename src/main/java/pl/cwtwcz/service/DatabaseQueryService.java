@@ -236,4 +236,165 @@ public class DatabaseQueryService {
     public String countIncorrectStoryAnswers() {
         return "SELECT COUNT(*) FROM story_answers WHERE is_correct = 0";
     }
-} 
\ No newline at end of file
+
+    // Completion cache queries for OpenAiAdapter
+
+    /**
+     * Tworzy tabelę do przechowywania odpowiedzi LLM (cache dyskowy)
+     */
+    public String createCompletionCacheTable() {
+        return """
+            CREATE TABLE IF NOT EXISTS completion_cache (
+                cache_key TEXT PRIMARY KEY,
+                model TEXT,
+                completion TEXT NOT NULL,
+                created_at INTEGER NOT NULL,
+                last_access INTEGER NOT NULL
+            )
+        """;
+    }
+
+    /**
+     * Zapytanie do pobrania odpowiedzi z cache (tylko nieprzeterminowanej)
+     */
+    public String selectCompletionCacheEntry() {
+        return "SELECT completion FROM completion_cache WHERE cache_key = ? AND created_at >= ?";
+    }
+
+    /**
+     * Zapytanie do wstawienia lub aktualizacji odpowiedzi w cache
+     */
+    public String insertOrReplaceCompletionCacheEntry() {
+        return "INSERT OR REPLACE INTO completion_cache (cache_key, model, completion, created_at, last_access) VALUES (?, ?, ?, ?, ?)";
+    }
+
+    /**
+     * Zapytanie do aktualizacji czasu ostatniego dostępu do wpisu w cache
+     */
+    public String touchCompletionCacheEntry() {
+        return "UPDATE completion_cache SET last_access = ? WHERE cache_key = ?";
+    }
+
+    /**
+     * Zapytanie do usunięcia przeterminowanych wpisów z cache
+     */
+    public String deleteExpiredCompletionCacheEntries() {
+        return "DELETE FROM completion_cache WHERE created_at < ?";
+    }
+
+    /**
+     * Zapytanie do usunięcia najdawniej używanych wpisów ponad limit rozmiaru cache
+     */
+    public String deleteLeastRecentlyUsedCompletionCacheEntries() {
+        return """
+            DELETE FROM completion_cache WHERE cache_key IN (
+                SELECT cache_key FROM completion_cache ORDER BY last_access DESC LIMIT -1 OFFSET ?
+            )
+        """;
+    }
+
+    /**
+     * Zapytanie do usunięcia wszystkich wpisów z cache
+     */
+    public String deleteAllCompletionCacheEntries() {
+        return "DELETE FROM completion_cache";
+    }
+
+    /**
+     * Tworzy tabelę indeksu magazynu artefaktów (transkrypcje, opisy obrazów, strony PDF)
+     */
+    public String createArtifactIndexTable() {
+        return """
+            CREATE TABLE IF NOT EXISTS artifacts (
+                artifact_key TEXT PRIMARY KEY,
+                source_hash TEXT NOT NULL,
+                derivation TEXT NOT NULL,
+                file_name TEXT NOT NULL,
+                size INTEGER NOT NULL,
+                created_at INTEGER NOT NULL,
+                last_access INTEGER NOT NULL
+            )
+        """;
+    }
+
+    /**
+     * Zapytanie do pobrania ścieżki artefaktu po kluczu
+     */
+    public String selectArtifactFileName() {
+        return "SELECT file_name FROM artifacts WHERE artifact_key = ?";
+    }
+
+    /**
+     * Zapytanie do wstawienia lub aktualizacji wpisu w indeksie artefaktów
+     */
+    public String insertOrReplaceArtifact() {
+        return "INSERT OR REPLACE INTO artifacts (artifact_key, source_hash, derivation, file_name, size, created_at, last_access) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    /**
+     * Zapytanie do aktualizacji czasu ostatniego dostępu do artefaktu
+     */
+    public String touchArtifact() {
+        return "UPDATE artifacts SET last_access = ? WHERE artifact_key = ?";
+    }
+
+    /**
+     * Zapytanie do pobrania łącznego rozmiaru artefaktów
+     */
+    public String selectArtifactsTotalSize() {
+        return "SELECT COALESCE(SUM(size), 0) FROM artifacts";
+    }
+
+    /**
+     * Zapytanie do pobrania najdawniej używanych artefaktów (kandydaci do usunięcia)
+     */
+    public String selectLeastRecentlyUsedArtifacts() {
+        return "SELECT artifact_key, file_name, size FROM artifacts ORDER BY last_access ASC LIMIT ?";
+    }
+
+    /**
+     * Zapytanie do usunięcia wpisu z indeksu artefaktów
+     */
+    public String deleteArtifact() {
+        return "DELETE FROM artifacts WHERE artifact_key = ?";
+    }
+
+    /**
+     * Tworzy tabelę zapisanych stron (HTML, wyciągnięty tekst, linki, walidatory HTTP)
+     */
+    public String createPageSnapshotsTable() {
+        return """
+            CREATE TABLE IF NOT EXISTS page_snapshots (
+                url TEXT PRIMARY KEY,
+                html TEXT NOT NULL,
+                text TEXT NOT NULL,
+                links TEXT NOT NULL,
+                etag TEXT,
+                last_modified TEXT,
+                fetched_at INTEGER NOT NULL,
+                validated_at INTEGER NOT NULL
+            )
+        """;
+    }
+
+    /**
+     * Zapytanie do pobrania zapisanej strony po URL
+     */
+    public String selectPageSnapshot() {
+        return "SELECT html, text, links, etag, last_modified, validated_at FROM page_snapshots WHERE url = ?";
+    }
+
+    /**
+     * Zapytanie do wstawienia lub aktualizacji zapisanej strony
+     */
+    public String insertOrReplacePageSnapshot() {
+        return "INSERT OR REPLACE INTO page_snapshots (url, html, text, links, etag, last_modified, fetched_at, validated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    /**
+     * Zapytanie do aktualizacji czasu ostatniej walidacji strony (odpowiedź 304)
+     */
+    public String touchPageSnapshot() {
+        return "UPDATE page_snapshots SET validated_at = ? WHERE url = ?";
+    }
+}
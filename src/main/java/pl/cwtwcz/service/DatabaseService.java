@@ -2,23 +2,63 @@ package pl.cwtwcz.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
+
+import pl.cwtwcz.db.PooledConnection;
+import pl.cwtwcz.db.RowMapper;
+import pl.cwtwcz.db.SqlStatement;
+import pl.cwtwcz.db.SqliteConnectionPool;
+import pl.cwtwcz.db.SqliteSettings;
+
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 public class DatabaseService {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseService.class);
 
+    @Value("${custom.sqlite.readers:4}")
+    private int readers;
+
+    @Value("${custom.sqlite.statement-cache-size:64}")
+    private int statementCacheSize;
+
+    @Value("${custom.sqlite.mmap-size:268435456}")
+    private long mmapSize;
+
+    @Value("${custom.sqlite.cache-size:-65536}")
+    private long cacheSize;
+
+    @Value("${custom.sqlite.busy-timeout-ms:5000}")
+    private int busyTimeoutMillis;
+
+    @Value("${custom.sqlite.batch-chunk-size:500}")
+    private int batchChunkSize;
+
+    @Value("${custom.sqlite.fetch-size:256}")
+    private int defaultFetchSize;
+
+    private final Map<String, SqliteConnectionPool> pools = new ConcurrentHashMap<>();
+
     /**
      * Wykonuje zapytanie DDL (CREATE, DROP, ALTER) na bazie SQLite
      */
     public void executeDDL(String dbPath, String ddlQuery) {
-        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(ddlQuery);
+        try {
+            pool(dbPath).withWriter(conn -> {
+                try (Statement stmt = conn.getConnection().createStatement()) {
+                    stmt.execute(ddlQuery);
+                }
+                return null;
+            });
             logger.debug("DDL executed successfully: {}", ddlQuery.substring(0, Math.min(ddlQuery.length(), 50)));
         } catch (SQLException e) {
             logger.error("Error executing DDL: {}", e.getMessage(), e);
@@ -30,11 +70,12 @@ public class DatabaseService {
      * Wykonuje zapytanie INSERT/UPDATE/DELETE na bazie SQLite
      */
     public int executeUpdate(String dbPath, String query, Object... parameters) {
-        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            setParameters(stmt, parameters);
-            int rowsAffected = stmt.executeUpdate();
+        try {
+            int rowsAffected = pool(dbPath).withWriter(conn -> {
+                PreparedStatement stmt = conn.prepare(query);
+                setParameters(stmt, parameters);
+                return stmt.executeUpdate();
+            });
             logger.debug("Update executed, rows affected: {}", rowsAffected);
             return rowsAffected;
         } catch (SQLException e) {
@@ -43,30 +84,99 @@ public class DatabaseService {
         }
     }
 
+    /**
+     * Wykonuje to samo zapytanie INSERT/UPDATE/DELETE dla wielu zestawów parametrów
+     * w jednej transakcji (domyślny rozmiar porcji z custom.sqlite.batch-chunk-size)
+     */
+    public int[] executeBatch(String dbPath, String query, List<Object[]> parameterRows) {
+        return executeBatch(dbPath, query, parameterRows, batchChunkSize);
+    }
+
+    /**
+     * Wykonuje to samo zapytanie dla wielu zestawów parametrów w jednej transakcji,
+     * wysyłając addBatch/executeBatch w porcjach po chunkSize wierszy.
+     * Zwraca liczbę zmienionych wierszy dla każdego zestawu parametrów (w kolejności wejścia).
+     */
+    public int[] executeBatch(String dbPath, String query, List<Object[]> parameterRows, int chunkSize) {
+        if (parameterRows.isEmpty()) {
+            return new int[0];
+        }
+        int chunk = Math.max(1, chunkSize);
+        try {
+            int[] counts = inWriteTransaction(dbPath, pooled -> {
+                PreparedStatement stmt = pooled.prepare(query);
+                int[] rowCounts = new int[parameterRows.size()];
+                int written = 0;
+                for (int i = 0; i < parameterRows.size(); i++) {
+                    setParameters(stmt, parameterRows.get(i));
+                    stmt.addBatch();
+                    if ((i + 1) % chunk == 0 || i == parameterRows.size() - 1) {
+                        int[] chunkCounts = stmt.executeBatch();
+                        System.arraycopy(chunkCounts, 0, rowCounts, written, chunkCounts.length);
+                        written += chunkCounts.length;
+                    }
+                }
+                return rowCounts;
+            });
+            logger.debug("Batch executed, {} parameter sets in one transaction", counts.length);
+            return counts;
+        } catch (SQLException e) {
+            logger.error("Error executing batch: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to execute batch: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Wykonuje listę różnych zapytań modyfikujących w jednej transakcji (group commit).
+     * Zwraca łączną liczbę zmienionych wierszy.
+     */
+    public int executeUpdates(String dbPath, List<SqlStatement> statements) {
+        if (statements.isEmpty()) {
+            return 0;
+        }
+        try {
+            int total = inWriteTransaction(dbPath, pooled -> {
+                int rows = 0;
+                for (SqlStatement statement : statements) {
+                    PreparedStatement stmt = pooled.prepare(statement.sql());
+                    setParameters(stmt, statement.parameters());
+                    rows += stmt.executeUpdate();
+                }
+                return rows;
+            });
+            logger.debug("{} statements executed in one transaction, {} rows affected", statements.size(), total);
+            return total;
+        } catch (SQLException e) {
+            logger.error("Error executing updates: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to execute updates: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Wykonuje zapytanie SELECT i zwraca listę map (kolumna -> wartość)
      */
     public List<Map<String, Object>> executeQuery(String dbPath, String query, Object... parameters) {
-        List<Map<String, Object>> results = new ArrayList<>();
-        
-        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            setParameters(stmt, parameters);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                ResultSetMetaData metaData = rs.getMetaData();
-                int columnCount = metaData.getColumnCount();
-                
-                while (rs.next()) {
-                    Map<String, Object> row = new HashMap<>();
-                    for (int i = 1; i <= columnCount; i++) {
-                        row.put(metaData.getColumnName(i), rs.getObject(i));
+        try {
+            List<Map<String, Object>> results = pool(dbPath).withReader(conn -> {
+                PreparedStatement stmt = conn.prepare(query);
+                setParameters(stmt, parameters);
+
+                List<Map<String, Object>> rows = new ArrayList<>();
+                try (ResultSet rs = stmt.executeQuery()) {
+                    ResultSetMetaData metaData = rs.getMetaData();
+                    int columnCount = metaData.getColumnCount();
+
+                    while (rs.next()) {
+                        Map<String, Object> row = new HashMap<>();
+                        for (int i = 1; i <= columnCount; i++) {
+                            row.put(metaData.getColumnName(i), rs.getObject(i));
+                        }
+                        rows.add(row);
                     }
-                    results.add(row);
                 }
-            }
-            
+                return rows;
+            });
+
             logger.debug("Query executed, {} rows returned", results.size());
             return results;
         } catch (SQLException e) {
@@ -76,20 +186,113 @@ public class DatabaseService {
     }
 
     /**
-     * Wykonuje zapytanie SELECT i zwraca pierwszą wartość z pierwszego wiersza
+     * Wykonuje zapytanie SELECT i mapuje każdy wiersz przez RowMapper (bez pośrednich map)
      */
-    public Object executeSingleValue(String dbPath, String query, Object... parameters) {
-        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
+    public <T> List<T> query(String dbPath, String query, RowMapper<T> rowMapper, Object... parameters) {
+        List<T> results = new ArrayList<>();
+        queryForEach(dbPath, query, defaultFetchSize, rs -> results.add(rowMapper.mapRow(rs, results.size())),
+                parameters);
+        return results;
+    }
+
+    /**
+     * Wykonuje zapytanie SELECT i przekazuje kolejne wiersze do callbacku,
+     * nie trzymając całego wyniku w pamięci
+     */
+    public void queryForEach(String dbPath, String query, int fetchSize, RowCallback callback,
+            Object... parameters) {
+        try {
+            int rows = pool(dbPath).withReader(conn -> {
+                PreparedStatement stmt = conn.prepare(query);
+                stmt.setFetchSize(fetchSize);
+                setParameters(stmt, parameters);
+
+                int count = 0;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        callback.processRow(rs);
+                        count++;
+                    }
+                }
+                return count;
+            });
+            logger.debug("Query executed, {} rows processed", rows);
+        } catch (SQLException e) {
+            logger.error("Error executing query: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to execute query: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Wykonuje zapytanie SELECT i zwraca leniwy strumień zmapowanych wierszy.
+     * Strumień trzyma połączenie odczytujące do czasu zamknięcia - używać w try-with-resources.
+     */
+    public <T> Stream<T> queryStream(String dbPath, String query, int fetchSize, RowMapper<T> rowMapper,
+            Object... parameters) {
+        SqliteConnectionPool pool = pool(dbPath);
+        PooledConnection conn;
+        ResultSet rs;
+        try {
+            conn = pool.acquireReader();
+        } catch (SQLException e) {
+            logger.error("Error executing query: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to execute query: " + e.getMessage(), e);
+        }
+        try {
+            PreparedStatement stmt = conn.prepare(query);
+            stmt.setFetchSize(fetchSize);
             setParameters(stmt, parameters);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getObject(1);
+            rs = stmt.executeQuery();
+        } catch (SQLException e) {
+            pool.releaseReader(conn);
+            logger.error("Error executing query: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to execute query: " + e.getMessage(), e);
+        }
+
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private int rowNum;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    action.accept(rowMapper.mapRow(rs, rowNum++));
+                    return true;
+                } catch (SQLException e) {
+                    throw new RuntimeException("Failed to read query row: " + e.getMessage(), e);
                 }
-                return null;
             }
+        };
+        return StreamSupport.stream(rows, false).onClose(() -> {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                logger.warn("Error closing result set: {}", e.getMessage());
+            } finally {
+                pool.releaseReader(conn);
+            }
+        });
+    }
+
+    /**
+     * Wykonuje zapytanie SELECT i zwraca pierwszą wartość z pierwszego wiersza
+     */
+    public Object executeSingleValue(String dbPath, String query, Object... parameters) {
+        try {
+            return pool(dbPath).withReader(conn -> {
+                PreparedStatement stmt = conn.prepare(query);
+                setParameters(stmt, parameters);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getObject(1);
+                    }
+                    return null;
+                }
+            });
         } catch (SQLException e) {
             logger.error("Error executing single value query: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to execute single value query: " + e.getMessage(), e);
@@ -118,23 +321,56 @@ public class DatabaseService {
     }
 
     /**
-     * Wykonuje operację w transakcji
+     * Wykonuje operację w transakcji (na połączeniu zapisującym)
      */
     public <T> T executeInTransaction(String dbPath, TransactionCallback<T> callback) {
-        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath)) {
+        try {
+            return inWriteTransaction(dbPath, pooled -> callback.execute(pooled.getConnection()));
+        } catch (SQLException e) {
+            logger.error("Error executing transaction: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to execute transaction: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Zamyka wszystkie pule połączeń przy zamykaniu aplikacji
+     */
+    @PreDestroy
+    public void closeAll() {
+        pools.values().forEach(SqliteConnectionPool::close);
+        pools.clear();
+    }
+
+    /**
+     * Wykonuje pracę na połączeniu zapisującym w jednej transakcji (rollback przy błędzie)
+     */
+    private <T> T inWriteTransaction(String dbPath, SqliteConnectionPool.SqlWork<T> work) throws SQLException {
+        return pool(dbPath).withWriter(pooled -> {
+            Connection conn = pooled.getConnection();
             conn.setAutoCommit(false);
             try {
-                T result = callback.execute(conn);
+                T result = work.apply(pooled);
                 conn.commit();
                 return result;
-            } catch (Exception e) {
+            } catch (SQLException | RuntimeException e) {
                 conn.rollback();
                 throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
-        } catch (SQLException e) {
-            logger.error("Error executing transaction: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to execute transaction: " + e.getMessage(), e);
-        }
+        });
+    }
+
+    /**
+     * Zwraca pulę połączeń dla pliku bazy (tworzoną przy pierwszym użyciu)
+     */
+    private SqliteConnectionPool pool(String dbPath) {
+        return pools.computeIfAbsent(dbPath, path -> {
+            logger.info("Creating SQLite pool for {} (1 writer, {} readers, statement cache: {})",
+                    path, readers, statementCacheSize);
+            return new SqliteConnectionPool(path,
+                    new SqliteSettings(readers, statementCacheSize, mmapSize, cacheSize, busyTimeoutMillis));
+        });
     }
 
     /**
@@ -161,6 +397,14 @@ public class DatabaseService {
         }
     }
 
+    /**
+     * Interface dla przetwarzania kolejnych wierszy wyniku
+     */
+    @FunctionalInterface
+    public interface RowCallback {
+        void processRow(ResultSet rs) throws SQLException;
+    }
+
     /**
      * Interface dla operacji w transakcji
      */
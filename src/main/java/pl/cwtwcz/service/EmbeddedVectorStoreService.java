@@ -0,0 +1,198 @@
+package pl.cwtwcz.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+import pl.cwtwcz.utils.StringUtils;
+import pl.cwtwcz.vector.HnswIndex;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process vector store backed by an HNSW index per collection.
+ *
+ * Used instead of {@link QdrantService} when custom.vector.store=embedded, so
+ * vector search works without any outside service. When a snapshot directory
+ * is configured, collections are saved after bulk upserts and on shutdown and
+ * are memory-mapped back on the next createCollection call.
+ */
+@ConditionalOnProperty(name = "custom.vector.store", havingValue = "embedded")
+@Service
+public class EmbeddedVectorStoreService implements VectorStoreService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedVectorStoreService.class);
+
+    @Value("${custom.vector.embedded.snapshot-dir:}")
+    private String snapshotDir;
+
+    @Value("${custom.vector.embedded.m:16}")
+    private int m;
+
+    @Value("${custom.vector.embedded.ef-construction:200}")
+    private int efConstruction;
+
+    @Value("${custom.vector.embedded.ef-search:64}")
+    private int efSearch;
+
+    private final Map<String, HnswIndex> collections = new ConcurrentHashMap<>();
+    private final Set<String> dirtyCollections = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void createCollection(String collectionName, int vectorSize) {
+        collections.compute(collectionName, (name, existing) -> {
+            if (existing != null && existing.getDimension() == vectorSize) {
+                logger.info("Collection {} already exists ({} documents)", name, existing.size());
+                return existing;
+            }
+
+            // Step 1. Try to restore a snapshot
+            HnswIndex restored = loadSnapshot(name);
+            if (restored != null && restored.getDimension() == vectorSize) {
+                logger.info("Restored collection {} from snapshot ({} documents)", name, restored.size());
+                return restored;
+            }
+
+            // Step 2. Create an empty index
+            logger.info("Created embedded collection: {} with vector size {}", name, vectorSize);
+            return new HnswIndex(vectorSize, m, efConstruction);
+        });
+    }
+
+    @Override
+    public void indexDocument(String collectionName, String documentId,
+                              List<Float> vector, Map<String, String> metadata) {
+        indexDocument(collectionName, documentId, VectorStoreService.toArray(vector), metadata);
+    }
+
+    @Override
+    public void indexDocument(String collectionName, String documentId,
+                              float[] vector, Map<String, String> metadata) {
+        if (getCollection(collectionName).add(documentId, vector, metadata)) {
+            dirtyCollections.add(collectionName);
+        }
+        logger.debug("Indexed document with ID: {} in embedded collection {}", documentId, collectionName);
+    }
+
+    @Override
+    public UpsertReport upsertPoints(String collectionName, List<Point> points) {
+        long start = System.nanoTime();
+        HnswIndex index = getCollection(collectionName);
+        int changed = 0;
+        for (Point point : points) {
+            if (index.add(point.getDocumentId(), point.getVector(), point.getPayload())) {
+                changed++;
+            }
+        }
+        if (changed > 0) {
+            dirtyCollections.add(collectionName);
+            saveSnapshot(collectionName);
+        }
+        logger.info("{} of {} points new or changed in embedded collection {}", changed, points.size(),
+                collectionName);
+
+        UpsertReport report = new UpsertReport(points.size(), 1, (System.nanoTime() - start) / 1_000_000,
+                "embedded");
+        logger.info("Upserted {} points into embedded collection {} in {} ms ({} points/s)",
+                report.getPoints(), collectionName, report.getElapsedMillis(),
+                String.format("%.1f", report.getPointsPerSecond()));
+        return report;
+    }
+
+    @Override
+    public SearchResult searchSimilar(String collectionName, List<Float> queryVector, int limit) {
+        List<SearchResult> results = search(collectionName,
+                new SearchQuery(VectorStoreService.toArray(queryVector), limit));
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    @Override
+    public List<SearchResult> search(String collectionName, SearchQuery query) {
+        HnswIndex index = getCollection(collectionName);
+        int limit = query.getLimit();
+        boolean filtered = !query.getConditions().isEmpty();
+
+        // Step 1. Over-fetch when filtering, widening until enough hits pass or the index is exhausted
+        int candidates = filtered ? Math.max(limit * 4, efSearch) : limit;
+        List<SearchResult> results = new ArrayList<>();
+        while (true) {
+            List<HnswIndex.Hit> hits = index.search(query.getVector(), candidates, Math.max(efSearch, candidates));
+            results.clear();
+            boolean belowThreshold = false;
+            for (HnswIndex.Hit hit : hits) {
+                if (query.getScoreThreshold() != null && hit.score() < query.getScoreThreshold()) {
+                    belowThreshold = true;
+                    break;
+                }
+                if (filtered && !query.getConditions().stream().allMatch(c -> c.matches(hit.payload()))) {
+                    continue;
+                }
+                // Step 2. Project the vector only when requested
+                float[] vector = query.isWithVector() ? index.getVector(hit) : null;
+                results.add(new SearchResult(hit.score(), new HashMap<>(hit.payload()), vector));
+                if (results.size() == limit) {
+                    break;
+                }
+            }
+            if (results.size() >= limit || belowThreshold || hits.size() < candidates
+                    || candidates >= index.size()) {
+                return results;
+            }
+            candidates *= 2;
+        }
+    }
+
+    @PreDestroy
+    public void saveAllSnapshots() {
+        for (String collectionName : Set.copyOf(dirtyCollections)) {
+            saveSnapshot(collectionName);
+        }
+    }
+
+    private HnswIndex getCollection(String collectionName) {
+        HnswIndex index = collections.get(collectionName);
+        if (index == null) {
+            throw new IllegalStateException("Collection does not exist: " + collectionName
+                    + ". Call createCollection first.");
+        }
+        return index;
+    }
+
+    private HnswIndex loadSnapshot(String collectionName) {
+        if (StringUtils.isEmpty(snapshotDir)) {
+            return null;
+        }
+        try {
+            return HnswIndex.load(Paths.get(snapshotDir), collectionName, m, efConstruction);
+        } catch (IOException e) {
+            logger.warn("Could not restore snapshot of collection {}: {}", collectionName, e.getMessage());
+            return null;
+        }
+    }
+
+    private void saveSnapshot(String collectionName) {
+        if (StringUtils.isEmpty(snapshotDir) || !dirtyCollections.remove(collectionName)) {
+            return;
+        }
+        try {
+            Path dir = Paths.get(snapshotDir);
+            collections.get(collectionName).save(dir, collectionName);
+            logger.info("Saved snapshot of embedded collection {} to {}", collectionName, dir);
+        } catch (IOException e) {
+            dirtyCollections.add(collectionName);
+            logger.error("Error saving snapshot of collection {}: {}", collectionName, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package pl.cwtwcz.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+
+import pl.cwtwcz.text.InvertedIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one {@link InvertedIndex} per directory of fact (or report) files.
+ *
+ * The first call for a directory reads and indexes all files. Later calls
+ * only compare modification times and sizes: unchanged directories return the
+ * same index without reading anything, otherwise only the added and modified
+ * files are read and re-indexed and deleted files are dropped.
+ */
+@RequiredArgsConstructor
+@Service
+public class FactIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FactIndexService.class);
+
+    private final FileService fileService;
+    private final TextAnalysisService textAnalysisService;
+
+    private final Map<String, DirectoryIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the index of the files in a directory, updated to their current state.
+     *
+     * @param directoryPath The directory with the files.
+     * @param fileExtension File extension filter (e.g. ".txt"), an empty string for all files.
+     * @return Index of the directory's files, keyed by filename.
+     */
+    public InvertedIndex index(String directoryPath, String fileExtension) {
+        DirectoryIndex directory = indexes.computeIfAbsent(directoryPath + "|" + fileExtension,
+                key -> new DirectoryIndex());
+        synchronized (directory) {
+            // Step 1. Current files with their modification time and size
+            Map<String, String> files = fileService.listFilesInDirectory(directoryPath, fileExtension, null);
+            Map<String, FileStamp> stamps = new HashMap<>();
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                stamps.put(file.getKey(), stamp(Paths.get(file.getValue())));
+            }
+
+            // Step 2. Diff against the indexed state
+            Map<String, String> changedPaths = new TreeMap<>();
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                FileStamp stamp = stamps.get(file.getKey());
+                if (stamp == null || !Objects.equals(stamp, directory.stamps.get(file.getKey()))) {
+                    changedPaths.put(file.getKey(), file.getValue());
+                }
+            }
+            List<String> removed = new ArrayList<>();
+            for (String filename : directory.stamps.keySet()) {
+                if (!files.containsKey(filename)) {
+                    removed.add(filename);
+                }
+            }
+            if (directory.index != null && changedPaths.isEmpty() && removed.isEmpty()) {
+                logger.info("Index of {} is up to date ({} files)", directoryPath, directory.index.size());
+                return directory.index;
+            }
+
+            // Step 3. Read and index only what changed
+            Map<String, String> contents = fileService.readMultipleFiles(changedPaths);
+            for (String filename : changedPaths.keySet()) {
+                if (!contents.containsKey(filename)) {
+                    // Unreadable now: drop the stale content, the file is retried on the next call
+                    logger.warn("Cannot read changed file {} in {}, removing it from the index until it is readable",
+                            filename, directoryPath);
+                    stamps.put(filename, null);
+                    if (directory.stamps.containsKey(filename)) {
+                        removed.add(filename);
+                    }
+                }
+            }
+            InvertedIndex base = directory.index != null ? directory.index
+                    : InvertedIndex.empty(textAnalysisService::extractEntities);
+            directory.index = base.update(contents, removed);
+            directory.stamps = stamps;
+
+            logger.info("Indexed {} changed and {} removed files in {}: {} files, {} terms, {} posting bytes",
+                    contents.size(), removed.size(), directoryPath, directory.index.size(),
+                    directory.index.termCount(), directory.index.postingBytes());
+            return directory.index;
+        }
+    }
+
+    private static FileStamp stamp(Path path) {
+        try {
+            return new FileStamp(Files.getLastModifiedTime(path).toMillis(), Files.size(path));
+        } catch (IOException e) {
+            logger.warn("Cannot stat {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class DirectoryIndex {
+        private InvertedIndex index;
+        private Map<String, FileStamp> stamps = Map.of();
+    }
+
+    private record FileStamp(long modifiedMillis, long size) {
+    }
+}
@@ -4,28 +4,24 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.beans.factory.annotation.Value;
+import jakarta.annotation.PreDestroy;
+import pl.cwtwcz.http.FileDownloader;
+import pl.cwtwcz.image.ImagePipeline;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URI;
-import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Base64;
 import lombok.RequiredArgsConstructor;
 import java.util.Map;
-import java.util.HashMap;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
-import javax.imageio.ImageWriter;
-import javax.imageio.ImageWriteParam;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import javax.imageio.stream.ImageOutputStream;
+import java.util.LinkedHashMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 @RequiredArgsConstructor
 @Service
@@ -33,6 +29,23 @@ public class FileService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileService.class);
     private final ObjectMapper objectMapper;
+    private final FileDownloader fileDownloader;
+    private final ImagePipeline imagePipeline;
+
+    @Value("${custom.file.read-concurrency:16}")
+    private int readConcurrency;
+
+    private final ExecutorService readExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Result of a bulk read.
+     *
+     * @param contents      Filename to content, ordered by filename.
+     * @param totalBytes    Total size of the files that were read.
+     * @param elapsedMillis Wall-clock time of the whole read.
+     */
+    public record BulkReadResult(Map<String, String> contents, long totalBytes, long elapsedMillis) {
+    }
 
     /**
      * Reads a JSON file from the specified path and maps it to a Java object.
@@ -69,9 +82,7 @@ public class FileService {
     public String readFileAsBase64(String filePath) {
         logger.info("Reading file as base64: {}", filePath);
         try {
-            Path path = Paths.get(filePath);
-            byte[] fileBytes = Files.readAllBytes(path);
-            return Base64.getEncoder().encodeToString(fileBytes);
+            return imagePipeline.readAsBase64(Paths.get(filePath));
         } catch (Exception e) {
             throw new RuntimeException("Failed to read file as base64: " + filePath, e);
         }
@@ -133,23 +144,28 @@ public class FileService {
 
     /**
      * Downloads a file from URL to the specified destination path.
+     * Streams through the pooled "download" HTTP client into a temp file that is
+     * renamed into place once complete; interrupted downloads are resumed.
      * 
      * @param url The URL to download from.
      * @param destinationPath The path where to save the downloaded file.
      */
     public void downloadFile(String url, String destinationPath) {
+        downloadFile(url, destinationPath, null);
+    }
+
+    /**
+     * Downloads a file from URL and verifies its SHA-256 hash.
+     * 
+     * @param url The URL to download from.
+     * @param destinationPath The path where to save the downloaded file.
+     * @param expectedSha256 Hex encoded SHA-256 of the content, or null to skip the check.
+     */
+    public void downloadFile(String url, String destinationPath, String expectedSha256) {
         logger.info("Downloading file from {} to {}", url, destinationPath);
         try {
-            URL fileUrl = URI.create(url).toURL();
-            try (InputStream in = fileUrl.openStream();
-                    FileOutputStream out = new FileOutputStream(destinationPath)) {
-                byte[] buffer = new byte[1024];
-                int bytesRead;
-                while ((bytesRead = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, bytesRead);
-                }
-            }
-            logger.info("Successfully downloaded file: {}", destinationPath);
+            long size = fileDownloader.download(url, Paths.get(destinationPath), expectedSha256);
+            logger.info("Successfully downloaded file: {} ({} bytes)", destinationPath, size);
         } catch (Exception e) {
             throw new RuntimeException("Failed to download file: " + url, e);
         }
@@ -161,11 +177,11 @@ public class FileService {
      * @param directoryPath The directory path to search in.
      * @param fileExtension The file extension to filter by (e.g., ".txt").
      * @param nameContains Optional string that filename must contain (can be null).
-     * @return Map of filename to file path for matching files.
+     * @return Map of filename to file path for matching files, ordered by filename.
      */
     public Map<String, String> listFilesInDirectory(String directoryPath, String fileExtension, String nameContains) {
         logger.info("Listing files in directory: {} with extension: {} containing: {}", directoryPath, fileExtension, nameContains);
-        Map<String, String> files = new HashMap<>();
+        Map<String, String> files = new TreeMap<>();
         try {
             File dir = new File(directoryPath);
             if (!dir.exists() || !dir.isDirectory()) {
@@ -196,26 +212,73 @@ public class FileService {
      * Reads multiple files and returns their contents as a map.
      * 
      * @param filePaths Map of filename to file path.
-     * @return Map of filename to file content.
+     * @return Map of filename to file content, ordered by filename.
      */
     public Map<String, String> readMultipleFiles(Map<String, String> filePaths) {
+        return readFiles(filePaths).contents();
+    }
+
+    /**
+     * Reads multiple files in parallel on virtual threads (at most
+     * custom.file.read-concurrency at a time). Files that cannot be read are
+     * logged and skipped.
+     * 
+     * @param filePaths Map of filename to file path.
+     * @return Contents ordered by filename, with aggregate size and timing.
+     */
+    public BulkReadResult readFiles(Map<String, String> filePaths) {
         logger.info("Reading {} files", filePaths.size());
-        Map<String, String> fileContents = new HashMap<>();
-        
-        for (Map.Entry<String, String> entry : filePaths.entrySet()) {
-            String filename = entry.getKey();
+        long start = System.nanoTime();
+        Semaphore permits = new Semaphore(Math.max(1, readConcurrency));
+
+        // Step 1. Start all reads, in filename order
+        Map<String, Future<LoadedFile>> pending = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : new TreeMap<>(filePaths).entrySet()) {
             String filePath = entry.getValue();
+            pending.put(entry.getKey(), readExecutor.submit(() -> {
+                permits.acquire();
+                try {
+                    return readUtf8(Paths.get(filePath));
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        // Step 2. Collect results in the same order
+        Map<String, String> fileContents = new LinkedHashMap<>();
+        long totalBytes = 0;
+        for (Map.Entry<String, Future<LoadedFile>> entry : pending.entrySet()) {
+            String filename = entry.getKey();
             try {
-                String content = readStringFromFile(filePath);
-                fileContents.put(filename, content);
-                logger.info("Successfully read file: {}", filename);
+                LoadedFile file = entry.getValue().get();
+                fileContents.put(filename, file.content());
+                totalBytes += file.size();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while reading files", e);
             } catch (Exception e) {
-                logger.error("Failed to read file: {} at path: {}", filename, filePath, e);
+                logger.error("Failed to read file: {} at path: {}", filename, filePaths.get(filename), e);
                 // Continue reading other files even if one fails
             }
         }
-        
-        return fileContents;
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Read {} of {} files ({} bytes) in {} ms", fileContents.size(), filePaths.size(), totalBytes,
+                elapsedMillis);
+        return new BulkReadResult(fileContents, totalBytes, elapsedMillis);
+    }
+
+    private LoadedFile readUtf8(Path path) throws IOException {
+        return new LoadedFile(Files.readString(path), Files.size(path));
+    }
+
+    private record LoadedFile(String content, long size) {
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        readExecutor.shutdownNow();
     }
 
     /**
@@ -243,11 +306,12 @@ public class FileService {
 
     /**
      * Scales down base64-encoded image data to specified maximum dimensions and returns scaled base64.
+     * Large downscales are subsampled while decoding, so the full-size image is never materialized.
      * 
      * @param base64Data The base64-encoded image data (without data:image/... prefix).
      * @param maxWidth Maximum width for the scaled image.
      * @param maxHeight Maximum height for the scaled image.
-     * @return The scaled image as base64-encoded string.
+     * @return The scaled image as base64-encoded JPEG string (or the input if no scaling was needed).
      */
     public String scaleBase64Image(String base64Data, int maxWidth, int maxHeight) {
         logger.info("Scaling base64 image to max dimensions: {}x{}", maxWidth, maxHeight);
@@ -257,63 +321,9 @@ public class FileService {
             if (base64Data.contains(",")) {
                 cleanBase64 = base64Data.substring(base64Data.indexOf(",") + 1);
             }
-            
-            // Decode base64 to image
-            byte[] imageBytes = Base64.getDecoder().decode(cleanBase64);
-            BufferedImage originalImage = ImageIO.read(new ByteArrayInputStream(imageBytes));
-            
-            int originalWidth = originalImage.getWidth();
-            int originalHeight = originalImage.getHeight();
-            logger.info("Original image dimensions: {}x{}", originalWidth, originalHeight);
-            
-            // Calculate new dimensions while maintaining aspect ratio
-            int newWidth = originalWidth;
-            int newHeight = originalHeight;
-            
-            if (originalWidth > maxWidth || originalHeight > maxHeight) {
-                double widthRatio = (double) maxWidth / originalWidth;
-                double heightRatio = (double) maxHeight / originalHeight;
-                double ratio = Math.min(widthRatio, heightRatio);
-                
-                newWidth = (int) (originalWidth * ratio);
-                newHeight = (int) (originalHeight * ratio);
-                logger.info("Scaling image to: {}x{} (ratio: {:.3f})", newWidth, newHeight, ratio);
-            } else {
-                logger.info("Image is already within size limits, no scaling needed");
-                return base64Data;
-            }
-            
-            // Create scaled image
-            BufferedImage scaledImage = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
-            Graphics2D g2d = scaledImage.createGraphics();
-            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            g2d.drawImage(originalImage, 0, 0, newWidth, newHeight, null);
-            g2d.dispose();
-            
-            // Convert scaled image back to base64 using JPEG with quality compression
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            
-            // Use JPEG compression with quality setting for smaller file size
-            ImageWriter jpgWriter = ImageIO.getImageWritersByFormatName("JPEG").next();
-            ImageWriteParam jpgWriteParam = jpgWriter.getDefaultWriteParam();
-            jpgWriteParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-            jpgWriteParam.setCompressionQuality(0.95f); // 95% quality for better OCR readability
-            
-            ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(baos);
-            jpgWriter.setOutput(imageOutputStream);
-            jpgWriter.write(null, new javax.imageio.IIOImage(scaledImage, null, null), jpgWriteParam);
-            jpgWriter.dispose();
-            imageOutputStream.close();
-            
-            byte[] scaledImageBytes = baos.toByteArray();
-            String scaledBase64 = Base64.getEncoder().encodeToString(scaledImageBytes);
-            
-            logger.info("Successfully scaled and compressed image from {}x{} to {}x{} ({} bytes -> {} bytes, JPEG 95% quality)", 
-                originalWidth, originalHeight, newWidth, newHeight, imageBytes.length, scaledImageBytes.length);
-            
-            return scaledBase64;
+
+            // Empty when the image already fits, then the input is returned as given
+            return imagePipeline.scaleBase64ToJpeg(cleanBase64, maxWidth, maxHeight).orElse(base64Data);
         } catch (Exception e) {
             throw new RuntimeException("Failed to scale base64 image: " + e.getMessage(), e);
         }
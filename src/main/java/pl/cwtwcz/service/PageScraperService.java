@@ -17,6 +17,8 @@ import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import lombok.RequiredArgsConstructor;
+import pl.cwtwcz.html.HtmlContent;
+import pl.cwtwcz.html.HtmlTokenizer;
 
 @RequiredArgsConstructor
 @Service
@@ -97,6 +99,17 @@ public class PageScraperService {
         }
     }
 
+    /**
+     * Tokenizes HTML once, collecting text, links, images and audio sources.
+     * Use this instead of several extract* calls on the same page.
+     *
+     * @param html The HTML content to parse
+     * @return Everything extracted from the page
+     */
+    public HtmlContent parseHtml(String html) {
+        return HtmlTokenizer.parse(html);
+    }
+
     /**
      * Extracts clean text content from HTML by removing script/style tags and HTML markup.
      * 
@@ -104,16 +117,7 @@ public class PageScraperService {
      * @return Clean text extracted from HTML
      */
     public String extractTextFromHtml(String html) {
-        // Step 1. Remove script and style elements
-        String cleanHtml = html.replaceAll("(?s)<script.*?</script>", "")
-                .replaceAll("(?s)<style.*?</style>", "");
-
-        // Step 2. Extract text from common HTML tags and remove HTML tags
-        String text = cleanHtml.replaceAll("<[^>]+>", " ")
-                .replaceAll("\\s+", " ")
-                .trim();
-
-        return text;
+        return parseHtml(html).text();
     }
 
     /**
@@ -123,21 +127,7 @@ public class PageScraperService {
      * @return List of image source URLs found in the HTML
      */
     public java.util.List<String> extractImageSources(String html) {
-        java.util.List<String> imageSources = new java.util.ArrayList<>();
-
-        // Step 1. Create pattern to match img src attributes
-        Pattern imgPattern = Pattern.compile("<img[^>]*src=[\"']([^\"']*)[\"'][^>]*>", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = imgPattern.matcher(html);
-
-        // Step 2. Extract all image sources
-        while (matcher.find()) {
-            String src = matcher.group(1);
-            if (!src.isEmpty()) {
-                imageSources.add(src);
-            }
-        }
-
-        return imageSources;
+        return parseHtml(html).images().stream().map(HtmlContent.Image::src).toList();
     }
 
     /**
@@ -147,32 +137,6 @@ public class PageScraperService {
      * @return List of audio source URLs found in the HTML
      */
     public java.util.List<String> extractAudioSources(String html) {
-        java.util.List<String> audioSources = new java.util.ArrayList<>();
-
-        // Step 1. Look for audio source tags
-        Pattern audioSourcePattern = Pattern.compile("<source[^>]*src=[\"']([^\"']*\\.mp3)[\"'][^>]*>",
-                Pattern.CASE_INSENSITIVE);
-        Matcher matcher = audioSourcePattern.matcher(html);
-
-        while (matcher.find()) {
-            String src = matcher.group(1);
-            if (!src.isEmpty()) {
-                audioSources.add(src);
-            }
-        }
-
-        // Step 2. Look for direct links to mp3 files
-        Pattern mp3LinkPattern = Pattern.compile("<a[^>]*href=[\"']([^\"']*\\.mp3)[\"'][^>]*>",
-                Pattern.CASE_INSENSITIVE);
-        matcher = mp3LinkPattern.matcher(html);
-
-        while (matcher.find()) {
-            String href = matcher.group(1);
-            if (!href.isEmpty()) {
-                audioSources.add(href);
-            }
-        }
-
-        return audioSources;
+        return parseHtml(html).audioSources();
     }
 }
\ No newline at end of file
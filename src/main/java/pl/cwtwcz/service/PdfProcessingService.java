@@ -1,33 +1,121 @@
 package pl.cwtwcz.service;
 
-import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import pl.cwtwcz.cache.ArtifactStore;
+import pl.cwtwcz.image.ImagePipeline;
+import pl.cwtwcz.pdf.PdfDocumentCache;
+import pl.cwtwcz.utils.HashUtils;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
-import java.util.Base64;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+@RequiredArgsConstructor
 @Service
 public class PdfProcessingService {
 
     private static final Logger logger = LoggerFactory.getLogger(PdfProcessingService.class);
 
+    private static final int PAGE_IMAGE_DPI = 100;
+
+    @Value("${custom.pdf.render-threads:0}")
+    private int renderThreads;
+
+    @Value("${custom.pdf.render-ahead-pages:8}")
+    private int renderAheadPages;
+
+    @Value("${custom.pdf.text-prefetch-pages:4}")
+    private int textPrefetchPages;
+
+    private final ArtifactStore artifactStore;
+    private final ImagePipeline imagePipeline;
+    private final PdfDocumentCache documentCache;
+
+    private ExecutorService renderExecutor;
+
+    /**
+     * Wyrenderowana strona PDF (numeracja od 1)
+     */
+    public record RenderedPage(int pageNumber, BufferedImage image) {
+    }
+
+    /**
+     * Tekst jednej strony PDF (numeracja od 1)
+     */
+    public record PageText(int pageNumber, String text) {
+    }
+
+    /**
+     * Prywatna kopia dokumentu z własnym rendererem, używana przez jedno zadanie naraz
+     */
+    private record PageRenderer(PDDocument document, PDFRenderer renderer) {
+    }
+
+    /**
+     * Element kolejki ekstrakcji: strona, błąd albo koniec (oba pola null)
+     */
+    private record PageSlot(PageText page, Throwable error) {
+        static final PageSlot END = new PageSlot(null, null);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (renderThreads <= 0) {
+            renderThreads = Runtime.getRuntime().availableProcessors();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        renderExecutor = Executors.newFixedThreadPool(renderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "pdf-render-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderExecutor.shutdownNow();
+    }
+
     /**
      * Wyciąga tekst ze stron 1-18 PDF
      */
     public String extractTextFromPages(String pdfPath, int startPage, int endPage) {
-        try (PDDocument document = Loader.loadPDF(new File(pdfPath))) {
+        try {
             PDFTextStripper textStripper = new PDFTextStripper();
             textStripper.setStartPage(startPage);
             textStripper.setEndPage(endPage);
 
-            String extractedText = textStripper.getText(document);
+            String extractedText = documentCache.withDocument(pdfPath, textStripper::getText);
             logger.info("Extracted text from pages {}-{}: {} characters", startPage, endPage, extractedText.length());
 
             return extractedText;
@@ -38,21 +126,114 @@ public class PdfProcessingService {
     }
 
     /**
-     * Konwertuje określoną stronę PDF do obrazu w formacie base64
+     * Wyciąga tekst stron startPage..endPage strona po stronie. Ekstrakcja działa w tle i wyprzedza
+     * konsumenta o co najwyżej custom.pdf.text-prefetch-pages stron, więc kolejne etapy (zapis, embedding,
+     * prompt) mogą pracować równolegle z parsowaniem, a w pamięci nie leży tekst całego zakresu.
+     * Strumień trzeba zamknąć (try-with-resources) - zamknięcie przerywa ekstrakcję.
      */
-    public String convertPageToBase64Image(String pdfPath, int pageNumber) {
-        try (PDDocument document = Loader.loadPDF(new File(pdfPath))) {
-            PDFRenderer renderer = new PDFRenderer(document);
+    public Stream<PageText> streamPageText(String pdfPath, int startPage, int endPage) {
+        int first = Math.max(1, startPage);
+        int last = Math.min(endPage, getPageCount(pdfPath));
+        if (first > last) {
+            return Stream.empty();
+        }
 
-            BufferedImage image = renderer.renderImageWithDPI(pageNumber - 1, 100);
+        // Step 1. Extract ahead of the consumer into a bounded queue, on a thread of its own so that
+        // a waiting producer never takes a slot of the render pool
+        BlockingQueue<PageSlot> queue = new ArrayBlockingQueue<>(Math.max(1, textPrefetchPages));
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Thread.ofVirtual().name("pdf-text-" + first + "-" + last).start(() -> {
+            try {
+                PageSlot lastSlot = PageSlot.END;
+                try {
+                    PDFTextStripper textStripper = new PDFTextStripper();
+                    for (int page = first; page <= last && !cancelled.get(); page++) {
+                        textStripper.setStartPage(page);
+                        textStripper.setEndPage(page);
+                        String text = documentCache.withDocument(pdfPath, textStripper::getText);
+                        queue.put(new PageSlot(new PageText(page, text), null));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    lastSlot = new PageSlot(null, e);
+                }
+                if (!cancelled.get()) {
+                    queue.put(lastSlot);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        logger.info("Streaming text from pages {}-{} of {}", first, last, pdfPath);
 
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(image, "PNG", baos);
-            byte[] imageBytes = baos.toByteArray();
-            String base64Image = Base64.getEncoder().encodeToString(imageBytes);
+        // Step 2. Hand pages out in order, failing the stream on the first extraction error
+        Spliterator<PageText> pages = new Spliterators.AbstractSpliterator<>(last - first + 1,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private boolean finished;
 
-            logger.info("Converted page {} to base64 image: {} bytes", pageNumber, imageBytes.length);
+            @Override
+            public boolean tryAdvance(Consumer<? super PageText> action) {
+                if (finished) {
+                    return false;
+                }
+                PageSlot slot;
+                try {
+                    slot = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for PDF text", e);
+                }
+                if (slot.error() != null) {
+                    finished = true;
+                    throw new RuntimeException("Failed to extract text from PDF", slot.error());
+                }
+                if (slot.page() == null) {
+                    finished = true;
+                    return false;
+                }
+                action.accept(slot.page());
+                return true;
+            }
+        };
+        return StreamSupport.stream(pages, false).onClose(() -> {
+            // Unblocks a producer waiting on a full queue, which then sees the flag and stops
+            cancelled.set(true);
+            queue.clear();
+        });
+    }
 
+    /**
+     * Konwertuje określoną stronę PDF do obrazu w formacie base64.
+     * Wyrenderowane strony PNG są trzymane w magazynie artefaktów (klucz: hash PDF + strona + DPI).
+     */
+    public String convertPageToBase64Image(String pdfPath, int pageNumber) {
+        try {
+            String sourceHash = artifactStore.isEnabled() ? HashUtils.sha256Hex(Paths.get(pdfPath)) : null;
+            String derivation = ArtifactStore.derivation("pdf-page", pageNumber, PAGE_IMAGE_DPI, "png");
+            if (sourceHash != null) {
+                Optional<Path> stored = artifactStore.find(sourceHash, derivation);
+                if (stored.isPresent()) {
+                    logger.info("Using stored image of page {} from artifact store", pageNumber);
+                    return imagePipeline.readAsBase64(stored.get());
+                }
+            }
+
+            BufferedImage image = documentCache.withDocument(pdfPath,
+                    document -> new PDFRenderer(document).renderImageWithDPI(pageNumber - 1, PAGE_IMAGE_DPI));
+
+            // Encode once: into the artifact store when enabled, otherwise straight to base64
+            if (sourceHash != null) {
+                try {
+                    Path stored = artifactStore.put(sourceHash, derivation, ".png",
+                            target -> imagePipeline.write(image, "png", target));
+                    String base64Image = imagePipeline.readAsBase64(stored);
+                    logger.info("Converted page {} to base64 image: {} characters", pageNumber, base64Image.length());
+                    return base64Image;
+                } catch (Exception e) {
+                    logger.warn("Could not store image of page {}: {}", pageNumber, e.getMessage());
+                }
+            }
+            String base64Image = imagePipeline.encodeBase64(image, "png");
+            logger.info("Converted page {} to base64 image: {} characters", pageNumber, base64Image.length());
             return base64Image;
         } catch (IOException e) {
             logger.error("Error converting PDF page to image: {}", e.getMessage(), e);
@@ -60,9 +241,144 @@ public class PdfProcessingService {
         }
     }
 
+    /**
+     * Renderuje strony startPage..endPage równolegle i zwraca je jako strumień w kolejności stron.
+     * Każde zadanie renderujące bierze na wyłączność prywatną kopię dokumentu z własnym PDFRenderer
+     * (PDDocument nie jest thread-safe). Renderowanie wyprzedza konsumenta o co najwyżej
+     * custom.pdf.render-ahead-pages stron, więc w pamięci nie leżą obrazy całego zakresu.
+     * Kopie dokumentu są zamykane po ostatniej stronie albo przy zamknięciu strumienia.
+     */
+    public Stream<RenderedPage> renderPages(String pdfPath, int startPage, int endPage, float dpi) {
+        int pageCount = getPageCount(pdfPath);
+        int first = Math.max(1, startPage);
+        int last = Math.min(endPage, pageCount);
+        if (first > last) {
+            return Stream.empty();
+        }
+
+        // Step 1. Start the first window of pages
+        RenderJob job = new RenderJob(pdfPath, first, last - first + 1, dpi);
+        int window = Math.max(1, Math.min(job.pages.size(), renderAheadPages));
+        for (int i = 0; i < window; i++) {
+            job.start(i);
+        }
+        logger.info("Rendering pages {}-{} of {} at {} DPI, at most {} pages ahead", first, last, pdfPath, dpi,
+                window);
+
+        // Step 2. Hand pages out in order, every page taken lets the next one start
+        return IntStream.range(0, job.pages.size()).mapToObj(i -> {
+            RenderedPage page = job.await(i);
+            if (i + window < job.pages.size()) {
+                job.start(i + window);
+            } else if (i == job.pages.size() - 1) {
+                job.close();
+            }
+            return page;
+        }).onClose(job::close);
+    }
+
+    /**
+     * Renderowanie jednego zakresu stron: przyszłe wyniki stron i pula kopii dokumentu
+     */
+    private final class RenderJob {
+        private final String pdfPath;
+        private final int firstPage;
+        private final float dpi;
+        private final List<CompletableFuture<RenderedPage>> pages = new ArrayList<>();
+        private final Queue<PageRenderer> idle = new ConcurrentLinkedQueue<>();
+        private boolean closed;
+
+        RenderJob(String pdfPath, int firstPage, int pageCount, float dpi) {
+            this.pdfPath = pdfPath;
+            this.firstPage = firstPage;
+            this.dpi = dpi;
+            for (int i = 0; i < pageCount; i++) {
+                pages.add(new CompletableFuture<>());
+            }
+        }
+
+        void start(int index) {
+            renderExecutor.execute(() -> render(index));
+        }
+
+        RenderedPage await(int index) {
+            try {
+                return pages.get(index).join();
+            } catch (CompletionException e) {
+                throw new RuntimeException("Failed to render PDF page", e.getCause());
+            } catch (CancellationException e) {
+                throw new RuntimeException("PDF rendering was cancelled", e);
+            }
+        }
+
+        private void render(int index) {
+            CompletableFuture<RenderedPage> page = pages.get(index);
+            PageRenderer renderer = null;
+            try {
+                renderer = borrow();
+                if (renderer == null) {
+                    page.cancel(false);
+                    return;
+                }
+                int pageNumber = firstPage + index;
+                BufferedImage image = renderer.renderer().renderImageWithDPI(pageNumber - 1, dpi);
+                page.complete(new RenderedPage(pageNumber, image));
+            } catch (IOException | RuntimeException e) {
+                page.completeExceptionally(e);
+            } finally {
+                if (renderer != null) {
+                    release(renderer);
+                }
+            }
+        }
+
+        private PageRenderer borrow() throws IOException {
+            synchronized (this) {
+                if (closed) {
+                    return null;
+                }
+                PageRenderer renderer = idle.poll();
+                if (renderer != null) {
+                    return renderer;
+                }
+            }
+            PDDocument document = documentCache.open(pdfPath);
+            return new PageRenderer(document, new PDFRenderer(document));
+        }
+
+        private void release(PageRenderer renderer) {
+            synchronized (this) {
+                if (!closed) {
+                    idle.offer(renderer);
+                    return;
+                }
+            }
+            closeQuietly(renderer);
+        }
+
+        void close() {
+            List<PageRenderer> toClose;
+            synchronized (this) {
+                closed = true;
+                toClose = new ArrayList<>(idle);
+                idle.clear();
+            }
+            pages.forEach(page -> page.cancel(false));
+            toClose.forEach(this::closeQuietly);
+        }
+
+        private void closeQuietly(PageRenderer renderer) {
+            try {
+                renderer.document().close();
+            } catch (IOException e) {
+                logger.warn("Error closing PDF render copy: {}", e.getMessage());
+            }
+        }
+    }
+
     public int getPageCount(String pdfPath) {
-        try (PDDocument document = Loader.loadPDF(new File(pdfPath))) {
-            int pageCount = document.getNumberOfPages();
+        try {
+            int pageCount = documentCache.withDocument(pdfPath, PDDocument::getNumberOfPages);
             logger.info("PDF has {} pages", pageCount);
             return pageCount;
         } catch (IOException e) {
@@ -1,6 +1,7 @@
 package pl.cwtwcz.service;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.HttpHeaders;
@@ -10,15 +11,36 @@ import org.springframework.http.HttpMethod;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import pl.cwtwcz.dto.qdrant.QdrantSearchRequestDto;
+import pl.cwtwcz.dto.qdrant.QdrantSearchResponseDto;
+import pl.cwtwcz.http.HttpClientRegistry;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.QdrantGrpcClient;
+import io.qdrant.client.grpc.JsonWithInt;
+import io.qdrant.client.grpc.Points.PointStruct;
+import io.qdrant.client.grpc.Points.UpdateResult;
+import io.qdrant.client.grpc.Points.UpsertPoints;
+
+import jakarta.annotation.PreDestroy;
+
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+import static io.qdrant.client.PointIdFactory.id;
+import static io.qdrant.client.ValueFactory.value;
+import static io.qdrant.client.VectorsFactory.vectors;
 
 @Slf4j
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "custom.vector.store", havingValue = "qdrant", matchIfMissing = true)
 @Service
-public class QdrantService {
+public class QdrantService implements VectorStoreService {
 
     @Value("${qdrant.url}")
     private String qdrantUrl;
@@ -26,7 +48,25 @@ public class QdrantService {
     @Value("${qdrant.api.key}")
     private String qdrantApiKey;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Value("${qdrant.transport:grpc}")
+    private String transport;
+
+    @Value("${qdrant.grpc.port:6334}")
+    private int grpcPort;
+
+    @Value("${qdrant.upsert.batch-size:256}")
+    private int upsertBatchSize;
+
+    @Value("${qdrant.upsert.max-in-flight:4}")
+    private int upsertMaxInFlight;
+
+    private final HttpClientRegistry httpClientRegistry;
+
+    private volatile QdrantClient grpcClient;
+
+    private RestTemplate restTemplate() {
+        return httpClientRegistry.get(HttpClientRegistry.QDRANT);
+    }
 
     private HttpHeaders createHeaders() {
         HttpHeaders headers = new HttpHeaders();
@@ -35,6 +75,7 @@ public class QdrantService {
         return headers;
     }
 
+    @Override
     public void createCollection(String collectionName, int vectorSize) {
         try {
             // Step 1. Create collection with specified vector size
@@ -49,7 +90,7 @@ public class QdrantService {
             String url = qdrantUrl + "/collections/" + collectionName;
             
             try {
-                ResponseEntity<String> response = restTemplate.exchange(
+                ResponseEntity<String> response = restTemplate().exchange(
                     url, HttpMethod.PUT, request, String.class);
                 log.info("Created Qdrant collection: {} with response: {}", collectionName, response.getStatusCode());
             } catch (Exception e) {
@@ -63,12 +104,24 @@ public class QdrantService {
         }
     }
 
+    @Override
     public void indexDocument(String collectionName, String documentId, 
                              List<Float> vector, Map<String, String> metadata) {
+        indexPoint(collectionName, documentId, vector, metadata);
+    }
+
+    @Override
+    public void indexDocument(String collectionName, String documentId,
+                             float[] vector, Map<String, String> metadata) {
+        indexPoint(collectionName, documentId, vector, metadata);
+    }
+
+    private void indexPoint(String collectionName, String documentId,
+                            Object vector, Map<String, String> metadata) {
         try {
             // Step 2. Create point with vector and metadata
             Map<String, Object> point = new HashMap<>();
-            point.put("id", UUID.randomUUID().toString());
+            point.put("id", VectorStoreService.pointId(documentId).toString());
             point.put("vector", vector);
             point.put("payload", metadata);
 
@@ -79,7 +132,7 @@ public class QdrantService {
             
             String url = qdrantUrl + "/collections/" + collectionName + "/points";
             
-            ResponseEntity<String> response = restTemplate.exchange(
+            ResponseEntity<String> response = restTemplate().exchange(
                 url, HttpMethod.PUT, request, String.class);
             
             log.debug("Indexed document with ID: {} - Response: {}", documentId, response.getStatusCode());
@@ -90,28 +143,160 @@ public class QdrantService {
         }
     }
 
+    /**
+     * Upserts many points in batches. Uses the gRPC client with wait=false
+     * pipelining (bounded number of in-flight batches) and falls back to REST when
+     * gRPC is disabled or fails. Point ids are derived from the document id, so
+     * re-indexing the same documents overwrites them instead of adding duplicates.
+     *
+     * @param collectionName The target collection.
+     * @param points         The points to upsert.
+     * @return Summary of the ingest (points, batches, throughput).
+     */
+    @Override
+    public UpsertReport upsertPoints(String collectionName, List<Point> points) {
+        if (points.isEmpty()) {
+            return new UpsertReport(0, 0, 0, "none");
+        }
+        List<List<Point>> batches = new ArrayList<>();
+        for (int i = 0; i < points.size(); i += upsertBatchSize) {
+            batches.add(points.subList(i, Math.min(points.size(), i + upsertBatchSize)));
+        }
+
+        long start = System.nanoTime();
+        String usedTransport = "rest";
+        if ("grpc".equalsIgnoreCase(transport)) {
+            try {
+                upsertBatchesGrpc(collectionName, batches);
+                usedTransport = "grpc";
+            } catch (Exception e) {
+                log.warn("gRPC upsert to {} failed, falling back to REST: {}", collectionName, e.getMessage());
+                upsertBatchesRest(collectionName, batches);
+            }
+        } else {
+            upsertBatchesRest(collectionName, batches);
+        }
+
+        UpsertReport report = new UpsertReport(points.size(), batches.size(),
+                (System.nanoTime() - start) / 1_000_000, usedTransport);
+        log.info("Upserted {} points into {} in {} batches via {} in {} ms ({} points/s)",
+                report.getPoints(), collectionName, report.getBatches(), report.getTransport(),
+                report.getElapsedMillis(), String.format("%.1f", report.getPointsPerSecond()));
+        return report;
+    }
+
+    private void upsertBatchesGrpc(String collectionName, List<List<Point>> batches) throws Exception {
+        QdrantClient client = getGrpcClient();
+        Semaphore inFlight = new Semaphore(upsertMaxInFlight);
+        List<ListenableFuture<UpdateResult>> futures = new ArrayList<>();
+
+        // Step 1. Pipeline all batches but the last one without waiting for indexing
+        for (int i = 0; i < batches.size() - 1; i++) {
+            inFlight.acquire();
+            ListenableFuture<UpdateResult> future = client.upsertAsync(
+                    buildUpsertRequest(collectionName, batches.get(i), false));
+            future.addListener(inFlight::release, Runnable::run);
+            futures.add(future);
+        }
+        for (ListenableFuture<UpdateResult> future : futures) {
+            future.get();
+        }
+
+        // Step 2. Last batch waits, so the collection is searchable once we return
+        client.upsertAsync(buildUpsertRequest(collectionName, batches.get(batches.size() - 1), true)).get();
+    }
+
+    private UpsertPoints buildUpsertRequest(String collectionName, List<Point> batch, boolean wait) {
+        UpsertPoints.Builder request = UpsertPoints.newBuilder()
+                .setCollectionName(collectionName)
+                .setWait(wait);
+        for (Point point : batch) {
+            Map<String, JsonWithInt.Value> payload = new HashMap<>();
+            point.getPayload().forEach((key, val) -> payload.put(key, value(val)));
+            request.addPoints(PointStruct.newBuilder()
+                    .setId(id(point.getPointId()))
+                    .setVectors(vectors(point.getVector()))
+                    .putAllPayload(payload)
+                    .build());
+        }
+        return request.build();
+    }
+
+    private void upsertBatchesRest(String collectionName, List<List<Point>> batches) {
+        String url = qdrantUrl + "/collections/" + collectionName + "/points?wait=true";
+        for (List<Point> batch : batches) {
+            List<Map<String, Object>> restPoints = new ArrayList<>(batch.size());
+            for (Point point : batch) {
+                Map<String, Object> restPoint = new HashMap<>();
+                restPoint.put("id", point.getPointId().toString());
+                restPoint.put("vector", point.getVector());
+                restPoint.put("payload", point.getPayload());
+                restPoints.add(restPoint);
+            }
+            try {
+                HttpEntity<Map<String, Object>> request = new HttpEntity<>(Map.of("points", restPoints), createHeaders());
+                restTemplate().exchange(url, HttpMethod.PUT, request, String.class);
+            } catch (Exception e) {
+                log.error("Error upserting batch of {} points: {}", batch.size(), e.getMessage(), e);
+                throw new RuntimeException("Failed to upsert points", e);
+            }
+        }
+    }
+
+    private QdrantClient getGrpcClient() {
+        if (grpcClient == null) {
+            synchronized (this) {
+                if (grpcClient == null) {
+                    URI uri = URI.create(qdrantUrl);
+                    boolean useTls = "https".equalsIgnoreCase(uri.getScheme());
+                    grpcClient = new QdrantClient(QdrantGrpcClient.newBuilder(uri.getHost(), grpcPort, useTls)
+                            .withApiKey(qdrantApiKey)
+                            .build());
+                    log.info("Created Qdrant gRPC client for {}:{} (tls: {})", uri.getHost(), grpcPort, useTls);
+                }
+            }
+        }
+        return grpcClient;
+    }
+
+    @PreDestroy
+    public void closeGrpcClient() {
+        if (grpcClient != null) {
+            grpcClient.close();
+        }
+    }
+
+    @Override
     public SearchResult searchSimilar(String collectionName, List<Float> queryVector, int limit) {
+        List<SearchResult> results = search(collectionName,
+                new SearchQuery(VectorStoreService.toArray(queryVector), limit));
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    @Override
+    public List<SearchResult> search(String collectionName, SearchQuery query) {
         try {
-            // Step 3. Search for similar vectors
-            Map<String, Object> searchRequest = new HashMap<>();
-            searchRequest.put("vector", queryVector);
-            searchRequest.put("limit", limit);
-            searchRequest.put("with_payload", true);
+            // Step 3. Build search request with filters and projection
+            QdrantSearchRequestDto searchRequest = new QdrantSearchRequestDto(
+                    query.getVector(), query.getLimit(), buildFilter(query), true, query.isWithVector(),
+                    query.getScoreThreshold());
 
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(searchRequest, createHeaders());
+            HttpEntity<QdrantSearchRequestDto> request = new HttpEntity<>(searchRequest, createHeaders());
             
             String url = qdrantUrl + "/collections/" + collectionName + "/points/search";
             
-            ResponseEntity<SearchResponse> response = restTemplate.exchange(
-                url, HttpMethod.POST, request, SearchResponse.class);
+            ResponseEntity<QdrantSearchResponseDto> response = restTemplate().exchange(
+                url, HttpMethod.POST, request, QdrantSearchResponseDto.class);
 
-            SearchResponse searchResponse = response.getBody();
-            if (searchResponse != null && searchResponse.result != null && !searchResponse.result.isEmpty()) {
-                SearchPoint bestMatch = searchResponse.result.get(0);
-                return new SearchResult(bestMatch.score, bestMatch.payload);
+            // Step 4. Map the full ranked result list
+            QdrantSearchResponseDto searchResponse = response.getBody();
+            List<SearchResult> results = new ArrayList<>();
+            if (searchResponse != null && searchResponse.getResult() != null) {
+                for (QdrantSearchResponseDto.ScoredPoint point : searchResponse.getResult()) {
+                    results.add(new SearchResult(point.getScore(), point.getPayload(), point.getVector()));
+                }
             }
-            
-            return null;
+            return results;
             
         } catch (Exception e) {
             log.error("Error searching: {}", e.getMessage(), e);
@@ -119,31 +304,24 @@ public class QdrantService {
         }
     }
 
-    public static class SearchResponse {
-        public List<SearchPoint> result;
-    }
-
-    public static class SearchPoint {
-        public float score;
-        public Map<String, Object> payload;
-    }
-
-    public static class SearchResult {
-        private final float score;
-        private final Map<String, Object> payload;
-
-        public SearchResult(float score, Map<String, Object> payload) {
-            this.score = score;
-            this.payload = payload;
-        }
-
-        public float getScore() {
-            return score;
+    private QdrantSearchRequestDto.Filter buildFilter(SearchQuery query) {
+        if (query.getConditions().isEmpty()) {
+            return null;
         }
-
-        public String getPayloadValue(String key) {
-            Object value = payload.get(key);
-            return value != null ? value.toString() : null;
+        List<QdrantSearchRequestDto.Condition> must = new ArrayList<>();
+        for (PayloadCondition condition : query.getConditions()) {
+            if (condition.isRange()) {
+                // Date bounds need datetime_range, a plain range only accepts numbers
+                QdrantSearchRequestDto.Range range = new QdrantSearchRequestDto.Range(condition.getGte(),
+                        condition.getLte());
+                must.add(condition.isDatetime()
+                        ? new QdrantSearchRequestDto.Condition(condition.getKey(), null, null, range)
+                        : new QdrantSearchRequestDto.Condition(condition.getKey(), null, range, null));
+            } else {
+                must.add(new QdrantSearchRequestDto.Condition(condition.getKey(),
+                        new QdrantSearchRequestDto.Match(condition.getEqualTo()), null, null));
+            }
         }
+        return new QdrantSearchRequestDto.Filter(must);
     }
-} 
\ No newline at end of file
+}
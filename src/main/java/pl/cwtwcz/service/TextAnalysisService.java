@@ -2,6 +2,8 @@ package pl.cwtwcz.service;
 
 import org.springframework.stereotype.Service;
 
+import pl.cwtwcz.text.FactMatcher;
+
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -106,29 +108,44 @@ public class TextAnalysisService {
         return "";
     }
 
+    /**
+     * Compiles facts for repeated {@link #findRelatedFactsForReport(String, FactMatcher)} calls.
+     * 
+     * @param facts Map of fact filenames to their content
+     * @return Matcher over the facts
+     */
+    public FactMatcher compileFacts(Map<String, String> facts) {
+        return FactMatcher.compile(facts);
+    }
+
     /**
      * Finds facts related to the report content by matching names and entities.
+     * Compiles the facts on every call; use {@link #compileFacts(Map)} when matching many reports.
      * 
      * @param reportContent The content of the report
      * @param facts         Map of fact filenames to their content
      * @return String containing related facts
      */
     public String findRelatedFactsForReport(String reportContent, Map<String, String> facts) {
-        StringBuilder relatedFacts = new StringBuilder();
-        List<String> possibleNames = extractPossibleNamesFromContent(reportContent);
-
-        for (Map.Entry<String, String> factEntry : facts.entrySet()) {
-            String factContent = factEntry.getValue();
+        return findRelatedFactsForReport(reportContent, compileFacts(facts));
+    }
 
-            // Check if any names from report match facts
-            boolean isRelated = possibleNames.stream()
-                    .anyMatch(name -> factContent.toLowerCase().contains(name.toLowerCase()) ||
-                            findSimilarNames(name, factContent));
+    /**
+     * Finds facts related to the report content by matching names and entities.
+     * A fact is related when it contains a name from the report, or a word
+     * similar to it (see {@link #isSimilarName(String, String)}).
+     * 
+     * @param reportContent The content of the report
+     * @param facts         Facts compiled with {@link #compileFacts(Map)}
+     * @return String containing related facts
+     */
+    public String findRelatedFactsForReport(String reportContent, FactMatcher facts) {
+        StringBuilder relatedFacts = new StringBuilder();
+        BitSet related = facts.factsMentioning(extractPossibleNamesFromContent(reportContent));
 
-            if (isRelated) {
-                relatedFacts.append("Z pliku ").append(factEntry.getKey()).append(":\n");
-                relatedFacts.append(factContent).append("\n\n");
-            }
+        for (int fact = related.nextSetBit(0); fact >= 0; fact = related.nextSetBit(fact + 1)) {
+            relatedFacts.append("Z pliku ").append(facts.keys().get(fact)).append(":\n");
+            relatedFacts.append(facts.content(fact)).append("\n\n");
         }
 
         return relatedFacts.toString();
@@ -176,25 +193,8 @@ public class TextAnalysisService {
      * @return true if names are similar enough
      */
     public boolean isSimilarName(String name1, String name2) {
-        name1 = name1.toLowerCase().replaceAll("[^a-ząćęłńóśźż]", "");
-        name2 = name2.toLowerCase().replaceAll("[^a-ząćęłńóśźż]", "");
-
-        if (name1.equals(name2))
-            return true;
-        if (Math.abs(name1.length() - name2.length()) > 2)
-            return false;
-
-        int differences = 0;
-        int minLength = Math.min(name1.length(), name2.length());
-
-        for (int i = 0; i < minLength; i++) {
-            if (name1.charAt(i) != name2.charAt(i)) {
-                differences++;
-            }
-        }
-
-        differences += Math.abs(name1.length() - name2.length());
-        return differences <= 2; // Allow up to 2 character differences
+        // Allow up to 2 character differences
+        return FactMatcher.isSimilarNormalized(FactMatcher.normalizeName(name1), FactMatcher.normalizeName(name2));
     }
 
     /**
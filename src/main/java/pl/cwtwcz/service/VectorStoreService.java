@@ -0,0 +1,230 @@
+package pl.cwtwcz.service;
+
+import lombok.Getter;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Common operations of a vector store. Implemented by the remote
+ * {@link QdrantService} and the in-process {@link EmbeddedVectorStoreService};
+ * the property custom.vector.store (qdrant/embedded) selects which one is used.
+ */
+public interface VectorStoreService {
+
+    void createCollection(String collectionName, int vectorSize);
+
+    void indexDocument(String collectionName, String documentId,
+                       List<Float> vector, Map<String, String> metadata);
+
+    void indexDocument(String collectionName, String documentId,
+                       float[] vector, Map<String, String> metadata);
+
+    /**
+     * Upserts many points at once.
+     *
+     * @param collectionName The target collection.
+     * @param points         The points to upsert.
+     * @return Summary of the ingest (points, batches, throughput).
+     */
+    UpsertReport upsertPoints(String collectionName, List<Point> points);
+
+    /**
+     * @return The best match or null if the collection is empty.
+     */
+    SearchResult searchSimilar(String collectionName, List<Float> queryVector, int limit);
+
+    /**
+     * Returns the full ranked top-k for a query in one round trip, with optional
+     * payload filters, score threshold and vector projection.
+     *
+     * @param collectionName The collection to search.
+     * @param query          The query vector and search options.
+     * @return Hits ordered by descending score (may be empty).
+     */
+    List<SearchResult> search(String collectionName, SearchQuery query);
+
+    static float[] toArray(List<Float> vector) {
+        float[] values = new float[vector.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = vector.get(i);
+        }
+        return values;
+    }
+
+    /**
+     * Deterministic point id derived from the document id, so that indexing the
+     * same document again overwrites it instead of adding a duplicate.
+     */
+    static UUID pointId(String documentId) {
+        return UUID.nameUUIDFromBytes(documentId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Value
+    class Point {
+        String documentId;
+        float[] vector;
+        Map<String, String> payload;
+
+        public UUID getPointId() {
+            return pointId(documentId);
+        }
+    }
+
+    @Value
+    class UpsertReport {
+        int points;
+        int batches;
+        long elapsedMillis;
+        String transport;
+
+        public double getPointsPerSecond() {
+            return elapsedMillis == 0 ? points : points * 1000.0 / elapsedMillis;
+        }
+    }
+
+    @Getter
+    class SearchQuery {
+        private final float[] vector;
+        private final int limit;
+        private final List<PayloadCondition> conditions = new ArrayList<>();
+        private Float scoreThreshold;
+        private boolean withVector;
+
+        public SearchQuery(float[] vector, int limit) {
+            this.vector = vector;
+            this.limit = limit;
+        }
+
+        /**
+         * Keeps only points whose payload field equals the given value.
+         */
+        public SearchQuery matching(String key, Object value) {
+            conditions.add(new PayloadCondition(key, value, null, null, false));
+            return this;
+        }
+
+        /**
+         * Keeps only points whose numeric payload field lies in [gte, lte]; either bound may be null.
+         */
+        public SearchQuery inRange(String key, Number gte, Number lte) {
+            conditions.add(new PayloadCondition(key, null, gte, lte, false));
+            return this;
+        }
+
+        /**
+         * Keeps only points whose ISO-8601 date or date-time payload field lies in
+         * [from, to]; either bound may be null. Dates are taken at midnight UTC.
+         */
+        public SearchQuery inDateRange(String key, LocalDate from, LocalDate to) {
+            conditions.add(new PayloadCondition(key, null, from != null ? from.toString() : null,
+                    to != null ? to.toString() : null, true));
+            return this;
+        }
+
+        public SearchQuery scoreThreshold(float threshold) {
+            this.scoreThreshold = threshold;
+            return this;
+        }
+
+        public SearchQuery withVector(boolean withVector) {
+            this.withVector = withVector;
+            return this;
+        }
+    }
+
+    @Value
+    class PayloadCondition {
+        String key;
+        Object equalTo;
+        Object gte;
+        Object lte;
+        boolean datetime;
+
+        public boolean isRange() {
+            return equalTo == null;
+        }
+
+        /**
+         * Evaluates the condition locally (used by stores without server-side filtering).
+         */
+        public boolean matches(Map<String, ?> payload) {
+            Object value = payload.get(key);
+            if (value == null) {
+                return false;
+            }
+            if (!isRange()) {
+                return equalTo.toString().equals(value.toString());
+            }
+            try {
+                if (datetime) {
+                    Instant instant = parseInstant(value.toString());
+                    return (gte == null || !instant.isBefore(parseInstant(gte.toString())))
+                            && (lte == null || !instant.isAfter(parseInstant(lte.toString())));
+                }
+                double number = Double.parseDouble(value.toString());
+                return (gte == null || number >= ((Number) gte).doubleValue())
+                        && (lte == null || number <= ((Number) lte).doubleValue());
+            } catch (NumberFormatException | DateTimeParseException e) {
+                return false;
+            }
+        }
+
+        private static Instant parseInstant(String value) {
+            if (value.length() == 10) {
+                return LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant();
+            }
+            try {
+                return OffsetDateTime.parse(value).toInstant();
+            } catch (DateTimeParseException e) {
+                return LocalDateTime.parse(value.replace(' ', 'T')).toInstant(ZoneOffset.UTC);
+            }
+        }
+    }
+
+    class SearchResult {
+        private final float score;
+        private final Map<String, Object> payload;
+        private final float[] vector;
+
+        public SearchResult(float score, Map<String, Object> payload) {
+            this(score, payload, null);
+        }
+
+        public SearchResult(float score, Map<String, Object> payload, float[] vector) {
+            this.score = score;
+            this.payload = payload;
+            this.vector = vector;
+        }
+
+        public float getScore() {
+            return score;
+        }
+
+        public Map<String, Object> getPayload() {
+            return payload;
+        }
+
+        /**
+         * @return The stored vector or null when the search did not request it.
+         */
+        public float[] getVector() {
+            return vector;
+        }
+
+        public String getPayloadValue(String key) {
+            Object value = payload.get(key);
+            return value != null ? value.toString() : null;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package pl.cwtwcz.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import lombok.RequiredArgsConstructor;
+
+import pl.cwtwcz.db.SqlStatement;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind queue for SQLite writes that do not need to be visible immediately.
+ *
+ * Writes are accepted into a bounded queue (callers block only when it is full)
+ * and a single writer thread commits whatever has accumulated as one
+ * transaction per database file, so a feedback loop no longer waits on a commit
+ * per stored answer. Writes are applied in submission order. Call
+ * {@link #flush(String)} before reading data that was written through the
+ * queue; pending writes are drained on shutdown, and writes that cannot be
+ * committed any more fail their futures instead of leaving them incomplete.
+ */
+@RequiredArgsConstructor
+@Service
+public class WriteBehindService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindService.class);
+
+    private static final PendingWrite SHUTDOWN = new PendingWrite(null, null, new CompletableFuture<>());
+
+    @Value("${custom.sqlite.write-behind.capacity:1024}")
+    private int capacity;
+
+    @Value("${custom.sqlite.write-behind.max-group-size:256}")
+    private int maxGroupSize;
+
+    @Value("${custom.sqlite.write-behind.shutdown-timeout:30s}")
+    private Duration shutdownTimeout;
+
+    @Value("${custom.sqlite.write-behind.flush-timeout:60s}")
+    private Duration flushTimeout;
+
+    private final DatabaseService databaseService;
+
+    private final Map<String, AtomicInteger> pendingByDatabase = new ConcurrentHashMap<>();
+
+    // Guards closed, so nothing is queued behind the shutdown marker
+    private final ReentrantLock lifecycleLock = new ReentrantLock();
+
+    private BlockingQueue<PendingWrite> queue;
+    private Thread writer;
+    private boolean closed;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        writer = Thread.ofPlatform().name("sqlite-write-behind").daemon(true).start(this::runWriter);
+        logger.info("Write-behind queue started (capacity: {}, max group size: {})", capacity, maxGroupSize);
+    }
+
+    /**
+     * Queues a write. Blocks while the queue is full.
+     *
+     * @param dbPath     The database file.
+     * @param sql        The SQL statement with {@code ?} placeholders.
+     * @param parameters Values bound to the placeholders.
+     * @return Future completed once the write is committed (or exceptionally if it failed).
+     */
+    public CompletableFuture<Void> enqueue(String dbPath, String sql, Object... parameters) {
+        return enqueue(dbPath, List.of(new SqlStatement(sql, parameters)));
+    }
+
+    /**
+     * Queues several statements that are committed together in one transaction
+     * (or not at all). Blocks while the queue is full.
+     *
+     * @param dbPath     The database file.
+     * @param statements The statements, executed in list order.
+     * @return Future completed once the statements are committed (or exceptionally if they failed).
+     */
+    public CompletableFuture<Void> enqueue(String dbPath, List<SqlStatement> statements) {
+        PendingWrite write = new PendingWrite(dbPath, List.copyOf(statements), new CompletableFuture<>());
+        AtomicInteger pending = pendingByDatabase.computeIfAbsent(dbPath, path -> new AtomicInteger());
+        lifecycleLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Write-behind queue is shut down");
+            }
+            pending.incrementAndGet();
+            queue.put(write);
+        } catch (InterruptedException e) {
+            pending.decrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queueing write for: " + dbPath, e);
+        } finally {
+            lifecycleLock.unlock();
+        }
+        return write.done();
+    }
+
+    /**
+     * Waits until every write queued for the given database before this call is
+     * committed. Returns immediately when nothing is pending. Failed writes are
+     * logged by the writer and reported through their own futures, not here.
+     * Gives up after custom.sqlite.write-behind.flush-timeout.
+     */
+    public void flush(String dbPath) {
+        AtomicInteger pending = pendingByDatabase.get(dbPath);
+        if (pending == null || pending.get() == 0) {
+            return;
+        }
+        awaitBarrier(new PendingWrite(dbPath, null, new CompletableFuture<>()));
+    }
+
+    /**
+     * Waits until every write queued before this call is committed, for all databases.
+     */
+    public void flushAll() {
+        if (pendingByDatabase.values().stream().allMatch(pending -> pending.get() == 0)) {
+            return;
+        }
+        awaitBarrier(new PendingWrite(null, null, new CompletableFuture<>()));
+    }
+
+    @PreDestroy
+    public void close() {
+        lifecycleLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.put(SHUTDOWN);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lifecycleLock.unlock();
+        }
+        try {
+            writer.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            // Stop the writer after its current group, everything behind it fails
+            writer.interrupt();
+            logger.warn("Write-behind queue did not drain within {}, {} writes not committed",
+                    shutdownTimeout, queue.size());
+        } else {
+            logger.info("Write-behind queue drained and stopped");
+        }
+    }
+
+    private void awaitBarrier(PendingWrite barrier) {
+        lifecycleLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Write-behind queue is shut down");
+            }
+            queue.put(barrier);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while flushing write-behind queue", e);
+        } finally {
+            lifecycleLock.unlock();
+        }
+        try {
+            barrier.done().get(flushTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while flushing write-behind queue", e);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Write-behind queue not flushed within " + flushTimeout, e);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to flush write-behind queue: " + e.getMessage(), e);
+        }
+    }
+
+    private void runWriter() {
+        List<PendingWrite> group = new ArrayList<>(maxGroupSize);
+        while (true) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                logger.warn("Write-behind writer interrupted, {} writes left in queue", queue.size());
+                failRemaining(List.of());
+                return;
+            }
+            queue.drainTo(group, maxGroupSize - 1);
+            int stopAt = processGroup(group);
+            if (stopAt >= 0) {
+                failRemaining(group.subList(stopAt + 1, group.size()));
+                return;
+            }
+            group.clear();
+        }
+    }
+
+    /**
+     * Commits consecutive writes to the same database as one transaction.
+     * Barriers complete after everything queued before them has been handled.
+     * Returns the position of the shutdown marker, or -1 when it was not reached.
+     */
+    private int processGroup(List<PendingWrite> group) {
+        List<PendingWrite> run = new ArrayList<>();
+        for (int i = 0; i < group.size(); i++) {
+            PendingWrite item = group.get(i);
+            boolean isWrite = item.statements() != null;
+            if (!run.isEmpty() && (!isWrite || !run.get(0).dbPath().equals(item.dbPath()))) {
+                commitRun(run);
+                run.clear();
+            }
+            if (isWrite) {
+                run.add(item);
+            } else if (item == SHUTDOWN) {
+                return i;
+            } else {
+                item.done().complete(null);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                if (!run.isEmpty()) {
+                    commitRun(run);
+                }
+                return i;
+            }
+        }
+        if (!run.isEmpty()) {
+            commitRun(run);
+        }
+        return -1;
+    }
+
+    /**
+     * Fails everything the writer will not handle any more: the rest of the
+     * current group and whatever is still queued.
+     */
+    private void failRemaining(List<PendingWrite> rest) {
+        List<PendingWrite> remaining = new ArrayList<>(rest);
+        queue.drainTo(remaining);
+        IllegalStateException shutDown = new IllegalStateException("Write-behind queue is shut down");
+        for (PendingWrite item : remaining) {
+            if (item.statements() != null) {
+                pendingByDatabase.get(item.dbPath()).decrementAndGet();
+            }
+            item.done().completeExceptionally(shutDown);
+        }
+        if (!remaining.isEmpty()) {
+            logger.warn("Write-behind queue stopped, {} queued items failed", remaining.size());
+        }
+    }
+
+    private void commitRun(List<PendingWrite> run) {
+        String dbPath = run.get(0).dbPath();
+        try {
+            commit(dbPath, run);
+        } finally {
+            pendingByDatabase.get(dbPath).addAndGet(-run.size());
+        }
+    }
+
+    private void commit(String dbPath, List<PendingWrite> writes) {
+        try {
+            databaseService.executeUpdates(dbPath,
+                    writes.stream().flatMap(write -> write.statements().stream()).toList());
+            writes.forEach(write -> write.done().complete(null));
+            logger.debug("Group commit of {} writes to {}", writes.size(), dbPath);
+        } catch (RuntimeException e) {
+            if (writes.size() == 1) {
+                logger.error("Write-behind write to {} failed: {}", dbPath, e.getMessage(), e);
+                writes.get(0).done().completeExceptionally(e);
+                return;
+            }
+            // Retry one by one so a single bad write does not discard the whole group
+            logger.warn("Group commit of {} writes to {} failed, retrying individually: {}",
+                    writes.size(), dbPath, e.getMessage());
+            for (PendingWrite write : writes) {
+                commit(dbPath, List.of(write));
+            }
+        }
+    }
+
+    private record PendingWrite(String dbPath, List<SqlStatement> statements, CompletableFuture<Void> done) {
+    }
+}
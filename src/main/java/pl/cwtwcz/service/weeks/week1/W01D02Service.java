@@ -56,8 +56,8 @@ public class W01D02Service {
                 String llmAnswer = llmAdapter.getAnswer(promptForLlm);
                 logger.info("LLM Answer: {}", llmAnswer);
 
-                if (llmAnswer == null || llmAnswer.startsWith("Error:")) {
-                    logger.error("LLM returned an error or null: {}. Aborting.", llmAnswer);
+                if (llmAnswer == null) {
+                    logger.error("LLM returned null. Aborting.");
                     break;
                 }
 
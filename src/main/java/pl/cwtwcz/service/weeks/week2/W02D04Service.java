@@ -4,9 +4,11 @@ import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
 import pl.cwtwcz.adapter.GroqAdapter;
 import pl.cwtwcz.adapter.OpenAiAdapter;
+import pl.cwtwcz.cache.ArtifactStore;
 import pl.cwtwcz.service.FileService;
 import pl.cwtwcz.service.PromptService;
 import pl.cwtwcz.utils.FileUtils;
+import pl.cwtwcz.utils.HashUtils;
 import pl.cwtwcz.dto.common.OpenAiImagePromptRequestDto;
 import java.util.Map;
 import java.util.ArrayList;
@@ -15,7 +17,6 @@ import java.util.HashMap;
 import java.util.List;
 
 import java.io.File;
-import java.nio.file.Files;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +38,7 @@ public class W02D04Service {
     private final PromptService promptService;
     private final ApiExplorerService apiExplorerService;
     private final FlagService flagService;
+    private final ArtifactStore artifactStore;
 
     @Value("${custom.w02d04.input-dir}")
     private String inputDir;
@@ -100,25 +102,11 @@ public class W02D04Service {
 
     private void processMp3Files(String inputDir, Map<String, String> transcriptions) {
         List<File> mp3Files = FileUtils.listFilesByExtension(inputDir, ".mp3");
-        File processedDir = new File(inputDir, "processed_transcriptions");
-        if (!processedDir.exists())
-            processedDir.mkdirs();
         for (File mp3File : mp3Files) {
             try {
-                String txtFileName = mp3File.getName().replaceAll("\\.mp3$", ".txt");
-
-                File existingTranscription = new File(processedDir, txtFileName);
-                if (existingTranscription.exists()) {
-                    // caching
-                    String existingContent = Files.readString(existingTranscription.toPath());
-                    transcriptions.put(mp3File.getName(), existingContent);
-                    continue;
-                } else {
-                    String transcription = groqAdapter.speechToText(mp3File.getAbsolutePath(), "EN");
-                    File txtFile = new File(processedDir, txtFileName);
-                    Files.writeString(txtFile.toPath(), transcription);
-                    transcriptions.put(mp3File.getName(), transcription);
-                }
+                // Transcripts are cached by GroqAdapter in the artifact store
+                String transcription = groqAdapter.speechToText(mp3File.getAbsolutePath(), "EN");
+                transcriptions.put(mp3File.getName(), transcription);
             } catch (Exception e) {
                 continue;
             }
@@ -127,27 +115,18 @@ public class W02D04Service {
 
     private void processPngFiles(String inputDir, Map<String, String> transcriptions) {
         List<File> pngFiles = FileUtils.listFilesByExtension(inputDir, ".png");
-        File processedDir = new File(inputDir, "processed_transcriptions");
-        if (!processedDir.exists())
-            processedDir.mkdirs();
+        String prompt = promptService.extractTextFromImagePrompt();
+        String derivation = ArtifactStore.derivation("ocr", "gpt-4o", HashUtils.sha256Hex(prompt));
         for (File pngFile : pngFiles) {
             try {
-                String txtFileName = pngFile.getName().replaceAll("\\.png$", ".txt");
-
-                File existingTranscription = new File(processedDir, txtFileName);
-                if (existingTranscription.exists()) {
-                    // caching
-                    String existingContent = Files.readString(existingTranscription.toPath());
-                    transcriptions.put(pngFile.getName(), existingContent);
-                    continue;
-                } else {
-                    String base64Image = fileService.readFileAsBase64(pngFile.getAbsolutePath());
-                    String prompt = promptService.extractTextFromImagePrompt();
-                    OpenAiImagePromptRequestDto dto = OpenAiImagePromptRequestDto.build("gpt-4o", prompt, base64Image);
-                    String extractedText = openAiAdapter.getAnswerWithImageRequestPayload(dto, "gpt-4o");
-                    File txtFile = new File(processedDir, txtFileName);
-                    Files.writeString(txtFile.toPath(), extractedText);
-                }
+                String extractedText = artifactStore.getOrComputeText(HashUtils.sha256Hex(pngFile.toPath()),
+                        derivation, () -> {
+                            String base64Image = fileService.readFileAsBase64(pngFile.getAbsolutePath());
+                            OpenAiImagePromptRequestDto dto = OpenAiImagePromptRequestDto.build("gpt-4o", prompt,
+                                    base64Image);
+                            return openAiAdapter.getAnswerWithImageRequestPayload(dto, "gpt-4o");
+                        });
+                transcriptions.put(pngFile.getName(), extractedText);
             } catch (Exception e) {
                 continue;
             }
@@ -9,6 +9,10 @@ import org.slf4j.LoggerFactory;
 
 import pl.cwtwcz.adapter.OpenAiAdapter;
 import pl.cwtwcz.adapter.GroqAdapter;
+import pl.cwtwcz.cache.ArtifactStore;
+import pl.cwtwcz.crawler.CrawledPage;
+import pl.cwtwcz.crawler.PageSnapshotStore;
+import pl.cwtwcz.html.HtmlContent;
 import pl.cwtwcz.service.ApiExplorerService;
 import pl.cwtwcz.service.FileService;
 import pl.cwtwcz.service.PageScraperService;
@@ -16,6 +20,9 @@ import pl.cwtwcz.service.PromptService;
 import pl.cwtwcz.service.FlagService;
 import pl.cwtwcz.dto.common.OpenAiImagePromptRequestDto;
 import pl.cwtwcz.dto.week2.day5.ArxivRequestDto;
+import pl.cwtwcz.utils.HashUtils;
+
+import java.nio.file.Paths;
 
 import java.util.*;
 import java.util.regex.Matcher;
@@ -49,6 +56,8 @@ public class W02D05Service {
     private final PageScraperService pageScraperService;
     private final PromptService promptService;
     private final FlagService flagService;
+    private final ArtifactStore artifactStore;
+    private final PageSnapshotStore pageSnapshotStore;
 
     public String w02d05() {
         try {
@@ -91,26 +100,24 @@ public class W02D05Service {
 
     private String processArxivArticle() {
         // Step 1. Download HTML content
-        String htmlContent = downloadHtmlContent();
+        CrawledPage article = downloadArticle();
+        String htmlContent = article.html();
         StringBuilder markdownContent = new StringBuilder();
 
-        // Step 2. Process text content - extract text from HTML tags using
-        // PageScraperService
+        // Step 2. Process text content - already extracted by the page snapshot store
         markdownContent.append("# Artykuł Profesora Maja\n\n");
-        String textContent = pageScraperService.extractTextFromHtml(htmlContent);
+        String textContent = article.text();
         markdownContent.append(textContent).append("\n\n");
 
-        // Step 3. Process images using PageScraperService
-        List<String> imageSources = pageScraperService.extractImageSources(htmlContent);
-        for (String imgSrc : imageSources) {
-            if (!imgSrc.isEmpty()) {
-                String imageDescription = processImage(imgSrc, "");
-                markdownContent.append("**Obraz:** ").append(imageDescription).append("\n\n");
-            }
+        // Step 3. Process images (images and audio come from one tokenizer pass)
+        HtmlContent html = pageScraperService.parseHtml(htmlContent);
+        for (HtmlContent.Image image : html.images()) {
+            String imageDescription = processImage(image.src(), image.alt());
+            markdownContent.append("**Obraz:** ").append(imageDescription).append("\n\n");
         }
 
-        // Step 4. Process audio files using PageScraperService
-        List<String> audioSources = pageScraperService.extractAudioSources(htmlContent);
+        // Step 4. Process audio files
+        List<String> audioSources = html.audioSources();
         for (String audioSrc : audioSources) {
             if (!audioSrc.isEmpty()) {
                 String audioTranscription = processAudio(audioSrc);
@@ -125,10 +132,10 @@ public class W02D05Service {
         return processedContent;
     }
 
-    private String downloadHtmlContent() {
-        // Step 1. Download HTML content using ApiExplorerService
+    private CrawledPage downloadArticle() {
+        // Step 1. Download HTML content, a conditional GET when the page was stored before
         logger.info("Downloading HTML content from: {}", arxivArticleUrl);
-        return apiExplorerService.postJsonForObject(arxivArticleUrl, null, String.class);
+        return pageSnapshotStore.fetch(arxivArticleUrl);
     }
 
     private String processImage(String imageSrc, String altText) {
@@ -140,26 +147,22 @@ public class W02D05Service {
             // Step 2. Generate cache filename
             String filename = "image_" + Math.abs(fullImageUrl.hashCode()) + ".jpg";
             String cachedImagePath = cacheDir + "images/" + filename;
-            String cachedDescriptionPath = cacheDir + "images/" + filename + "_description.txt";
 
-            // Step 3. Check if description already exists in cache using FileService
-            if (fileService.fileExists(cachedDescriptionPath)) {
-                return fileService.readStringFromFile(cachedDescriptionPath);
+            // Step 3. Download image using FileService (once)
+            if (!fileService.fileExists(cachedImagePath)) {
+                fileService.downloadFile(fullImageUrl, cachedImagePath);
             }
 
-            // Step 4. Download image using FileService
-            fileService.downloadFile(fullImageUrl, cachedImagePath);
-
-            // Step 5. Convert to base64 and get description from LLM using PromptService
-            String base64Image = fileService.readFileAsBase64(cachedImagePath);
+            // Step 4. Get description from LLM, reusing the stored one for the same image and prompt
             String prompt = promptService.w02d05_createImageDescriptionPrompt(altText);
-
-            OpenAiImagePromptRequestDto requestDto = OpenAiImagePromptRequestDto.build("gpt-4o-mini", prompt,
-                    base64Image);
-            String description = openAiAdapter.getAnswerWithImageRequestPayload(requestDto, "gpt-4o-mini");
-
-            // Step 6. Cache description using FileService
-            fileService.writeStringToFile(cachedDescriptionPath, description);
+            String description = artifactStore.getOrComputeText(
+                    HashUtils.sha256Hex(Paths.get(cachedImagePath)),
+                    ArtifactStore.derivation("vision", "gpt-4o-mini", HashUtils.sha256Hex(prompt)), () -> {
+                        String base64Image = fileService.readFileAsBase64(cachedImagePath);
+                        OpenAiImagePromptRequestDto requestDto = OpenAiImagePromptRequestDto.build("gpt-4o-mini",
+                                prompt, base64Image);
+                        return openAiAdapter.getAnswerWithImageRequestPayload(requestDto, "gpt-4o-mini");
+                    });
 
             logger.info("Processed image: {} -> {}", fullImageUrl,
                     description.substring(0, Math.min(100, description.length())));
@@ -180,22 +183,15 @@ public class W02D05Service {
             // Step 2. Generate cache filename
             String filename = "audio_" + Math.abs(fullAudioUrl.hashCode()) + ".mp3";
             String cachedAudioPath = cacheDir + "audio/" + filename;
-            String cachedTranscriptionPath = cacheDir + "audio/" + filename + "_transcription.txt";
 
-            // Step 3. Check if transcription already exists in cache using FileService
-            if (fileService.fileExists(cachedTranscriptionPath)) {
-                return fileService.readStringFromFile(cachedTranscriptionPath);
+            // Step 3. Download audio file using FileService (once)
+            if (!fileService.fileExists(cachedAudioPath)) {
+                fileService.downloadFile(fullAudioUrl, cachedAudioPath);
             }
 
-            // Step 4. Download audio file using FileService
-            fileService.downloadFile(fullAudioUrl, cachedAudioPath);
-
-            // Step 5. Transcribe audio using GroqAdapter
+            // Step 4. Transcribe audio using GroqAdapter (transcripts are kept in the artifact store)
             String transcription = groqAdapter.speechToText(cachedAudioPath, "pl");
 
-            // Step 6. Cache transcription using FileService
-            fileService.writeStringToFile(cachedTranscriptionPath, transcription);
-
             logger.info("Processed audio: {} -> {}", fullAudioUrl,
                     transcription.substring(0, Math.min(100, transcription.length())));
             return transcription;
@@ -14,6 +14,7 @@ import pl.cwtwcz.service.PromptService;
 import pl.cwtwcz.service.FlagService;
 import pl.cwtwcz.service.TextAnalysisService;
 import pl.cwtwcz.dto.week3.DokumentyRequestDto;
+import pl.cwtwcz.text.FactMatcher;
 
 import java.util.*;
 
@@ -119,6 +120,7 @@ public class W03D01Service {
             Map<String, String> reports, Map<String, String> facts, String factsAnalysis) {
         // Step 3.1. Process each report to generate keywords
         Map<String, String> results = new HashMap<>();
+        FactMatcher factMatcher = textAnalysisService.compileFacts(facts);
 
         for (Map.Entry<String, String> reportEntry : reports.entrySet()) {
             String filename = reportEntry.getKey();
@@ -130,7 +132,7 @@ public class W03D01Service {
             String filenameInfo = textAnalysisService.extractFilenameInformation(filename);
 
             // Step 3.3. Find related facts using TextAnalysisService
-            String relatedFacts = textAnalysisService.findRelatedFactsForReport(content, facts);
+            String relatedFacts = textAnalysisService.findRelatedFactsForReport(content, factMatcher);
 
             // Step 3.4. Generate keywords using PromptService
             String prompt = promptService.w03d01_createKeywordGenerationPrompt(filename, content, filenameInfo,
@@ -10,10 +10,11 @@ import org.slf4j.LoggerFactory;
 import pl.cwtwcz.adapter.OpenAiAdapter;
 import pl.cwtwcz.service.ApiExplorerService;
 import pl.cwtwcz.service.FileService;
-import pl.cwtwcz.service.QdrantService;
+import pl.cwtwcz.service.VectorStoreService;
 import pl.cwtwcz.service.FlagService;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -50,16 +51,16 @@ public class W03D02Service {
     private final OpenAiAdapter openAiAdapter;
     private final ApiExplorerService apiExplorerService;
     private final FileService fileService;
-    private final QdrantService qdrantService;
+    private final VectorStoreService vectorStoreService;
     private final FlagService flagService;
 
     public String w03d02() {
         try {
             logger.info("Starting W03D02 - Vector search for weapon theft report");
 
-            // Step 1. Create Qdrant collection
-            logger.info("Creating Qdrant collection: {}", collectionName);
-            qdrantService.createCollection(collectionName, vectorSize);
+            // Step 1. Create vector collection
+            logger.info("Creating vector collection: {}", collectionName);
+            vectorStoreService.createCollection(collectionName, vectorSize);
 
             // Step 2. Index all reports
             logger.info("Indexing reports from directory: {}", reportsDir);
@@ -94,26 +95,31 @@ public class W03D02Service {
 
         logger.info("Found {} report files to index", reportFiles.length);
 
+        // Step 5. Read report contents
+        List<String> contents = new ArrayList<>(reportFiles.length);
         for (File reportFile : reportFiles) {
-            // Step 5. Parse date from filename
-            String filename = reportFile.getName();
-            String date = parseDate(filename);
+            contents.add(fileService.readStringFromFile(reportFile.getAbsolutePath()));
+        }
 
-            // Step 6. Read report content
-            String content = fileService.readStringFromFile(reportFile.getAbsolutePath());
+        // Step 6. Generate embeddings for all reports in batched requests
+        List<float[]> embeddings = openAiAdapter.createEmbeddings(contents, embeddingModel);
 
-            // Step 7. Generate embedding
-            List<Float> embedding = openAiAdapter.createEmbedding(content, embeddingModel);
+        List<VectorStoreService.Point> points = new ArrayList<>(reportFiles.length);
+        for (int i = 0; i < reportFiles.length; i++) {
+            // Step 7. Parse date from filename
+            String filename = reportFiles[i].getName();
+            String date = parseDate(filename);
 
             // Step 8. Create metadata
             Map<String, String> metadata = new HashMap<>();
             metadata.put("date", date);
             metadata.put("filename", filename);
 
-            // Step 9. Index in Qdrant
-            qdrantService.indexDocument(collectionName, filename, embedding, metadata);
-            logger.debug("Indexed report: {} with date: {}", filename, date);
+            points.add(new VectorStoreService.Point(filename, embeddings.get(i), metadata));
         }
+
+        // Step 9. Index all reports in the vector store in bulk
+        vectorStoreService.upsertPoints(collectionName, points);
     }
 
     private String parseDate(String filename) {
@@ -132,8 +138,8 @@ public class W03D02Service {
         // Step 10. Create query embedding
         List<Float> queryEmbedding = openAiAdapter.createEmbedding(queryText, embeddingModel);
 
-        // Step 11. Search in Qdrant
-        QdrantService.SearchResult result = qdrantService.searchSimilar(
+        // Step 11. Search in the vector store
+        VectorStoreService.SearchResult result = vectorStoreService.searchSimilar(
                 collectionName, queryEmbedding, 1);
 
         if (result != null) {
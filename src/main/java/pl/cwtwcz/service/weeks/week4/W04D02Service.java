@@ -7,6 +7,8 @@ import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
 
 import pl.cwtwcz.adapter.OpenAiAdapter;
+import pl.cwtwcz.adapter.StreamStops;
+import pl.cwtwcz.exception.ProviderException;
 import pl.cwtwcz.dto.week4.ResearchVerificationRequestDto;
 import pl.cwtwcz.dto.week4.ResearchVerificationResponseDto;
 import pl.cwtwcz.service.ApiExplorerService;
@@ -73,9 +75,14 @@ public class W04D02Service {
     private boolean verifyResearchData(String researchData) {
         try {
             String verificationPrompt = promptService.w04d02_createResearchVerificationPrompt(researchData);
-            String response = openAiAdapter.getAnswer(verificationPrompt, fineTuneModelName);
+            // The fine-tuned model answers with a single "1"/"0" token
+            String response = openAiAdapter.getAnswerUntil(verificationPrompt, fineTuneModelName,
+                    StreamStops.firstToken());
             logger.info("Verification response for '{}': {}", researchData, response);
-            return response.equals("1");
+            return response.trim().equals("1");
+        } catch (ProviderException e) {
+            // Unknown is not the same as incorrect, let the task fail instead of reporting a wrong set
+            throw e;
         } catch (Exception e) {
             logger.error("Error verifying research data '{}': {}", researchData, e.getMessage(), e);
             return false;
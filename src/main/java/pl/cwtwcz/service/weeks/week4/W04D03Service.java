@@ -7,20 +7,20 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import pl.cwtwcz.adapter.OpenAiAdapter;
+import pl.cwtwcz.adapter.StreamStops;
+import pl.cwtwcz.crawler.CrawlSession;
+import pl.cwtwcz.crawler.CrawledPage;
+import pl.cwtwcz.crawler.WebCrawler;
 import pl.cwtwcz.dto.week4.PageLinkDto;
 import pl.cwtwcz.dto.week4.SoftoAnswersDto;
 import pl.cwtwcz.dto.week4.SoftoQuestionsDto;
 import pl.cwtwcz.service.ApiExplorerService;
 import pl.cwtwcz.service.FlagService;
-import pl.cwtwcz.service.PageScraperService;
 import pl.cwtwcz.service.PromptService;
 
-import static java.util.regex.Pattern.CASE_INSENSITIVE;
-
-import java.net.URI;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RequiredArgsConstructor
 @Service
@@ -43,14 +43,11 @@ public class W04D03Service {
 
     private final RestTemplate restTemplate;
     private final ApiExplorerService apiExplorerService;
-    private final PageScraperService pageScraperService;
+    private final WebCrawler webCrawler;
     private final OpenAiAdapter openAiAdapter;
     private final PromptService promptService;
     private final FlagService flagService;
 
-    private final Pattern LINK_PATTERN = Pattern.compile("<a[^>]*href=[\"']([^\"']*)[\"'][^>]*>([^<]*)</a>",
-            CASE_INSENSITIVE);
-
     public String w04d03() {
         try {
             // Step 1. Fetch questions from centrala
@@ -58,19 +55,22 @@ public class W04D03Service {
             Map<String, String> questions = fetchQuestionsFromCentrala();
             logger.info("Retrieved {} questions: {}", questions.size(), questions.keySet());
 
-            // Step 2. Create universal search mechanism for each question
+            // Step 2. Search for all answers concurrently; the session fetches each page once
             Map<String, String> answers = new HashMap<>();
 
-            for (Map.Entry<String, String> questionEntry : questions.entrySet()) {
-                String questionId = questionEntry.getKey();
-                String question = questionEntry.getValue();
-
-                logger.info("Step 2. Processing question {}: {}", questionId, question);
-
-                String answer = searchForAnswer(question);
-                answers.put(questionId, answer);
-
-                logger.info("Found answer for {}: {}", questionId, answer);
+            try (CrawlSession session = webCrawler.openSession(url -> url.startsWith(softoBaseUrl))) {
+                Map<String, CompletableFuture<Optional<String>>> searches = new LinkedHashMap<>();
+                for (Map.Entry<String, String> questionEntry : questions.entrySet()) {
+                    logger.info("Step 2. Processing question {}: {}", questionEntry.getKey(), questionEntry.getValue());
+                    searches.put(questionEntry.getKey(), searchForAnswer(session, questionEntry.getValue()));
+                }
+
+                for (Map.Entry<String, CompletableFuture<Optional<String>>> search : searches.entrySet()) {
+                    String answer = joinSearch(search.getKey(), search.getValue())
+                            .orElse("Odpowiedź nie została znaleziona");
+                    answers.put(search.getKey(), answer);
+                    logger.info("Found answer for {}: {}", search.getKey(), answer);
+                }
             }
 
             // Step 3. Send answers to centrala
@@ -106,122 +106,85 @@ public class W04D03Service {
         }
     }
 
-    private String searchForAnswer(String question) {
-        Set<String> visitedUrls = new HashSet<>();
-        String currentUrl = softoBaseUrl;
-
-        return searchRecursively(question, currentUrl, visitedUrls, 0)
-                .orElse("Odpowiedź nie została znaleziona");
+    private CompletableFuture<Optional<String>> searchForAnswer(CrawlSession session, String question) {
+        return session.searchAsync(softoBaseUrl, MAX_DEPTH - 1,
+                (page, candidates) -> scoreLinks(page, candidates, question),
+                (page, depth) -> checkPageForAnswer(page, depth, question));
     }
 
-    private Optional<String> searchRecursively(String question, String currentUrl, Set<String> visitedUrls, int depth) {
-        if (depth >= MAX_DEPTH || visitedUrls.contains(currentUrl)) {
+    private Optional<String> joinSearch(String questionId, CompletableFuture<Optional<String>> search) {
+        try {
+            return search.join();
+        } catch (CompletionException e) {
+            logger.error("Search for question {} failed: {}", questionId, e.getCause().getMessage(), e.getCause());
             return Optional.empty();
         }
-        visitedUrls.add(currentUrl);
-        logger.info("Step {}. Visiting URL: {}", depth + 1, currentUrl);
-
-        try {
-            String pageContent = restTemplate.getForObject(currentUrl, String.class);
-            if (pageContent == null) {
-                logger.warn("Empty response from URL: {}", currentUrl);
-                return Optional.empty();
-            }
-
-            // Extract both clean text and preserve link information
-            String cleanContent = pageScraperService.extractTextFromHtml(pageContent);
-            String content = enrichContentWithLinks(pageContent, cleanContent);
-            logger.info("Extracted {} characters of clean text, {} characters enriched", cleanContent.length(),
-                    content.length());
-
-            // Step 1. Check if answer exists on current page
-            String hasAnswer = openAiAdapter.getAnswer(
-                    promptService.w04d03_createAnswerCheckPrompt(content, question));
-            if ("TAK".equalsIgnoreCase(hasAnswer.trim())) {
-                logger.info("Answer found on current page, extracting...");
-
-                // Extract the answer
-                String extractPrompt = promptService.w04d03_createAnswerExtractionPrompt(content, question);
-                String answer = openAiAdapter.getAnswer(extractPrompt);
-
-                logger.info("Extracted answer: {}", answer);
-                return Optional.of(answer.trim());
-            }
-
-            // Step 2. No answer found, select next link to follow
-            logger.info("No answer on current page, selecting next link to follow");
-
-            List<PageLinkDto> availableLinks = extractLinksFromPage(pageContent, currentUrl);
-            if (availableLinks.isEmpty()) {
-                logger.info("No links found on page, ending search");
-                return Optional.empty();
-            }
-
-            // Filter out already visited links
-            availableLinks.removeIf(link -> visitedUrls.contains(link.getUrl()));
-            if (availableLinks.isEmpty()) {
-                logger.info("All links already visited, ending search");
-                return Optional.empty();
-            }
-
-            // Use LLM to select the best link
-            String linksText = formatLinksForPrompt(availableLinks);
-            String linkSelectionPrompt = promptService.w04d03_createLinkSelectionPrompt(content, question, linksText);
-            String selectedUrl = openAiAdapter.getAnswer(linkSelectionPrompt).trim();
+    }
 
-            // Validate selected URL
-            if (!isValidUrl(selectedUrl, availableLinks)) {
-                logger.warn("Invalid URL selected by LLM: {}, using first available link", selectedUrl);
-                selectedUrl = availableLinks.get(0).getUrl();
-            }
+    private Optional<String> checkPageForAnswer(CrawledPage page, int depth, String question) {
+        logger.info("Step {}. Visiting URL: {}", depth + 1, page.url());
 
-            logger.info("Selected URL: {}", selectedUrl);
+        // Extract both clean text and preserve link information
+        String content = enrichContentWithLinks(page);
+        logger.info("Extracted {} characters of clean text, {} characters enriched", page.text().length(),
+                content.length());
 
-            // Continue search recursively
-            return searchRecursively(question, selectedUrl, visitedUrls, depth + 1);
-        } catch (Exception e) {
-            logger.error("Error processing URL {}: {}", currentUrl, e.getMessage(), e);
+        // Step 1. Check if answer exists on current page (stream stops at the TAK/NIE decision)
+        String hasAnswer = openAiAdapter.getAnswerUntil(
+                promptService.w04d03_createAnswerCheckPrompt(content, question),
+                StreamStops.startsWithAnyOf("TAK", "NIE"));
+        if (!hasAnswer.trim().toUpperCase().startsWith("TAK")) {
             return Optional.empty();
         }
-    }
-
-    private List<PageLinkDto> extractLinksFromPage(String pageContent, String baseUrl) {
-        List<PageLinkDto> links = new ArrayList<>();
-        Matcher matcher = LINK_PATTERN.matcher(pageContent);
+        logger.info("Answer found on current page, extracting...");
 
-        while (matcher.find()) {
-            String href = matcher.group(1);
-            String linkText = matcher.group(2);
+        // Step 2. Extract the answer
+        String extractPrompt = promptService.w04d03_createAnswerExtractionPrompt(content, question);
+        String answer = openAiAdapter.getAnswer(extractPrompt);
 
-            if (href == null || href.isEmpty() || href.startsWith("#") || href.startsWith("javascript:")) {
-                continue;
-            }
-
-            // Convert relative URLs to absolute
-            String absoluteUrl = resolveUrl(href, baseUrl);
+        logger.info("Extracted answer: {}", answer);
+        return Optional.of(answer.trim());
+    }
 
-            // Only include links within the softo domain
-            if (absoluteUrl.startsWith(softoBaseUrl)) {
-                links.add(new PageLinkDto(absoluteUrl, linkText.trim(), ""));
-            }
+    /**
+     * The LLM picks the most promising link, which the search visits next. The other
+     * links keep a low score and are visited only when the picked path dead-ends.
+     */
+    private Map<String, Double> scoreLinks(CrawledPage page, List<PageLinkDto> candidates, String question) {
+        logger.info("No answer on {}, selecting next link out of {}", page.url(), candidates.size());
+
+        String linksText = formatLinksForPrompt(candidates);
+        String linkSelectionPrompt = promptService.w04d03_createLinkSelectionPrompt(enrichContentWithLinks(page),
+                question, linksText);
+        String selected = openAiAdapter.getAnswer(linkSelectionPrompt).trim();
+
+        PageLinkDto selectedLink = findSelectedLink(selected, candidates);
+        if (selectedLink == null) {
+            logger.warn("Invalid link selected by LLM: {}, using first available link", selected);
+            selectedLink = candidates.get(0);
         }
+        logger.info("Selected URL: {}", selectedLink.getUrl());
 
-        logger.info("Extracted {} valid links from page", links.size());
-        return links;
+        Map<String, Double> scores = new HashMap<>();
+        scores.put(selectedLink.getUrl(), 1.0);
+        return scores;
     }
 
-    private String resolveUrl(String href, String baseUrl) {
-        try {
-            if (href.startsWith("http")) {
-                return href;
+    /**
+     * The prompt asks for the link number, but a URL answer is accepted too.
+     */
+    private PageLinkDto findSelectedLink(String selected, List<PageLinkDto> candidates) {
+        for (PageLinkDto link : candidates) {
+            if (link.getUrl().equals(selected)) {
+                return link;
             }
-
-            URI baseUri = new URI(baseUrl);
-            URI resolvedUri = baseUri.resolve(href);
-            return resolvedUri.toString();
-        } catch (Exception e) {
-            logger.warn("Failed to resolve URL: {} with base: {}", href, baseUrl);
-            return href;
+        }
+        String digits = selected.replaceFirst("(?s)^\\D*(\\d+).*$", "$1");
+        try {
+            int index = Integer.parseInt(digits) - 1;
+            return index >= 0 && index < candidates.size() ? candidates.get(index) : null;
+        } catch (NumberFormatException e) {
+            return null;
         }
     }
 
@@ -234,35 +197,15 @@ public class W04D03Service {
         return sb.toString();
     }
 
-    private boolean isValidUrl(String selectedUrl, List<PageLinkDto> availableLinks) {
-        return availableLinks.stream()
-                .anyMatch(link -> link.getUrl().equals(selectedUrl));
-    }
-
-    private String enrichContentWithLinks(String htmlContent, String cleanText) {
+    private String enrichContentWithLinks(CrawledPage page) {
         StringBuilder enrichedContent = new StringBuilder();
-        enrichedContent.append("TREŚĆ STRONY:\n").append(cleanText).append("\n\n");
-
-        // Extract all links with their context
-        Pattern linkPattern = Pattern.compile("<a[^>]*href=[\"']([^\"']*)[\"'][^>]*>([^<]*)</a>", CASE_INSENSITIVE);
-        Matcher matcher = linkPattern.matcher(htmlContent);
-
-        List<String> foundLinks = new ArrayList<>();
-        while (matcher.find()) {
-            String url = matcher.group(1);
-            String linkText = matcher.group(2);
-
-            if (url != null && !url.isEmpty() && !url.startsWith("#") && !url.startsWith("javascript:")) {
-                // Convert relative URLs to absolute
-                String absoluteUrl = resolveUrl(url, softoBaseUrl);
-                foundLinks.add(String.format("LINK: %s (tekst: %s)", absoluteUrl, linkText.trim()));
-            }
-        }
+        enrichedContent.append("TREŚĆ STRONY:\n").append(page.text()).append("\n\n");
 
-        if (!foundLinks.isEmpty()) {
+        if (!page.links().isEmpty()) {
             enrichedContent.append("ZNALEZIONE LINKI NA STRONIE:\n");
-            for (String link : foundLinks) {
-                enrichedContent.append(link).append("\n");
+            for (PageLinkDto link : page.links()) {
+                enrichedContent.append(String.format("LINK: %s (tekst: %s)", link.getUrl(), link.getText()))
+                        .append("\n");
             }
         }
 
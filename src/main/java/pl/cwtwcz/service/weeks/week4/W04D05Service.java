@@ -20,11 +20,13 @@ import pl.cwtwcz.service.PromptService;
 import pl.cwtwcz.service.PdfProcessingService;
 import pl.cwtwcz.service.DatabaseService;
 import pl.cwtwcz.service.DatabaseQueryService;
+import pl.cwtwcz.service.WriteBehindService;
 
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RequiredArgsConstructor
 @Service
@@ -36,6 +38,8 @@ public class W04D05Service {
     private static final int PDF_TEXT_START_PAGE = 1;
     private static final int PDF_TEXT_END_PAGE = 18;
     private static final int PDF_OCR_PAGE = 19;
+    private static final int NOTEBOOK_FETCH_SIZE = 16;
+    private static final int ANSWER_FETCH_SIZE = 256;
 
     @Value("${custom.report.url}")
     private String reportUrl;
@@ -59,6 +63,7 @@ public class W04D05Service {
     private final PdfProcessingService pdfProcessingService;
     private final DatabaseService databaseService;
     private final DatabaseQueryService databaseQueryService;
+    private final WriteBehindService writeBehindService;
     private final RestTemplate restTemplate;
 
     public String w04d05() {
@@ -77,7 +82,9 @@ public class W04D05Service {
                 // Step 3. Process PDF and store content (with quality validation)
                 String fullNotebookContent = processAndStoreNotebookContent();
 
-                // Step 4. Find answers for all questions
+                // Step 4. Find answers for all questions (the answers and hints stored write-behind
+                // by the previous attempt drained while the questions and the notebook were loaded)
+                writeBehindService.flush(dbPath);
                 Map<String, String> answers = findAnswersForAllQuestions(questions, fullNotebookContent);
 
                 // Step 5. Submit answers to centrala
@@ -87,6 +94,7 @@ public class W04D05Service {
                 Optional<String> flag = flagService.findFlagInText(result);
                 if (flag.isPresent()) {
                     logger.info("Flag found on attempt {}/{}: {}", attempt, MAX_ATTEMPTS, flag.get());
+                    writeBehindService.flush(dbPath);
                     return flag.get();
                 } else {
                     logger.warn("No flag found on attempt {}/{}. Result: {}", attempt, MAX_ATTEMPTS, result);
@@ -94,6 +102,7 @@ public class W04D05Service {
                         logger.info("Retrying...");
                     } else {
                         logger.error("All {} attempts failed to find flag. Returning last result.", MAX_ATTEMPTS);
+                        writeBehindService.flush(dbPath);
                         return result;
                     }
                 }
@@ -105,14 +114,6 @@ public class W04D05Service {
                     throw new RuntimeException("Failed to complete W04D05 task after " + MAX_ATTEMPTS + " attempts", e);
                 }
             }
-
-            // Wait 30 seconds before retrying. OpenAI API restrictions
-            try {
-                Thread.sleep(30000);
-            } catch (InterruptedException e) {
-                logger.error("Error in W04D05 task on attempt {}/{}: {}", attempt, MAX_ATTEMPTS, e.getMessage(), e);
-                throw new RuntimeException("Failed to complete W04D05 task after " + MAX_ATTEMPTS + " attempts", e);
-            }
         }
 
         // This should never be reached due to the logic above, but keeping for safety
@@ -141,30 +142,22 @@ public class W04D05Service {
         Map<String, String> questionsMap = restTemplate.getForObject(questionsUrl, Map.class);
         List<NotesQuestionDto> questions = new ArrayList<>();
 
-        // Step 2. Store questions in database for future use
+        // Step 2. Store questions in database for future use (one transaction)
+        List<Object[]> rows = new ArrayList<>();
         for (Map.Entry<String, String> entry : questionsMap.entrySet()) {
             NotesQuestionDto question = new NotesQuestionDto(entry.getKey(), entry.getValue());
             questions.add(question);
-
-            databaseService.executeUpdate(dbPath, databaseQueryService.insertOrReplaceQuestion(),
-                    entry.getKey(), entry.getValue());
+            rows.add(new Object[] { entry.getKey(), entry.getValue() });
         }
+        databaseService.executeBatch(dbPath, databaseQueryService.insertOrReplaceQuestion(), rows);
 
         logger.info("Fetched and stored {} questions in database for future use", questions.size());
         return questions;
     }
 
     private List<NotesQuestionDto> getQuestionsFromDatabase() {
-        List<Map<String, Object>> rows = databaseService.executeQuery(dbPath,
-                databaseQueryService.selectAllQuestions());
-
-        List<NotesQuestionDto> questions = new ArrayList<>();
-        for (Map<String, Object> row : rows) {
-            questions.add(new NotesQuestionDto(
-                    (String) row.get("id"),
-                    (String) row.get("question")));
-        }
-        return questions;
+        return databaseService.query(dbPath, databaseQueryService.selectAllQuestions(),
+                (rs, rowNum) -> new NotesQuestionDto(rs.getString(1), rs.getString(2)));
     }
 
     private String processAndStoreNotebookContent() {
@@ -187,8 +180,16 @@ public class W04D05Service {
 
         // Process only what's needed
         if (needsTextProcessing) {
-            String textContent = pdfProcessingService.extractTextFromPages(pdfPath, PDF_TEXT_START_PAGE,
-                    PDF_TEXT_END_PAGE);
+            // Pages arrive as they are parsed; the notebook is stored as one "text" row as before
+            StringBuilder text = new StringBuilder();
+            try (Stream<PdfProcessingService.PageText> pages = pdfProcessingService.streamPageText(pdfPath,
+                    PDF_TEXT_START_PAGE, PDF_TEXT_END_PAGE)) {
+                pages.forEach(page -> {
+                    text.append(page.text());
+                    logger.debug("Extracted text of page {}: {} characters", page.pageNumber(), page.text().length());
+                });
+            }
+            String textContent = text.toString();
             databaseService.executeUpdate(dbPath, databaseQueryService.insertNotebookContent(),
                     "text", textContent, "pages " + PDF_TEXT_START_PAGE + "-" + PDF_TEXT_END_PAGE);
             logger.info("Stored text content from pages {}-{}", PDF_TEXT_START_PAGE, PDF_TEXT_END_PAGE);
@@ -344,14 +345,13 @@ public class W04D05Service {
     }
 
     private String getFullNotebookContent() {
-        List<Map<String, Object>> rows = databaseService.executeQuery(dbPath,
-                databaseQueryService.selectNotebookContent());
-
+        // Columns: content_type, content, source_info
         StringBuilder content = new StringBuilder();
-        for (Map<String, Object> row : rows) {
-            content.append("=== ").append(row.get("source_info")).append(" ===\n");
-            content.append(row.get("content")).append("\n\n");
-        }
+        databaseService.queryForEach(dbPath, databaseQueryService.selectNotebookContent(), NOTEBOOK_FETCH_SIZE,
+                rs -> {
+                    content.append("=== ").append(rs.getString(3)).append(" ===\n");
+                    content.append(rs.getString(2)).append("\n\n");
+                });
         return content.toString();
     }
 
@@ -362,27 +362,27 @@ public class W04D05Service {
     }
 
     private Set<String> getIncorrectAnswersFromDatabase(String questionId) {
-        List<Map<String, Object>> rows = databaseService.executeQuery(dbPath,
-                databaseQueryService.selectIncorrectAnswers(), questionId);
-
-        return rows.stream()
-                .map(row -> (String) row.get("answer"))
-                .filter(answer -> answer != null && !answer.trim().isEmpty())
-                .collect(Collectors.toSet());
+        try (Stream<String> answers = databaseService.queryStream(dbPath,
+                databaseQueryService.selectIncorrectAnswers(), ANSWER_FETCH_SIZE,
+                (rs, rowNum) -> rs.getString(1), questionId)) {
+            return answers
+                    .filter(answer -> answer != null && !answer.trim().isEmpty())
+                    .collect(Collectors.toSet());
+        }
     }
 
     private Set<String> getAllHintsFromDatabase(String questionId) {
-        List<Map<String, Object>> rows = databaseService.executeQuery(dbPath,
-                databaseQueryService.selectAllHints(), questionId);
-
-        return rows.stream()
-                .map(row -> (String) row.get("hint"))
-                .filter(hint -> hint != null && !hint.trim().isEmpty())
-                .collect(Collectors.toSet());
+        try (Stream<String> hints = databaseService.queryStream(dbPath,
+                databaseQueryService.selectAllHints(), ANSWER_FETCH_SIZE,
+                (rs, rowNum) -> rs.getString(1), questionId)) {
+            return hints
+                    .filter(hint -> hint != null && !hint.trim().isEmpty())
+                    .collect(Collectors.toSet());
+        }
     }
 
     private void storeAnswer(String questionId, String answer, boolean isCorrect, String hint) {
-        databaseService.executeUpdate(dbPath, databaseQueryService.insertAnswer(),
+        writeBehindService.enqueue(dbPath, databaseQueryService.insertAnswer(),
                 questionId, answer, isCorrect, hint);
     }
 
@@ -14,11 +14,14 @@ import pl.cwtwcz.dto.week5.PhoneAnswersDto;
 import pl.cwtwcz.service.ApiExplorerService;
 import pl.cwtwcz.service.DatabaseQueryService;
 import pl.cwtwcz.service.DatabaseService;
+import pl.cwtwcz.service.FactIndexService;
 import pl.cwtwcz.service.FileService;
 import pl.cwtwcz.service.FlagService;
 import pl.cwtwcz.service.PromptService;
+import pl.cwtwcz.service.TextAnalysisService;
+import pl.cwtwcz.service.WriteBehindService;
+import pl.cwtwcz.text.InvertedIndex;
 
-import java.io.File;
 import java.util.*;
 
 @RequiredArgsConstructor
@@ -51,8 +54,11 @@ public class W05D01Service {
     private final FileService fileService;
     private final DatabaseService databaseService;
     private final DatabaseQueryService databaseQueryService;
+    private final WriteBehindService writeBehindService;
     private final ObjectMapper objectMapper;
     private final PromptService promptService;
+    private final FactIndexService factIndexService;
+    private final TextAnalysisService textAnalysisService;
     private final W05D01ConversationReconstructionService conversationReconstructionService;
 
     public String analyzeConversationsStep() {
@@ -77,10 +83,12 @@ public class W05D01Service {
 
             // Step 4. Load questions and facts
             Map<String, String> questions = loadQuestions();
-            Map<String, String> facts = loadFacts();
+            InvertedIndex facts = loadFacts();
 
             // Step 5. Answer questions and validate with feedback loop
             String result = answerQuestionsAndValidate(questions, conversations, facts);
+            // Incorrect answers stored write-behind are committed once, at the end of the run
+            writeBehindService.flush(dbPath);
 
             // Step 6. Extract flag if present
             Optional<String> flag = flagService.findFlagInText(result);
@@ -118,21 +126,9 @@ public class W05D01Service {
         }
     }
 
-    private Map<String, String> loadFacts() {
+    private InvertedIndex loadFacts() {
         try {
-            Map<String, String> facts = new HashMap<>();
-            File factsDirectory = new File(factsDir);
-
-            if (factsDirectory.exists() && factsDirectory.isDirectory()) {
-                File[] factFiles = factsDirectory.listFiles((dir, name) -> name.endsWith(".txt"));
-
-                if (factFiles != null) {
-                    for (File factFile : factFiles) {
-                        String content = fileService.readStringFromFile(factFile.getAbsolutePath());
-                        facts.put(factFile.getName(), content);
-                    }
-                }
-            }
+            InvertedIndex facts = factIndexService.index(factsDir, ".txt");
 
             logger.info("Loaded {} fact files", facts.size());
             return facts;
@@ -145,7 +141,7 @@ public class W05D01Service {
 
     private String answerQuestionsAndValidate(Map<String, String> questions,
             List<Map<String, Object>> conversations,
-            Map<String, String> facts) {
+            InvertedIndex facts) {
         logger.info("Starting integrated answer collection and validation process for {} questions", questions.size());
 
         int maxAttempts = 10;
@@ -188,14 +184,6 @@ public class W05D01Service {
                 logger.warn("Could not identify problematic question from error: {}", result);
                 break;
             }
-
-            // Sleep between attempts
-            try {
-                Thread.sleep(20000);
-            } catch (InterruptedException e) {
-                logger.error("Thread interrupted: {}", e.getMessage());
-                throw new RuntimeException("Thread interrupted", e);
-            }
         }
 
         logger.warn("Max validation attempts reached without success");
@@ -204,7 +192,7 @@ public class W05D01Service {
 
     private Map<String, String> collectAnswers(Map<String, String> questions,
             List<Map<String, Object>> conversations,
-            Map<String, String> facts) {
+            InvertedIndex facts) {
         logger.info("Collecting answers for {} questions", questions.size());
 
         Map<String, String> answers = new HashMap<>();
@@ -363,6 +351,7 @@ public class W05D01Service {
         // Load questions to check which ones are API endpoints
         Map<String, String> questions = loadQuestions();
 
+        List<Object[]> rows = new ArrayList<>();
         for (Map.Entry<String, String> entry : answers.entrySet()) {
             String questionId = entry.getKey();
             String answer = entry.getValue();
@@ -381,12 +370,12 @@ public class W05D01Service {
                 continue;
             }
 
-            // Update or insert answer as correct
-            databaseService.executeUpdate(dbPath,
-                    databaseQueryService.insertOrReplaceCorrectPhoneAnswer(),
-                    questionId, answer);
-            logger.info("Marked answer for question {} as correct: {}", questionId, answer);
+            rows.add(new Object[] { questionId, answer });
+            logger.info("Marking answer for question {} as correct: {}", questionId, answer);
         }
+
+        // Update or insert answers as correct (one transaction)
+        databaseService.executeBatch(dbPath, databaseQueryService.insertOrReplaceCorrectPhoneAnswer(), rows);
     }
 
     private void markPreviousAnswersAsCorrect(String problemQuestion, Map<String, String> currentAnswers) {
@@ -426,8 +415,8 @@ public class W05D01Service {
     }
 
     private void storeIncorrectAnswer(String questionId, String answer, String errorMessage, int attemptNumber) {
-        // Store incorrect answer with is_correct = 0 flag
-        databaseService.executeUpdate(dbPath,
+        // Store incorrect answer with is_correct = 0 flag (write-behind, flushed before the history is read)
+        writeBehindService.enqueue(dbPath,
                 databaseQueryService.insertIncorrectPhoneAnswer(),
                 questionId, answer);
         logger.info("Stored incorrect answer for question {} (attempt {}): {} -> Error: {}",
@@ -435,6 +424,8 @@ public class W05D01Service {
     }
 
     private List<Map<String, Object>> getIncorrectAnswersHistory(String questionId) {
+        // The history includes incorrect answers still in the write-behind queue
+        writeBehindService.flush(dbPath);
         List<Map<String, Object>> history = databaseService.executeQuery(dbPath,
                 databaseQueryService.selectIncorrectPhoneAnswers(),
                 questionId);
@@ -457,7 +448,7 @@ public class W05D01Service {
     }
 
     private String generateAnswerWithFeedback(String question, String questionId,
-            List<Map<String, Object>> conversations, Map<String, String> facts) {
+            List<Map<String, Object>> conversations, InvertedIndex facts) {
 
         // Handle API endpoint question (question 05) - special case
         if (question.contains("endpoint API")) {
@@ -469,9 +460,24 @@ public class W05D01Service {
 
         // Create feedback answer prompt using PromptService with incorrect history
         String prompt = promptService.w05d01_createQuestionAnswerWithFeedbackPrompt(
-                question, questionId, conversations, facts, incorrectHistory);
+                question, questionId, conversations, factsForQuestion(question, facts), incorrectHistory);
 
-        return openAiAdapter.getAnswer(prompt, "gpt-4o");
+        // Every attempt needs a fresh answer, never a cached one
+        return openAiAdapter.getAnswer(prompt, "gpt-4o", true);
+    }
+
+    /**
+     * Orders the facts so that those mentioning entities of the question (people,
+     * organizations, places) come first; all facts stay in the prompt.
+     */
+    private Map<String, String> factsForQuestion(String question, InvertedIndex facts) {
+        Map<String, String> ordered = new LinkedHashMap<>();
+        for (String key : facts.documentsMentioning(textAnalysisService.extractEntities(question))) {
+            ordered.put(key, facts.documents().get(key));
+        }
+        logger.info("Found {} facts related to question: {}", ordered.size(), question);
+        facts.documents().forEach(ordered::putIfAbsent);
+        return ordered;
     }
 
     private String extractMessageFromJson(String jsonResponse) {
@@ -9,6 +9,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import pl.cwtwcz.adapter.OpenAiAdapter;
+import pl.cwtwcz.adapter.ProviderCallExecutor;
 import pl.cwtwcz.service.ApiExplorerService;
 import pl.cwtwcz.service.PromptService;
 import pl.cwtwcz.service.FlagService;
@@ -22,8 +23,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.IntStream;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
@@ -50,9 +49,7 @@ public class W05D03Service {
     private final PromptService promptService;
     private final FlagService flagService;
     private final ObjectMapper objectMapper;
-
-    // Thread pool for parallel processing
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+    private final ProviderCallExecutor providerCallExecutor;
 
     public String w05d03() {
         try {
@@ -113,28 +110,25 @@ public class W05D03Service {
 
         // Step 3.1. Create parallel tasks for all challenges
         List<CompletableFuture<String>> futures = IntStream.range(0, challengeUrls.size())
-                .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
-                    try {
-                        String url = challengeUrls.get(i);
-                        logger.info("Processing challenge {} from URL: {}", i + 1, url);
-
-                        // Step 3.1.1. Download challenge data
-                        W05D03ChallengeDataDto challengeData = apiExplorerService.postJsonForObject(url, null,
-                                W05D03ChallengeDataDto.class);
-                        logger.info("Challenge {}: task='{}', data type={}", i + 1, challengeData.getTask(),
-                                challengeData.getData().getClass().getSimpleName());
-
-                        // Step 3.1.2. Solve the challenge using AI
-                        String answer = solveChallenge(challengeData);
-                        logger.info("Challenge {} solved: {}", i + 1, answer);
-
-                        return answer;
-
-                    } catch (Exception e) {
-                        logger.error("Error solving challenge {}: ", i + 1, e);
-                        return "ERROR: " + e.getMessage();
-                    }
-                }, executorService))
+                .mapToObj(i -> {
+                    String url = challengeUrls.get(i);
+                    logger.info("Processing challenge {} from URL: {}", i + 1, url);
+
+                    // Step 3.1.1. Download challenge data
+                    return providerCallExecutor.submitIo(() -> apiExplorerService.postJsonForObject(url, null,
+                            W05D03ChallengeDataDto.class))
+                            // Step 3.1.2. Solve the challenge using AI
+                            .thenCompose(challengeData -> {
+                                logger.info("Challenge {}: task='{}', data type={}", i + 1, challengeData.getTask(),
+                                        challengeData.getData().getClass().getSimpleName());
+                                return solveChallenge(challengeData);
+                            })
+                            .whenComplete((answer, e) -> {
+                                if (e == null) {
+                                    logger.info("Challenge {} solved: {}", i + 1, answer);
+                                }
+                            });
+                })
                 .toList();
 
         // Step 3.2. Wait for all futures to complete and collect results
@@ -153,48 +147,39 @@ public class W05D03Service {
         return allAnswers;
     }
 
-    private String solveChallenge(W05D03ChallengeDataDto challengeData) {
+    private CompletableFuture<String> solveChallenge(W05D03ChallengeDataDto challengeData) {
         // Step 3.2.1. Convert data to string for analysis
         String dataContent = challengeData.getData().toString();
 
         // Step 3.2.2. Check if task contains URL for knowledge source and download in
         // parallel
-        CompletableFuture<String> knowledgeSourceFuture = null;
+        CompletableFuture<String> knowledgeSourceFuture = CompletableFuture.completedFuture(null);
         if (containsUrl(challengeData.getTask())) {
             String url = extractUrl(challengeData.getTask());
             logger.info("Found knowledge source URL in task: {}", url);
 
-            knowledgeSourceFuture = CompletableFuture.supplyAsync(() -> {
-                try {
-                    String knowledge = apiExplorerService.postJsonForObject(url, null, String.class);
-                    logger.info("Downloaded knowledge source ({} characters)", knowledge.length());
-                    return knowledge;
-                } catch (Exception e) {
-                    logger.warn("Failed to download knowledge source from {}: {}", url, e.getMessage());
-                    return null;
-                }
-            }, executorService);
+            knowledgeSourceFuture = providerCallExecutor.submitIo(() -> {
+                String knowledge = apiExplorerService.postJsonForObject(url, null, String.class);
+                logger.info("Downloaded knowledge source ({} characters)", knowledge.length());
+                return knowledge;
+            }).exceptionally(e -> {
+                logger.warn("Failed to download knowledge source from {}: {}", url, e.getMessage());
+                return null;
+            });
         }
 
-        // Step 3.2.3. Get knowledge source if available
-        String knowledgeSource = null;
-        if (knowledgeSourceFuture != null) {
-            try {
-                knowledgeSource = knowledgeSourceFuture.get(); // Wait for knowledge source
-            } catch (Exception e) {
-                logger.warn("Error getting knowledge source: {}", e.getMessage());
-            }
-        }
-
-        // Step 3.2.4. Use AI to analyze task and generate answer
-        logger.info("Data content: {}", dataContent);
-        String prompt = promptService.w05d03_createChallengeAnalysisPrompt(challengeData.getTask(), dataContent,
-                knowledgeSource);
-        String answer = openAiAdapter.getAnswer(prompt, "gpt-4.1-nano");
-        logger.info("Answer: {}", answer);
-
-        // Step 3.2.5. Clean up answer (remove any extra formatting)
-        return answer.trim();
+        // Step 3.2.3. Use AI to analyze task and generate answer once the knowledge source is available
+        return knowledgeSourceFuture.thenCompose(knowledgeSource -> {
+            logger.info("Data content: {}", dataContent);
+            String prompt = promptService.w05d03_createChallengeAnalysisPrompt(challengeData.getTask(), dataContent,
+                    knowledgeSource);
+            return openAiAdapter.getAnswerAsync(prompt, "gpt-4.1-nano");
+        }).thenApply(answer -> {
+            logger.info("Answer: {}", answer);
+
+            // Step 3.2.4. Clean up answer (remove any extra formatting)
+            return answer.trim();
+        });
     }
 
     private boolean containsUrl(String text) {
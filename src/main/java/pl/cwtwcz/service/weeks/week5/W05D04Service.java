@@ -10,9 +10,6 @@ import java.util.ArrayList;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -22,11 +19,13 @@ import org.slf4j.LoggerFactory;
 
 import pl.cwtwcz.adapter.OpenAiAdapter;
 import pl.cwtwcz.adapter.GroqAdapter;
+import pl.cwtwcz.cache.ArtifactStore;
 import pl.cwtwcz.service.PromptService;
 import pl.cwtwcz.service.FileService;
 import pl.cwtwcz.dto.week5.W05D04RequestDto;
 import pl.cwtwcz.dto.week5.W05D04ResponseDto;
 import pl.cwtwcz.dto.common.OpenAiImagePromptRequestDto;
+import pl.cwtwcz.utils.HashUtils;
 
 @Service
 @RequiredArgsConstructor
@@ -47,6 +46,7 @@ public class W05D04Service {
     private final GroqAdapter groqAdapter;
     private final PromptService promptService;
     private final FileService fileService;
+    private final ArtifactStore artifactStore;
 
     // Single conversation context for all requests
     private final List<String> conversationContext = new ArrayList<>();
@@ -181,20 +181,24 @@ public class W05D04Service {
             // Step 1. Download image file to temporary location
             tempFile = downloadImageFile(imageUrl);
 
-            // Step 2. Convert image to base64
-            String base64Image = fileService.readFileAsBase64(tempFile.getAbsolutePath());
-            logger.info("Image converted to base64 ({} characters)", base64Image.length());
-
-            // Step 3. Create image analysis prompt - use question as context for image
+            // Step 2. Create image analysis prompt - use question as context for image
             // analysis
             String prompt = promptService.w05d04_createImageAnalysisPrompt("Pytanie użytkownika: " + question);
 
-            // Step 4. Analyze image using OpenAI Vision API
-            OpenAiImagePromptRequestDto requestDto = OpenAiImagePromptRequestDto.build("gpt-4o", prompt, base64Image);
-            String analysis = openAiAdapter.getAnswerWithImageRequestPayload(requestDto, "gpt-4o");
+            // Step 3. Analyze image using OpenAI Vision API (reusing a stored analysis of
+            // the same image and prompt)
+            String imagePath = tempFile.getAbsolutePath();
+            String analysis = artifactStore.getOrComputeText(HashUtils.sha256Hex(tempFile.toPath()),
+                    ArtifactStore.derivation("vision", "gpt-4o", HashUtils.sha256Hex(prompt)), () -> {
+                        String base64Image = fileService.readFileAsBase64(imagePath);
+                        logger.info("Image converted to base64 ({} characters)", base64Image.length());
+                        OpenAiImagePromptRequestDto requestDto = OpenAiImagePromptRequestDto.build("gpt-4o", prompt,
+                                base64Image);
+                        return openAiAdapter.getAnswerWithImageRequestPayload(requestDto, "gpt-4o");
+                    });
             logger.info("Image analysis completed: {}", analysis);
 
-            // Step 5. Return analysis
+            // Step 4. Return analysis
             return analysis.trim();
 
         } catch (Exception e) {
@@ -222,15 +226,7 @@ public class W05D04Service {
         Path tempFile = Files.createTempFile(tempDir, "audio_", "_" + fileName);
 
         // Step 2. Download file from URL
-        try (InputStream in = new URL(audioUrl).openStream();
-                FileOutputStream out = new FileOutputStream(tempFile.toFile())) {
-
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = in.read(buffer)) != -1) {
-                out.write(buffer, 0, bytesRead);
-            }
-        }
+        fileService.downloadFile(audioUrl, tempFile.toString());
 
         logger.info("Audio file downloaded to: {}", tempFile.toAbsolutePath());
         return tempFile.toFile();
@@ -245,15 +241,7 @@ public class W05D04Service {
         Path tempFile = Files.createTempFile(tempDir, "image_", "_" + fileName);
 
         // Step 2. Download file from URL
-        try (InputStream in = new URL(imageUrl).openStream();
-                FileOutputStream out = new FileOutputStream(tempFile.toFile())) {
-
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = in.read(buffer)) != -1) {
-                out.write(buffer, 0, bytesRead);
-            }
-        }
+        fileService.downloadFile(imageUrl, tempFile.toString());
 
         logger.info("Image file downloaded to: {}", tempFile.toAbsolutePath());
         return tempFile.toFile();
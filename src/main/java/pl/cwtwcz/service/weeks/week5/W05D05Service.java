@@ -15,6 +15,8 @@ import pl.cwtwcz.service.ApiExplorerService;
 import pl.cwtwcz.service.FlagService;
 import pl.cwtwcz.service.DatabaseService;
 import pl.cwtwcz.service.DatabaseQueryService;
+import pl.cwtwcz.service.WriteBehindService;
+import pl.cwtwcz.db.SqlStatement;
 import pl.cwtwcz.dto.week5.W05D05StoryRequestDto;
 import pl.cwtwcz.dto.week5.W05D05CentralaResponseDto;
 
@@ -33,7 +35,6 @@ public class W05D05Service {
 
     private static final Logger logger = LoggerFactory.getLogger(W05D05Service.class);
     private static final int MAX_ITERATIONS = 5;
-    private static final int LLM_DELAY_SECONDS = 10;
 
     @Value("${aidevs.api.key}")
     private String apiKey;
@@ -54,6 +55,7 @@ public class W05D05Service {
     private final FlagService flagService;
     private final DatabaseService databaseService;
     private final DatabaseQueryService databaseQueryService;
+    private final WriteBehindService writeBehindService;
     private final ObjectMapper objectMapper;
 
     public String w05d05() {
@@ -152,6 +154,8 @@ public class W05D05Service {
             }
         }
 
+        // Answers stored write-behind are committed once, at the end of the run
+        writeBehindService.flush(dbPath);
         return lastResponse;
     }
 
@@ -177,9 +181,6 @@ public class W05D05Service {
                 answers.add(answer);
 
                 logger.info("Generated answer for question {}: {}", i, answer);
-
-                // Add delay to avoid rate limiting
-                sleepBetweenLLMCalls();
             }
         }
 
@@ -225,8 +226,8 @@ public class W05D05Service {
                     previousIncorrectAnswers);
         }
 
-        // Get answer from AI
-        String answer = openAiAdapter.getAnswer(prompt, "gpt-4o-mini");
+        // Get answer from AI (fresh on every feedback round, never a cached one)
+        String answer = openAiAdapter.getAnswer(prompt, "gpt-4o-mini", true);
 
         // Clean up the answer
         answer = answer.trim();
@@ -260,7 +261,8 @@ public class W05D05Service {
                 }
             }
 
-            // Check if we have all correct answers
+            // Check if we have all correct answers (the count needs the answers queued above)
+            writeBehindService.flush(dbPath);
             int totalQuestions = currentAnswers.size();
             int correctCount = countCorrectAnswers();
 
@@ -300,16 +302,11 @@ public class W05D05Service {
                     return; // Don't store again
                 }
 
-                // Store new correct answer in database
-                databaseService.executeUpdate(dbPath,
-                        databaseQueryService.insertOrReplaceCorrectStoryAnswer(),
-                        index, answer);
-
-                // Clean up incorrect answers for this question since we now have the correct
-                // one
-                databaseService.executeUpdate(dbPath,
-                        databaseQueryService.deleteIncorrectStoryAnswers(),
-                        index);
+                // Store new correct answer and clean up incorrect answers for this question
+                // since we now have the correct one (write-behind, one transaction)
+                writeBehindService.enqueue(dbPath, List.of(
+                        new SqlStatement(databaseQueryService.insertOrReplaceCorrectStoryAnswer(), index, answer),
+                        new SqlStatement(databaseQueryService.deleteIncorrectStoryAnswers(), index)));
 
                 logger.info("Stored new correct answer for index {}: {}", index, answer);
             } catch (Exception e) {
@@ -338,8 +335,8 @@ public class W05D05Service {
                         return; // Don't store duplicate
                     }
 
-                    // Store in database
-                    databaseService.executeUpdate(dbPath,
+                    // Store in database (write-behind)
+                    writeBehindService.enqueue(dbPath,
                             databaseQueryService.insertIncorrectStoryAnswer(),
                             index, incorrectAnswer);
 
@@ -354,36 +351,33 @@ public class W05D05Service {
     private void saveAllAnswersAsCorrect(List<String> currentAnswers) {
         logger.info("Saving all {} answers as correct for future runs", currentAnswers.size());
 
+        List<SqlStatement> writes = new ArrayList<>();
+        int newAnswers = 0;
         for (int i = 0; i < currentAnswers.size(); i++) {
-            try {
-                String answer = currentAnswers.get(i);
-
-                // Check if correct answer already exists in database
-                String existingCorrectAnswer = getCachedCorrectAnswer(i);
-                if (existingCorrectAnswer != null) {
-                    logger.info("Correct answer for index {} already exists in database: {}", i, existingCorrectAnswer);
-                    continue; // Skip if already exists
-                }
+            String answer = currentAnswers.get(i);
 
-                // Store new correct answer in database
-                databaseService.executeUpdate(dbPath,
-                        databaseQueryService.insertOrReplaceCorrectStoryAnswer(),
-                        i, answer);
-
-                // Clean up incorrect answers for this question since we now have the correct
-                // one
-                databaseService.executeUpdate(dbPath,
-                        databaseQueryService.deleteIncorrectStoryAnswers(),
-                        i);
+            // Check if correct answer already exists in database
+            String existingCorrectAnswer = getCachedCorrectAnswer(i);
+            if (existingCorrectAnswer != null) {
+                logger.info("Correct answer for index {} already exists in database: {}", i, existingCorrectAnswer);
+                continue; // Skip if already exists
+            }
 
-                logger.info("Saved correct answer for index {}: {}", i, answer);
+            // Store the correct answer and clean up the incorrect answers for this question
+            writes.add(new SqlStatement(databaseQueryService.insertOrReplaceCorrectStoryAnswer(), i, answer));
+            writes.add(new SqlStatement(databaseQueryService.deleteIncorrectStoryAnswers(), i));
+            newAnswers++;
+        }
 
-            } catch (Exception e) {
-                logger.warn("Could not save correct answer for index {}: {}", i, e.getMessage());
-            }
+        try {
+            // All inserts and cleanups in one transaction (write-behind, flushed at the end of the run)
+            writeBehindService.enqueue(dbPath, writes);
+        } catch (Exception e) {
+            logger.warn("Could not save {} correct answers: {}", newAnswers, e.getMessage());
+            return;
         }
 
-        logger.info("Completed saving all answers as correct");
+        logger.info("Completed saving all answers as correct ({} new)", newAnswers);
     }
 
     private int countCorrectAnswers() {
@@ -422,16 +416,6 @@ public class W05D05Service {
         }
     }
 
-    private void sleepBetweenLLMCalls() {
-        try {
-            logger.info("Sleeping {} seconds to avoid rate limiting...", LLM_DELAY_SECONDS);
-            Thread.sleep(LLM_DELAY_SECONDS * 1000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            logger.warn("Sleep interrupted");
-        }
-    }
-
     private List<String> downloadStoryQuestions() {
         String questionsUrl = centralaBaseUrl + "data/" + apiKey + "/story.json";
         logger.info("Downloading questions from: {}", questionsUrl);
@@ -479,7 +463,7 @@ public class W05D05Service {
             Map<String, String> notebookFiles = fileService.listFilesInDirectory(notebookDir, "", null);
 
             // Sort files by number in filename (highest first)
-            notebookFiles.entrySet().stream()
+            fileService.readMultipleFiles(notebookFiles).entrySet().stream()
                     .sorted((a, b) -> {
                         // Extract number from filename
                         try {
@@ -493,15 +477,8 @@ public class W05D05Service {
                         }
                     })
                     .forEach(entry -> {
-                        String filename = entry.getKey();
-                        String filePath = entry.getValue();
-                        try {
-                            String content = fileService.readStringFromFile(filePath);
-                            knowledgeBase.append("🥇 --- NOTATKA ZYGFRYDA: ").append(filename).append(" ---\n");
-                            knowledgeBase.append(content).append("\n\n");
-                        } catch (Exception e) {
-                            logger.warn("Could not read notebook file: {}", filename);
-                        }
+                        knowledgeBase.append("🥇 --- NOTATKA ZYGFRYDA: ").append(entry.getKey()).append(" ---\n");
+                        knowledgeBase.append(entry.getValue()).append("\n\n");
                     });
         } catch (Exception e) {
             logger.warn("Could not access notebook directory: {}", e.getMessage());
@@ -522,17 +499,10 @@ public class W05D05Service {
             String interrogationsDir = "C:/cache/w05d05/przesluchania";
             Map<String, String> interrogationFiles = fileService.listFilesInDirectory(interrogationsDir, "", null);
 
-            for (Map.Entry<String, String> entry : interrogationFiles.entrySet()) {
-                String filename = entry.getKey();
-                String filePath = entry.getValue();
-                try {
-                    String content = fileService.readStringFromFile(filePath);
-                    knowledgeBase.append("--- PRZESŁUCHANIE: ").append(filename).append(" ---\n");
-                    knowledgeBase.append(content).append("\n\n");
-                } catch (Exception e) {
-                    logger.warn("Could not read interrogation file: {}", filename);
-                }
-            }
+            fileService.readMultipleFiles(interrogationFiles).forEach((filename, content) -> {
+                knowledgeBase.append("--- PRZESŁUCHANIE: ").append(filename).append(" ---\n");
+                knowledgeBase.append(content).append("\n\n");
+            });
         } catch (Exception e) {
             logger.warn("Could not access interrogations directory: {}", e.getMessage());
         }
@@ -543,17 +513,10 @@ public class W05D05Service {
             String factoryReportsDir = "C:/cache/w05d05/raporty_z_fabryki";
             Map<String, String> factoryFiles = fileService.listFilesInDirectory(factoryReportsDir, "", null);
 
-            for (Map.Entry<String, String> entry : factoryFiles.entrySet()) {
-                String filename = entry.getKey();
-                String filePath = entry.getValue();
-                try {
-                    String content = fileService.readStringFromFile(filePath);
-                    knowledgeBase.append("--- RAPORT: ").append(filename).append(" ---\n");
-                    knowledgeBase.append(content).append("\n\n");
-                } catch (Exception e) {
-                    logger.warn("Could not read factory report: {}", filename);
-                }
-            }
+            fileService.readMultipleFiles(factoryFiles).forEach((filename, content) -> {
+                knowledgeBase.append("--- RAPORT: ").append(filename).append(" ---\n");
+                knowledgeBase.append(content).append("\n\n");
+            });
         } catch (Exception e) {
             logger.warn("Could not access factory reports directory: {}", e.getMessage());
         }
@@ -564,17 +527,10 @@ public class W05D05Service {
             String factsDir = "C:/cache/w05d05/fakty";
             Map<String, String> factsFiles = fileService.listFilesInDirectory(factsDir, "", null);
 
-            for (Map.Entry<String, String> entry : factsFiles.entrySet()) {
-                String filename = entry.getKey();
-                String filePath = entry.getValue();
-                try {
-                    String content = fileService.readStringFromFile(filePath);
-                    knowledgeBase.append("--- FAKT: ").append(filename).append(" ---\n");
-                    knowledgeBase.append(content).append("\n\n");
-                } catch (Exception e) {
-                    logger.warn("Could not read fact file: {}", filename);
-                }
-            }
+            fileService.readMultipleFiles(factsFiles).forEach((filename, content) -> {
+                knowledgeBase.append("--- FAKT: ").append(filename).append(" ---\n");
+                knowledgeBase.append(content).append("\n\n");
+            });
         } catch (Exception e) {
             logger.warn("Could not access facts directory: {}", e.getMessage());
         }
@@ -585,17 +541,10 @@ public class W05D05Service {
             String arxivDir = "C:/cache/w05d05/axiv";
             Map<String, String> arxivFiles = fileService.listFilesInDirectory(arxivDir, "", null);
 
-            for (Map.Entry<String, String> entry : arxivFiles.entrySet()) {
-                String filename = entry.getKey();
-                String filePath = entry.getValue();
-                try {
-                    String content = fileService.readStringFromFile(filePath);
-                    knowledgeBase.append("--- ARTYKUŁ: ").append(filename).append(" ---\n");
-                    knowledgeBase.append(content).append("\n\n");
-                } catch (Exception e) {
-                    logger.warn("Could not read arxiv file: {}", filename);
-                }
-            }
+            fileService.readMultipleFiles(arxivFiles).forEach((filename, content) -> {
+                knowledgeBase.append("--- ARTYKUŁ: ").append(filename).append(" ---\n");
+                knowledgeBase.append(content).append("\n\n");
+            });
         } catch (Exception e) {
             logger.warn("Could not access arxiv directory: {}", e.getMessage());
         }
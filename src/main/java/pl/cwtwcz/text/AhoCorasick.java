@@ -0,0 +1,164 @@
+package pl.cwtwcz.text;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Aho-Corasick automaton finding all occurrences of a set of patterns in one
+ * pass over the text.
+ *
+ * The automaton is compiled into a dense transition table over the
+ * pattern alphabet; characters outside the alphabet reset to the root, so a
+ * scan is one table lookup per character. Matching is case-sensitive, callers
+ * lowercase both sides. Instances are immutable and thread-safe.
+ */
+public final class AhoCorasick {
+
+    /** Characters below this bound are mapped through an array, the rest through a map. */
+    private static final int DIRECT_ALPHABET_BOUND = 0x180;
+
+    private final int[] directAlphabet;
+    private final Map<Character, Integer> extraAlphabet;
+    private final int alphabetSize;
+    private final int[] transitions;
+    private final int[][] outputs;
+    private final int patternCount;
+
+    private AhoCorasick(int[] directAlphabet, Map<Character, Integer> extraAlphabet, int alphabetSize,
+            int[] transitions, int[][] outputs, int patternCount) {
+        this.directAlphabet = directAlphabet;
+        this.extraAlphabet = extraAlphabet;
+        this.alphabetSize = alphabetSize;
+        this.transitions = transitions;
+        this.outputs = outputs;
+        this.patternCount = patternCount;
+    }
+
+    /**
+     * Compiles the patterns. Pattern ids are their indexes in the list; an empty pattern matches every text.
+     */
+    public static AhoCorasick compile(List<String> patterns) {
+        // Step 1. Alphabet of the pattern characters
+        int[] directAlphabet = new int[DIRECT_ALPHABET_BOUND];
+        Arrays.fill(directAlphabet, -1);
+        Map<Character, Integer> extraAlphabet = new HashMap<>();
+        int alphabetSize = 0;
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c < DIRECT_ALPHABET_BOUND) {
+                    if (directAlphabet[c] < 0) {
+                        directAlphabet[c] = alphabetSize++;
+                    }
+                } else if (!extraAlphabet.containsKey(c)) {
+                    extraAlphabet.put(c, alphabetSize++);
+                }
+            }
+        }
+        int size = Math.max(1, alphabetSize);
+
+        // Step 2. Trie of the patterns (-1 = no edge)
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> ownOutputs = new ArrayList<>();
+        trie.add(newRow(size));
+        ownOutputs.add(new ArrayList<>());
+        for (int id = 0; id < patterns.size(); id++) {
+            String pattern = patterns.get(id);
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int symbol = symbol(directAlphabet, extraAlphabet, pattern.charAt(i));
+                if (trie.get(state)[symbol] < 0) {
+                    trie.get(state)[symbol] = trie.size();
+                    trie.add(newRow(size));
+                    ownOutputs.add(new ArrayList<>());
+                }
+                state = trie.get(state)[symbol];
+            }
+            ownOutputs.get(state).add(id);
+        }
+
+        // Step 3. Breadth-first failure links, turning the trie into a full transition table
+        int states = trie.size();
+        int[] transitions = new int[states * size];
+        int[] fail = new int[states];
+        int[][] outputs = new int[states][];
+        outputs[0] = toArray(ownOutputs.get(0));
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < size; symbol++) {
+            int child = trie.get(0)[symbol];
+            if (child < 0) {
+                transitions[symbol] = 0;
+            } else {
+                transitions[symbol] = child;
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = merge(ownOutputs.get(state), outputs[fail[state]]);
+            for (int symbol = 0; symbol < size; symbol++) {
+                int child = trie.get(state)[symbol];
+                if (child < 0) {
+                    transitions[state * size + symbol] = transitions[fail[state] * size + symbol];
+                } else {
+                    transitions[state * size + symbol] = child;
+                    fail[child] = transitions[fail[state] * size + symbol];
+                    queue.add(child);
+                }
+            }
+        }
+        return new AhoCorasick(directAlphabet, extraAlphabet, size, transitions, outputs, patterns.size());
+    }
+
+    public int patternCount() {
+        return patternCount;
+    }
+
+    /**
+     * Scans the text once and reports the id of every pattern occurrence (a pattern
+     * occurring several times is reported several times).
+     */
+    public void forEachMatch(CharSequence text, IntConsumer onMatch) {
+        for (int id : outputs[0]) {
+            onMatch.accept(id);
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int symbol = c < DIRECT_ALPHABET_BOUND ? directAlphabet[c] : extraAlphabet.getOrDefault(c, -1);
+            state = symbol < 0 ? 0 : transitions[state * alphabetSize + symbol];
+            for (int id : outputs[state]) {
+                onMatch.accept(id);
+            }
+        }
+    }
+
+    private static int symbol(int[] directAlphabet, Map<Character, Integer> extraAlphabet, char c) {
+        return c < DIRECT_ALPHABET_BOUND ? directAlphabet[c] : extraAlphabet.get(c);
+    }
+
+    private static int[] newRow(int size) {
+        int[] row = new int[size];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static int[] toArray(List<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] merge(List<Integer> own, int[] inherited) {
+        if (own.isEmpty()) {
+            return inherited;
+        }
+        int[] merged = Arrays.copyOf(toArray(own), own.size() + inherited.length);
+        System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+        return merged;
+    }
+}
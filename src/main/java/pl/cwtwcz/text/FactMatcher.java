@@ -0,0 +1,187 @@
+package pl.cwtwcz.text;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precompiled matcher answering "which facts mention any of these names" for
+ * a fixed set of facts.
+ *
+ * A fact matches a name when its lowercased content contains the lowercased
+ * name, or when one of its whitespace separated words is similar to the name
+ * (see {@link #isSimilarNormalized(String, String)}). Facts are lowercased
+ * and tokenized once at compile time. Exact matches of all new names of a
+ * query are found in one Aho-Corasick pass per fact; fuzzy matches come from
+ * an index of the distinct normalized words grouped by length, so only words
+ * within two characters of the name's length are compared. Results are
+ * cached per name, names repeated across reports cost nothing.
+ */
+public final class FactMatcher {
+
+    private static final int MAX_DIFFERENCES = 2;
+
+    private final List<String> keys;
+    private final List<String> contents;
+    private final List<String> lowercaseContents;
+    private final Map<String, BitSet> factsByWord = new HashMap<>();
+    private final Map<Integer, List<String>> wordsByLength = new HashMap<>();
+    private final Map<String, BitSet> factsByName = new ConcurrentHashMap<>();
+
+    private FactMatcher(List<String> keys, List<String> contents, List<String> lowercaseContents) {
+        this.keys = keys;
+        this.contents = contents;
+        this.lowercaseContents = lowercaseContents;
+    }
+
+    /**
+     * Compiles the facts, keeping the map's iteration order.
+     *
+     * @param facts Map of fact filenames to their content.
+     */
+    public static FactMatcher compile(Map<String, String> facts) {
+        List<String> keys = new ArrayList<>(facts.size());
+        List<String> contents = new ArrayList<>(facts.size());
+        List<String> lowercaseContents = new ArrayList<>(facts.size());
+        for (Map.Entry<String, String> fact : facts.entrySet()) {
+            keys.add(fact.getKey());
+            contents.add(fact.getValue());
+            lowercaseContents.add(fact.getValue().toLowerCase());
+        }
+        FactMatcher matcher = new FactMatcher(keys, contents, lowercaseContents);
+
+        // Word index: normalized word -> facts containing it
+        int factIndex = 0;
+        for (String content : contents) {
+            for (String word : content.split("\\s+")) {
+                String normalized = normalizeName(word);
+                BitSet wordFacts = matcher.factsByWord.get(normalized);
+                if (wordFacts == null) {
+                    wordFacts = new BitSet(keys.size());
+                    matcher.factsByWord.put(normalized, wordFacts);
+                    matcher.wordsByLength.computeIfAbsent(normalized.length(), length -> new ArrayList<>())
+                            .add(normalized);
+                }
+                wordFacts.set(factIndex);
+            }
+            factIndex++;
+        }
+        return matcher;
+    }
+
+    /**
+     * @return Keys of the facts in compile order.
+     */
+    public List<String> keys() {
+        return keys;
+    }
+
+    /**
+     * @return Original content of the fact with the given index.
+     */
+    public String content(int factIndex) {
+        return contents.get(factIndex);
+    }
+
+    /**
+     * Finds the facts mentioning at least one of the names, exactly or with a typo.
+     *
+     * @param names Names to look for.
+     * @return Indexes (into {@link #keys()}) of the matching facts.
+     */
+    public BitSet factsMentioning(Collection<String> names) {
+        Set<String> distinct = new LinkedHashSet<>(names);
+        List<String> uncached = new ArrayList<>();
+        for (String name : distinct) {
+            if (!factsByName.containsKey(name)) {
+                uncached.add(name);
+            }
+        }
+        if (!uncached.isEmpty()) {
+            resolve(uncached);
+        }
+
+        BitSet result = new BitSet(keys.size());
+        for (String name : distinct) {
+            result.or(factsByName.get(name));
+        }
+        return result;
+    }
+
+    /**
+     * Lowercases and keeps only (Polish) letters, the normalization used for name comparison.
+     */
+    public static String normalizeName(String name) {
+        String lowercase = name.toLowerCase();
+        StringBuilder letters = null;
+        for (int i = 0; i < lowercase.length(); i++) {
+            char c = lowercase.charAt(i);
+            boolean letter = (c >= 'a' && c <= 'z') || "ąćęłńóśźż".indexOf(c) >= 0;
+            if (letters == null && !letter) {
+                letters = new StringBuilder(lowercase.length()).append(lowercase, 0, i);
+            } else if (letters != null && letter) {
+                letters.append(c);
+            }
+        }
+        return letters == null ? lowercase : letters.toString();
+    }
+
+    /**
+     * Compares two normalized names, allowing up to two differing positions, a
+     * length difference counting as differences.
+     */
+    public static boolean isSimilarNormalized(String name1, String name2) {
+        if (name1.equals(name2)) {
+            return true;
+        }
+        int differences = Math.abs(name1.length() - name2.length());
+        if (differences > MAX_DIFFERENCES) {
+            return false;
+        }
+        int minLength = Math.min(name1.length(), name2.length());
+        for (int i = 0; i < minLength; i++) {
+            if (name1.charAt(i) != name2.charAt(i) && ++differences > MAX_DIFFERENCES) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void resolve(List<String> names) {
+        Map<String, BitSet> resolved = new HashMap<>();
+
+        // Step 1. Exact (substring) matches of all names in one pass per fact
+        List<String> patterns = new ArrayList<>(names.size());
+        for (String name : names) {
+            patterns.add(name.toLowerCase());
+            resolved.put(name, new BitSet(keys.size()));
+        }
+        AhoCorasick automaton = AhoCorasick.compile(patterns);
+        for (int fact = 0; fact < lowercaseContents.size(); fact++) {
+            int factIndex = fact;
+            automaton.forEachMatch(lowercaseContents.get(fact),
+                    pattern -> resolved.get(names.get(pattern)).set(factIndex));
+        }
+
+        // Step 2. Fuzzy matches from the word index
+        for (String name : names) {
+            String normalized = normalizeName(name);
+            BitSet matches = resolved.get(name);
+            for (int length = normalized.length() - MAX_DIFFERENCES; length <= normalized.length()
+                    + MAX_DIFFERENCES; length++) {
+                for (String word : wordsByLength.getOrDefault(length, List.of())) {
+                    if (isSimilarNormalized(normalized, word)) {
+                        matches.or(factsByWord.get(word));
+                    }
+                }
+            }
+        }
+        factsByName.putAll(resolved);
+    }
+}
@@ -0,0 +1,387 @@
+package pl.cwtwcz.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Inverted index over a set of text documents (fact files, reports), mapping
+ * terms to the documents and token positions where they occur.
+ *
+ * Two kinds of terms are indexed: lowercased tokens (runs of letters and
+ * digits) and entities found by the entity extractor, stored as
+ * "@type:value tokens" (e.g. "@names:kowalski"). Posting lists are
+ * {@link PostingList}s. Instances are immutable; {@link #update(Map, Collection)}
+ * returns a new index that re-encodes only the posting lists of terms
+ * occurring in the changed documents and shares the rest.
+ */
+public final class InvertedIndex {
+
+    private static final String ENTITY_PREFIX = "@";
+
+    private final Function<String, Map<String, List<String>>> entityExtractor;
+    private final List<String> keys;
+    private final Map<String, Integer> documentIds;
+    private final NavigableMap<String, String> contents;
+    private final Map<String, String[]> termsByKey;
+    private final Map<String, PostingList> postings;
+
+    private InvertedIndex(Function<String, Map<String, List<String>>> entityExtractor, List<String> keys,
+            Map<String, Integer> documentIds, NavigableMap<String, String> contents, Map<String, String[]> termsByKey,
+            Map<String, PostingList> postings) {
+        this.entityExtractor = entityExtractor;
+        this.keys = keys;
+        this.documentIds = documentIds;
+        this.contents = contents;
+        this.termsByKey = termsByKey;
+        this.postings = postings;
+    }
+
+    /**
+     * @param entityExtractor Entity type to entity values found in a text
+     *                        (TextAnalysisService::extractEntities).
+     */
+    public static InvertedIndex empty(Function<String, Map<String, List<String>>> entityExtractor) {
+        return new InvertedIndex(entityExtractor, List.of(), Map.of(), new TreeMap<>(), Map.of(), Map.of());
+    }
+
+    /**
+     * Indexes the documents from scratch.
+     *
+     * @param documents Map of document keys (filenames) to their content.
+     */
+    public static InvertedIndex build(Map<String, String> documents,
+            Function<String, Map<String, List<String>>> entityExtractor) {
+        return empty(entityExtractor).update(documents, List.of());
+    }
+
+    /**
+     * Returns a new index with the changed documents (re)indexed and the removed ones dropped.
+     *
+     * @param changed Added or modified documents, key to content.
+     * @param removed Keys of deleted documents.
+     */
+    public InvertedIndex update(Map<String, String> changed, Collection<String> removed) {
+        List<String> newKeys = new ArrayList<>(keys);
+        Map<String, Integer> newDocumentIds = new HashMap<>(documentIds);
+        NavigableMap<String, String> newContents = new TreeMap<>(contents);
+        Map<String, String[]> newTermsByKey = new HashMap<>(termsByKey);
+        Set<Integer> touchedDocuments = new HashSet<>();
+        Set<String> affectedTerms = new HashSet<>();
+        Map<String, Map<Integer, int[]>> additions = new HashMap<>();
+
+        // Step 1. Drop removed documents
+        for (String key : removed) {
+            Integer documentId = newDocumentIds.remove(key);
+            if (documentId == null) {
+                continue;
+            }
+            newKeys.set(documentId, null);
+            touchedDocuments.add(documentId);
+            affectedTerms.addAll(Arrays.asList(newTermsByKey.remove(key)));
+            newContents.remove(key);
+        }
+
+        // Step 2. Analyze changed documents, reusing the ids of known keys
+        for (Map.Entry<String, String> document : changed.entrySet()) {
+            String key = document.getKey();
+            Integer documentId = newDocumentIds.get(key);
+            if (documentId == null) {
+                documentId = newKeys.size();
+                newKeys.add(key);
+                newDocumentIds.put(key, documentId);
+            } else {
+                touchedDocuments.add(documentId);
+                affectedTerms.addAll(Arrays.asList(newTermsByKey.get(key)));
+            }
+            Map<String, int[]> terms = analyze(document.getValue());
+            for (Map.Entry<String, int[]> term : terms.entrySet()) {
+                additions.computeIfAbsent(term.getKey(), t -> new HashMap<>()).put(documentId, term.getValue());
+            }
+            affectedTerms.addAll(terms.keySet());
+            newTermsByKey.put(key, terms.keySet().toArray(String[]::new));
+            newContents.put(key, document.getValue());
+        }
+
+        // Step 3. Re-encode the posting lists of affected terms only
+        Map<String, PostingList> newPostings = new HashMap<>(postings);
+        for (String term : affectedTerms) {
+            TreeMap<Integer, int[]> entries = new TreeMap<>();
+            PostingList existing = postings.get(term);
+            if (existing != null) {
+                existing.forEach((documentId, positions) -> {
+                    if (!touchedDocuments.contains(documentId)) {
+                        entries.put(documentId, positions);
+                    }
+                });
+            }
+            entries.putAll(additions.getOrDefault(term, Map.of()));
+            if (entries.isEmpty()) {
+                newPostings.remove(term);
+                continue;
+            }
+            int[] documents = new int[entries.size()];
+            int[][] positions = new int[entries.size()][];
+            int i = 0;
+            for (Map.Entry<Integer, int[]> entry : entries.entrySet()) {
+                documents[i] = entry.getKey();
+                positions[i++] = entry.getValue();
+            }
+            newPostings.put(term, PostingList.of(documents, positions));
+        }
+        return new InvertedIndex(entityExtractor, newKeys, newDocumentIds, newContents, newTermsByKey, newPostings);
+    }
+
+    /**
+     * @return Indexed documents, key to content, ordered by key.
+     */
+    public Map<String, String> documents() {
+        return Collections.unmodifiableNavigableMap(contents);
+    }
+
+    public int size() {
+        return contents.size();
+    }
+
+    public int termCount() {
+        return postings.size();
+    }
+
+    /**
+     * @return Total size of the encoded posting lists in bytes.
+     */
+    public long postingBytes() {
+        long bytes = 0;
+        for (PostingList list : postings.values()) {
+            bytes += list.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return Token positions of a single word in a document, empty when absent.
+     */
+    public int[] positions(String word, String key) {
+        PostingList list = postings.get(word.toLowerCase());
+        Integer documentId = documentIds.get(key);
+        return list == null || documentId == null ? new int[0] : list.positions(documentId);
+    }
+
+    /**
+     * Finds the documents containing the phrase (consecutive tokens, case-insensitive).
+     *
+     * @return Keys of the matching documents, ordered by key.
+     */
+    public List<String> documentsContaining(String phrase) {
+        return toKeys(phraseDocuments(tokenize(phrase)));
+    }
+
+    /**
+     * @return Keys of the documents containing at least one of the phrases, ordered by key.
+     */
+    public List<String> documentsContainingAny(Collection<String> phrases) {
+        BitSet matches = new BitSet();
+        for (String phrase : new LinkedHashSet<>(phrases)) {
+            matches.or(phraseDocuments(tokenize(phrase)));
+        }
+        return toKeys(matches);
+    }
+
+    /**
+     * Finds the documents in which the extractor found the entity.
+     *
+     * @param type  Entity type ("names", "organizations", "locations").
+     * @param value Entity value, matched case-insensitively.
+     * @return Keys of the matching documents, ordered by key.
+     */
+    public List<String> documentsWithEntity(String type, String value) {
+        PostingList list = postings.get(entityTerm(type, tokenize(value)));
+        BitSet matches = new BitSet();
+        if (list != null) {
+            for (int documentId : list.documents()) {
+                matches.set(documentId);
+            }
+        }
+        return toKeys(matches);
+    }
+
+    /**
+     * Finds the documents sharing at least one entity with the given ones, e.g.
+     * the facts about the people and places extracted from a question.
+     *
+     * @param entities Entity type to values, as returned by the entity extractor.
+     * @return Keys of the matching documents, ordered by key.
+     */
+    public List<String> documentsMentioning(Map<String, List<String>> entities) {
+        BitSet matches = new BitSet();
+        for (Map.Entry<String, List<String>> type : entities.entrySet()) {
+            for (String value : type.getValue()) {
+                PostingList list = postings.get(entityTerm(type.getKey(), tokenize(value)));
+                if (list != null) {
+                    for (int documentId : list.documents()) {
+                        matches.set(documentId);
+                    }
+                }
+            }
+        }
+        return toKeys(matches);
+    }
+
+    private BitSet phraseDocuments(List<String> tokens) {
+        BitSet matches = new BitSet();
+        if (tokens.isEmpty()) {
+            return matches;
+        }
+        PostingList[] lists = new PostingList[tokens.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = postings.get(tokens.get(i));
+            if (lists[i] == null) {
+                return matches;
+            }
+        }
+        lists[0].forEach((documentId, firstPositions) -> {
+            int[][] positions = new int[lists.length][];
+            for (int i = 1; i < lists.length; i++) {
+                positions[i] = lists[i].positions(documentId);
+                if (positions[i].length == 0) {
+                    return;
+                }
+            }
+            for (int start : firstPositions) {
+                if (followedBy(positions, start)) {
+                    matches.set(documentId);
+                    return;
+                }
+            }
+        });
+        return matches;
+    }
+
+    private static boolean followedBy(int[][] positions, int start) {
+        for (int i = 1; i < positions.length; i++) {
+            if (Arrays.binarySearch(positions[i], start + i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<String> toKeys(BitSet documents) {
+        List<String> result = new ArrayList<>(documents.cardinality());
+        for (int documentId = documents.nextSetBit(0); documentId >= 0; documentId = documents
+                .nextSetBit(documentId + 1)) {
+            if (documentId < keys.size() && keys.get(documentId) != null) {
+                result.add(keys.get(documentId));
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Tokenizes the document and locates the extracted entities.
+     *
+     * @return Term to ascending token positions.
+     */
+    private Map<String, int[]> analyze(String content) {
+        // Step 1. Tokens with their start offsets
+        List<String> tokens = new ArrayList<>();
+        IntArrayBuilder starts = new IntArrayBuilder();
+        tokenize(content, tokens, starts);
+        int[] tokenStarts = starts.toArray();
+
+        Map<String, IntArrayBuilder> positions = new HashMap<>();
+        for (int position = 0; position < tokens.size(); position++) {
+            positions.computeIfAbsent(tokens.get(position), t -> new IntArrayBuilder()).add(position);
+        }
+
+        // Step 2. Entities, positioned at the token where each occurrence starts
+        for (Map.Entry<String, List<String>> type : entityExtractor.apply(content).entrySet()) {
+            for (String value : new LinkedHashSet<>(type.getValue())) {
+                List<String> valueTokens = tokenize(value);
+                if (valueTokens.isEmpty()) {
+                    continue;
+                }
+                String term = entityTerm(type.getKey(), valueTokens);
+                if (positions.containsKey(term)) {
+                    continue;
+                }
+                IntArrayBuilder occurrences = new IntArrayBuilder();
+                for (int from = content.indexOf(value); from >= 0; from = content.indexOf(value, from + 1)) {
+                    int end = from + value.length();
+                    int position = Arrays.binarySearch(tokenStarts, from);
+                    if (position >= 0 && (end == content.length() || !Character.isLetterOrDigit(content.charAt(end)))) {
+                        occurrences.add(position);
+                    }
+                }
+                if (occurrences.size() > 0) {
+                    positions.put(term, occurrences);
+                }
+            }
+        }
+
+        Map<String, int[]> terms = new HashMap<>(positions.size() * 2);
+        for (Map.Entry<String, IntArrayBuilder> term : positions.entrySet()) {
+            terms.put(term.getKey(), term.getValue().toArray());
+        }
+        return terms;
+    }
+
+    private static String entityTerm(String type, List<String> valueTokens) {
+        return ENTITY_PREFIX + type + ":" + String.join(" ", valueTokens);
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, tokens, null);
+        return tokens;
+    }
+
+    private static void tokenize(String text, List<String> tokens, IntArrayBuilder starts) {
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                if (starts != null) {
+                    starts.add(start);
+                }
+                start = -1;
+            }
+        }
+    }
+
+    private static final class IntArrayBuilder {
+
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package pl.cwtwcz.text;
+
+import java.util.Arrays;
+
+/**
+ * Compressed posting list: the documents containing a term, each with the
+ * token positions of its occurrences.
+ *
+ * Entries are kept in ascending document id order in a single byte array as
+ * variable-length ints: document id delta, occurrence count, then position
+ * deltas. Typical fact files encode to one or two bytes per number. Instances
+ * are immutable.
+ */
+public final class PostingList {
+
+    /**
+     * Receives one document of a posting list.
+     */
+    @FunctionalInterface
+    public interface PostingVisitor {
+        void accept(int documentId, int[] positions);
+    }
+
+    private final byte[] data;
+    private final int documentCount;
+
+    private PostingList(byte[] data, int documentCount) {
+        this.data = data;
+        this.documentCount = documentCount;
+    }
+
+    /**
+     * Encodes a posting list.
+     *
+     * @param documentIds Document ids in ascending order.
+     * @param positions   Ascending token positions for each document, parallel to documentIds.
+     */
+    public static PostingList of(int[] documentIds, int[][] positions) {
+        Encoder encoder = new Encoder(documentIds.length * 4);
+        int previousDocument = 0;
+        for (int i = 0; i < documentIds.length; i++) {
+            encoder.write(documentIds[i] - previousDocument);
+            previousDocument = documentIds[i];
+            encoder.write(positions[i].length);
+            int previousPosition = 0;
+            for (int position : positions[i]) {
+                encoder.write(position - previousPosition);
+                previousPosition = position;
+            }
+        }
+        return new PostingList(encoder.toByteArray(), documentIds.length);
+    }
+
+    public int documentCount() {
+        return documentCount;
+    }
+
+    /**
+     * @return Size of the encoded list in bytes.
+     */
+    public int sizeInBytes() {
+        return data.length;
+    }
+
+    /**
+     * @return Ids of the documents in the list, ascending.
+     */
+    public int[] documents() {
+        int[] documents = new int[documentCount];
+        int[] offset = { 0 };
+        int document = 0;
+        for (int i = 0; i < documentCount; i++) {
+            document += readVarInt(offset);
+            documents[i] = document;
+            int count = readVarInt(offset);
+            for (int p = 0; p < count; p++) {
+                readVarInt(offset);
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * @return Token positions of the term in the document, empty when it does not occur there.
+     */
+    public int[] positions(int documentId) {
+        int[] offset = { 0 };
+        int document = 0;
+        for (int i = 0; i < documentCount; i++) {
+            document += readVarInt(offset);
+            int count = readVarInt(offset);
+            if (document == documentId) {
+                return readPositions(offset, count);
+            }
+            if (document > documentId) {
+                break;
+            }
+            for (int p = 0; p < count; p++) {
+                readVarInt(offset);
+            }
+        }
+        return new int[0];
+    }
+
+    /**
+     * Decodes every document with its positions, in ascending document id order.
+     */
+    public void forEach(PostingVisitor visitor) {
+        int[] offset = { 0 };
+        int document = 0;
+        for (int i = 0; i < documentCount; i++) {
+            document += readVarInt(offset);
+            int count = readVarInt(offset);
+            visitor.accept(document, readPositions(offset, count));
+        }
+    }
+
+    private int[] readPositions(int[] offset, int count) {
+        int[] positions = new int[count];
+        int position = 0;
+        for (int p = 0; p < count; p++) {
+            position += readVarInt(offset);
+            positions[p] = position;
+        }
+        return positions;
+    }
+
+    private int readVarInt(int[] offset) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[offset[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static final class Encoder {
+
+        private byte[] buffer;
+        private int size;
+
+        Encoder(int initialCapacity) {
+            buffer = new byte[Math.max(16, initialCapacity)];
+        }
+
+        void write(int value) {
+            if (size + 5 > buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package pl.cwtwcz.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Hashing helpers used to build content-addressed cache keys.
+ */
+public class HashUtils {
+
+    /**
+     * Calculates a SHA-256 hash of the given text (UTF-8).
+     *
+     * @param text The text to hash.
+     * @return Lowercase hex encoded hash.
+     */
+    public static String sha256Hex(String text) {
+        return sha256Hex(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Calculates a SHA-256 hash of the given bytes.
+     *
+     * @param bytes The bytes to hash.
+     * @return Lowercase hex encoded hash.
+     */
+    public static String sha256Hex(byte[] bytes) {
+        return HexFormat.of().formatHex(newSha256().digest(bytes));
+    }
+
+    /**
+     * Calculates a SHA-256 hash of a file's contents, streaming it in chunks.
+     *
+     * @param file The file to hash.
+     * @return Lowercase hex encoded hash.
+     * @throws IOException When the file cannot be read.
+     */
+    public static String sha256Hex(Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[65536];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * @return A fresh SHA-256 digest instance.
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
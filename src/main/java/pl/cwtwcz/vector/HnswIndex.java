@@ -0,0 +1,739 @@
+package pl.cwtwcz.vector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process HNSW (Hierarchical Navigable Small World) index with cosine distance.
+ *
+ * Vectors are normalized on insert and kept off-heap in a direct buffer, so the
+ * cosine similarity is a plain dot product. A snapshot consists of two files:
+ * {@code <name>-<generation>.vec} with the raw vectors (memory-mapped on load,
+ * copied to a writable buffer only when new vectors are added) and
+ * {@code <name>.graph} with the generation, links, document ids and payloads.
+ * Every save writes a new vector file generation instead of replacing a file
+ * that may still be mapped (which fails on Windows).
+ *
+ * Re-adding an existing document id with the same vector and payload is a
+ * no-op. Otherwise the old node is marked as deleted; deleted nodes still
+ * route searches but are never returned, and are dropped by
+ * {@link #compact()}, which runs once they make up a quarter of the nodes and
+ * before every snapshot.
+ */
+public class HnswIndex {
+
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 2;
+    private static final int VECTOR_HEADER_BYTES = 4 * Integer.BYTES;
+    private static final double MAX_DELETED_RATIO = 0.25;
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ByteBuffer vectorBytes;
+    private FloatBuffer vectors;
+    private boolean vectorsReadOnly;
+    private int count;
+
+    private final List<int[][]> links = new ArrayList<>();
+    private final List<String> documentIds = new ArrayList<>();
+    private final List<Map<String, String>> payloads = new ArrayList<>();
+    private final Map<String, Integer> nodesByDocumentId = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private long generation;
+
+    public HnswIndex(int dimension, int m, int efConstruction) {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.vectorBytes = ByteBuffer.allocateDirect(0).order(ByteOrder.LITTLE_ENDIAN);
+        this.vectors = vectorBytes.asFloatBuffer();
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * @return Number of live (not replaced) documents.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count - deleted.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a document, replacing any previous vector stored under the same id.
+     *
+     * @param documentId The document id.
+     * @param vector     The vector (normalized internally).
+     * @param payload    Metadata returned with search hits.
+     * @return False if the document was already stored with the same vector and payload.
+     */
+    public boolean add(String documentId, float[] vector, Map<String, String> payload) {
+        float[] query = normalize(vector);
+        Map<String, String> storedPayload = payload != null ? new LinkedHashMap<>(payload) : Map.of();
+        lock.writeLock().lock();
+        try {
+            // Step 1. Skip unchanged documents, otherwise store the vector and allocate the node
+            Integer previous = nodesByDocumentId.get(documentId);
+            if (previous != null) {
+                if (payloads.get(previous).equals(storedPayload) && sameVector(previous, query)) {
+                    return false;
+                }
+                deleted.set(previous);
+            }
+            int node = count;
+            ensureCapacity(node + 1);
+            int base = node * dimension;
+            for (int i = 0; i < dimension; i++) {
+                vectors.put(base + i, query[i]);
+            }
+            int level = randomLevel();
+            int[][] nodeLinks = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                nodeLinks[l] = new int[(l == 0 ? maxM0 : m) + 1];
+            }
+            links.add(nodeLinks);
+            documentIds.add(documentId);
+            payloads.add(storedPayload);
+            nodesByDocumentId.put(documentId, node);
+            count++;
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return true;
+            }
+
+            // Step 2. Greedy descent through the layers above the node level
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedyClosest(query, current, l);
+            }
+
+            // Step 3. Connect the node on every layer it belongs to
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                long[] candidates = searchLayer(query, current, efConstruction, l);
+                int[] selected = selectNeighbors(candidates, m);
+                int[] own = nodeLinks[l];
+                own[0] = selected.length;
+                System.arraycopy(selected, 0, own, 1, selected.length);
+                for (int neighbor : selected) {
+                    addLink(neighbor, node, l);
+                }
+                current = decodeNode(candidates[0]);
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+
+            // Step 4. Rebuild once replaced nodes make up too much of the graph
+            if (deleted.cardinality() > count * MAX_DELETED_RATIO) {
+                compact();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the graph from the live documents, dropping the nodes of replaced
+     * ones so that neither memory, snapshots nor search effort grow with them.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            if (deleted.isEmpty()) {
+                return;
+            }
+            int removed = deleted.cardinality();
+
+            // Step 1. Copy out the live documents
+            List<String> liveIds = new ArrayList<>(count - removed);
+            List<float[]> liveVectors = new ArrayList<>(count - removed);
+            List<Map<String, String>> livePayloads = new ArrayList<>(count - removed);
+            for (int node = 0; node < count; node++) {
+                if (deleted.get(node)) {
+                    continue;
+                }
+                float[] vector = new float[dimension];
+                vectors.get(node * dimension, vector, 0, dimension);
+                liveIds.add(documentIds.get(node));
+                liveVectors.add(vector);
+                livePayloads.add(payloads.get(node));
+            }
+
+            // Step 2. Reset and re-insert (the write lock is reentrant)
+            vectorBytes = ByteBuffer.allocateDirect(0).order(ByteOrder.LITTLE_ENDIAN);
+            vectors = vectorBytes.asFloatBuffer();
+            vectorsReadOnly = false;
+            count = 0;
+            links.clear();
+            documentIds.clear();
+            payloads.clear();
+            nodesByDocumentId.clear();
+            deleted.clear();
+            entryPoint = -1;
+            maxLevel = -1;
+            ensureCapacity(liveIds.size());
+            for (int i = 0; i < liveIds.size(); i++) {
+                add(liveIds.get(i), liveVectors.get(i), livePayloads.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the nearest documents to the query vector.
+     *
+     * @param vector   The query vector.
+     * @param k        Maximum number of hits.
+     * @param efSearch Size of the dynamic candidate list (higher = better recall).
+     * @return Hits ordered by descending cosine similarity.
+     */
+    public List<Hit> search(float[] vector, int k, int efSearch) {
+        float[] query = normalize(vector);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(query, current, l);
+            }
+            int ef = Math.min(count, Math.max(efSearch, k) + deleted.cardinality());
+            long[] found = searchLayer(query, current, ef, 0);
+
+            List<Hit> hits = new ArrayList<>(Math.min(k, found.length));
+            for (long encoded : found) {
+                int node = decodeNode(encoded);
+                if (deleted.get(node)) {
+                    continue;
+                }
+                hits.add(new Hit(documentIds.get(node), 1.0f - decodeDistance(encoded), payloads.get(node),
+                        node));
+                if (hits.size() == k) {
+                    break;
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the stored (normalized) vector of a search hit.
+     *
+     * @param hit A hit returned by {@link #search(float[], int, int)}.
+     * @return The normalized vector.
+     */
+    public float[] getVector(Hit hit) {
+        lock.readLock().lock();
+        try {
+            float[] copy = new float[dimension];
+            vectors.get(hit.node() * dimension, copy, 0, dimension);
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Graph construction and search
+    // -------------------------------------------------------------------------
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float currentDistance = distance(query, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] neighbors = links.get(current)[level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int candidate = neighbors[i];
+                float d = distance(query, candidate);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = candidate;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search on one layer.
+     *
+     * @return Encoded (distance, node) pairs sorted by ascending distance.
+     */
+    private long[] searchLayer(float[] query, int entry, int ef, int level) {
+        BitSet visited = new BitSet(count);
+        LongMinHeap candidates = new LongMinHeap(ef * 2);
+        LongMinHeap results = new LongMinHeap(ef + 1); // max-heap through negated keys
+
+        long first = encode(distance(query, entry), entry);
+        candidates.push(first);
+        results.push(-first);
+        visited.set(entry);
+
+        while (candidates.size() > 0) {
+            long closest = candidates.pop();
+            if (results.size() >= ef && decodeDistance(closest) > decodeDistance(-results.peek())) {
+                break;
+            }
+            int[] neighbors = links.get(decodeNode(closest))[level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float d = distance(query, neighbor);
+                if (results.size() < ef || d < decodeDistance(-results.peek())) {
+                    long encoded = encode(d, neighbor);
+                    candidates.push(encoded);
+                    results.push(-encoded);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+
+        long[] sorted = new long[results.size()];
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            sorted[i] = -results.pop();
+        }
+        return sorted;
+    }
+
+    /**
+     * Neighbor selection heuristic: a candidate is kept only if it is closer to
+     * the base node than to every neighbor already selected.
+     */
+    private int[] selectNeighbors(long[] sortedCandidates, int maxCount) {
+        int[] selected = new int[maxCount];
+        int size = 0;
+        for (long candidate : sortedCandidates) {
+            if (size >= maxCount) {
+                break;
+            }
+            int node = decodeNode(candidate);
+            float d = decodeDistance(candidate);
+            boolean keep = true;
+            for (int j = 0; j < size; j++) {
+                if (distanceBetween(node, selected[j]) < d) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[size++] = node;
+            }
+        }
+        return Arrays.copyOf(selected, size);
+    }
+
+    private void addLink(int from, int to, int level) {
+        int[] neighbors = links.get(from)[level];
+        int maxConnections = level == 0 ? maxM0 : m;
+        if (neighbors[0] < maxConnections) {
+            neighbors[++neighbors[0]] = to;
+            return;
+        }
+
+        // Too many connections - shrink using the same heuristic
+        long[] candidates = new long[neighbors[0] + 1];
+        for (int i = 0; i < neighbors[0]; i++) {
+            candidates[i] = encode(distanceBetween(from, neighbors[i + 1]), neighbors[i + 1]);
+        }
+        candidates[neighbors[0]] = encode(distanceBetween(from, to), to);
+        Arrays.sort(candidates);
+        int[] selected = selectNeighbors(candidates, maxConnections);
+        neighbors[0] = selected.length;
+        System.arraycopy(selected, 0, neighbors, 1, selected.length);
+    }
+
+    private boolean sameVector(int node, float[] normalized) {
+        int base = node * dimension;
+        for (int i = 0; i < dimension; i++) {
+            if (vectors.get(base + i) != normalized[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private float distance(float[] query, int node) {
+        int base = node * dimension;
+        float dot = 0f;
+        for (int i = 0; i < dimension; i++) {
+            dot += query[i] * vectors.get(base + i);
+        }
+        return 1.0f - dot;
+    }
+
+    private float distanceBetween(int a, int b) {
+        int baseA = a * dimension;
+        int baseB = b * dimension;
+        float dot = 0f;
+        for (int i = 0; i < dimension; i++) {
+            dot += vectors.get(baseA + i) * vectors.get(baseB + i);
+        }
+        return 1.0f - dot;
+    }
+
+    private float[] normalize(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Vector dimension " + vector.length + " does not match index dimension "
+                    + dimension);
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[dimension];
+        if (norm == 0) {
+            return normalized;
+        }
+        for (int i = 0; i < dimension; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private void ensureCapacity(int nodes) {
+        int capacity = vectorBytes.capacity() / (dimension * Float.BYTES);
+        if (!vectorsReadOnly && capacity >= nodes) {
+            return;
+        }
+        int newCapacity = Math.max(nodes, Math.max(16, capacity * 2));
+        ByteBuffer grown = ByteBuffer.allocateDirect(newCapacity * dimension * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer used = vectorBytes.duplicate();
+        used.position(0).limit(count * dimension * Float.BYTES);
+        grown.put(used);
+        grown.clear();
+        vectorBytes = grown;
+        vectors = grown.asFloatBuffer();
+        vectorsReadOnly = false;
+    }
+
+    private static long encode(float distance, int node) {
+        return ((long) Float.floatToIntBits(Math.max(0f, distance)) << 32) | (node & 0xFFFFFFFFL);
+    }
+
+    private static float decodeDistance(long encoded) {
+        return Float.intBitsToFloat((int) (encoded >>> 32));
+    }
+
+    private static int decodeNode(long encoded) {
+        return (int) encoded;
+    }
+
+    // -------------------------------------------------------------------------
+    // Snapshots
+    // -------------------------------------------------------------------------
+
+    /**
+     * Compacts the index and writes it to {@code <dir>/<name>-<generation>.vec}
+     * and {@code <dir>/<name>.graph}. The vectors always go to a new generation
+     * file, the graph is written to a temporary file and moved into place, and
+     * older vector files are deleted afterwards where the OS allows it.
+     */
+    public void save(Path dir, String name) throws IOException {
+        compact();
+        lock.readLock().lock();
+        try {
+            Files.createDirectories(dir);
+            long nextGeneration = Math.max(generation, latestGeneration(dir, name)) + 1;
+            Path vecTmp = dir.resolve(name + ".vec.tmp");
+            Path graphTmp = dir.resolve(name + ".graph.tmp");
+
+            // Step 1. Raw vectors
+            try (FileChannel channel = FileChannel.open(vecTmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(VECTOR_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(count).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                ByteBuffer used = vectorBytes.duplicate();
+                used.position(0).limit(count * dimension * Float.BYTES);
+                while (used.hasRemaining()) {
+                    channel.write(used);
+                }
+                channel.force(false);
+            }
+
+            // Step 2. Graph, ids and payloads
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(graphTmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(nextGeneration);
+                out.writeInt(count);
+                out.writeInt(entryPoint);
+                out.writeInt(maxLevel);
+                for (int node = 0; node < count; node++) {
+                    out.writeBoolean(deleted.get(node));
+                    out.writeUTF(documentIds.get(node));
+                    Map<String, String> payload = payloads.get(node);
+                    out.writeInt(payload.size());
+                    for (Map.Entry<String, String> entry : payload.entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        out.writeUTF(entry.getValue() != null ? entry.getValue() : "");
+                    }
+                    int[][] nodeLinks = links.get(node);
+                    out.writeInt(nodeLinks.length);
+                    for (int[] levelLinks : nodeLinks) {
+                        out.writeInt(levelLinks[0]);
+                        for (int i = 1; i <= levelLinks[0]; i++) {
+                            out.writeInt(levelLinks[i]);
+                        }
+                    }
+                }
+            }
+
+            // Step 3. Publish: the new vector file first, then the graph that points to it
+            Files.move(vecTmp, vectorPath(dir, name, nextGeneration), StandardCopyOption.ATOMIC_MOVE);
+            Files.move(graphTmp, dir.resolve(name + ".graph"), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            generation = nextGeneration;
+
+            // Step 4. Drop older generations
+            for (Path old : vectorFiles(dir, name)) {
+                if (!old.equals(vectorPath(dir, name, nextGeneration))) {
+                    try {
+                        Files.deleteIfExists(old);
+                    } catch (IOException e) {
+                        // Still mapped (Windows), retried on the next save
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Path vectorPath(Path dir, String name, long generation) {
+        return dir.resolve(name + "-" + generation + ".vec");
+    }
+
+    private static List<Path> vectorFiles(Path dir, String name) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (var stream = Files.newDirectoryStream(dir, name + "-*.vec")) {
+            for (Path file : stream) {
+                String filename = file.getFileName().toString();
+                String suffix = filename.substring(name.length() + 1, filename.length() - ".vec".length());
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) {
+                    files.add(file);
+                }
+            }
+        }
+        return files;
+    }
+
+    private static long latestGeneration(Path dir, String name) throws IOException {
+        long latest = 0;
+        for (Path file : vectorFiles(dir, name)) {
+            String filename = file.getFileName().toString();
+            latest = Math.max(latest, Long.parseLong(
+                    filename.substring(name.length() + 1, filename.length() - ".vec".length())));
+        }
+        return latest;
+    }
+
+    /**
+     * Loads a snapshot written by {@link #save(Path, String)}. The vectors are
+     * memory-mapped, so startup cost does not depend on the vector data size.
+     *
+     * @return The loaded index or null if no snapshot exists.
+     */
+    public static HnswIndex load(Path dir, String name, int m, int efConstruction) throws IOException {
+        Path graphPath = dir.resolve(name + ".graph");
+        if (!Files.exists(graphPath)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(graphPath)))) {
+            // Step 1. Graph header with the vector file generation
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Invalid graph snapshot: " + graphPath);
+            }
+            long generation = in.readLong();
+            int graphCount = in.readInt();
+            Path vecPath = vectorPath(dir, name, generation);
+            if (!Files.exists(vecPath)) {
+                return null;
+            }
+
+            // Step 2. Map the vectors
+            HnswIndex index;
+            try (FileChannel channel = FileChannel.open(vecPath, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(VECTOR_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                while (header.hasRemaining()) {
+                    if (channel.read(header) < 0) {
+                        break;
+                    }
+                }
+                header.flip();
+                if (header.remaining() < VECTOR_HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                    throw new IOException("Invalid vector snapshot: " + vecPath);
+                }
+                int dimension = header.getInt();
+                int count = header.getInt();
+                if (count != graphCount) {
+                    throw new IOException("Graph snapshot does not match vectors: " + graphPath);
+                }
+                index = new HnswIndex(dimension, m, efConstruction);
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, VECTOR_HEADER_BYTES,
+                        (long) count * dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                index.vectorBytes = mapped;
+                index.vectors = mapped.asFloatBuffer();
+                index.vectorsReadOnly = true;
+                index.count = count;
+                index.generation = generation;
+            }
+
+            // Step 3. Read the graph
+            index.entryPoint = in.readInt();
+            index.maxLevel = in.readInt();
+            for (int node = 0; node < index.count; node++) {
+                if (in.readBoolean()) {
+                    index.deleted.set(node);
+                }
+                String documentId = in.readUTF();
+                int payloadSize = in.readInt();
+                Map<String, String> payload = new LinkedHashMap<>();
+                for (int i = 0; i < payloadSize; i++) {
+                    payload.put(in.readUTF(), in.readUTF());
+                }
+                int levels = in.readInt();
+                int[][] nodeLinks = new int[levels][];
+                for (int l = 0; l < levels; l++) {
+                    int size = in.readInt();
+                    nodeLinks[l] = new int[(l == 0 ? index.maxM0 : index.m) + 1];
+                    nodeLinks[l][0] = size;
+                    for (int i = 1; i <= size; i++) {
+                        nodeLinks[l][i] = in.readInt();
+                    }
+                }
+                index.links.add(nodeLinks);
+                index.documentIds.add(documentId);
+                index.payloads.add(payload);
+                if (!index.deleted.get(node)) {
+                    index.nodesByDocumentId.put(documentId, node);
+                }
+            }
+            return index;
+        }
+    }
+
+    /**
+     * A search hit with cosine similarity as score.
+     */
+    public record Hit(String documentId, float score, Map<String, String> payload, int node) {
+    }
+
+    /**
+     * Minimal binary min-heap over primitive longs (avoids boxing in the hot loop).
+     */
+    private static final class LongMinHeap {
+        private long[] heap;
+        private int size;
+
+        LongMinHeap(int initialCapacity) {
+            heap = new long[Math.max(16, initialCapacity)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        long peek() {
+            return heap[0];
+        }
+
+        void push(long value) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= value) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+        }
+
+        long pop() {
+            long top = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (last <= heap[child]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+    }
+}